@@ -0,0 +1,147 @@
+import bench.Target;
+
+import java.awt.Graphics2D;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implements {@link Target} on top of the application classes; see there for why the
+ * benchmarks need this bridge.
+ *
+ * @author Atharva Usturge
+ */
+public class BenchTarget implements Target {
+    @Override
+    public int parse(byte[] body) throws IOException {
+        return StockClient.parse(new ByteArrayInputStream(body), 0).size();
+    }
+
+    @Override
+    public Object series(int bars, long seed) {
+        Random r = new Random(seed);
+        SeriesBuilder b = new SeriesBuilder(bars);
+        double p = 100;
+        for (int i = 0; i < bars; i++) {
+            double o = p;
+            p = Math.max(1, p + r.nextGaussian());
+            b.add(86400L * (i + 1), o, Math.max(o, p) + 0.5, Math.min(o, p) - 0.5, p, 1_000_000 + r.nextInt(500_000));
+        }
+        return b.build();
+    }
+
+    @Override
+    public Object chart(Object series, int width, int height) {
+        ChartPanel chart = new ChartPanel();
+        chart.setSize(width, height);
+        chart.setIndicators(new IndicatorEngine(Indicators.parseOverlays(Config.getIndicators())));
+        chart.setSeries((TimeSeries) series);
+        return chart;
+    }
+
+    @Override
+    public void paint(Object chart, Graphics2D g, boolean invalidate) {
+        ChartPanel c = (ChartPanel) chart;
+        if (invalidate) c.invalidateLayers();
+        c.paint(g);
+    }
+
+    @Override
+    public int minMax(Object series, int columns, int[] out) {
+        TimeSeries s = (TimeSeries) series;
+        return Decimator.minMax(s, 0, s.size(), columns, out);
+    }
+
+    @Override
+    public int lttb(Object series, int threshold, int[] out) {
+        TimeSeries s = (TimeSeries) series;
+        return Decimator.lttb(s, 0, s.size(), threshold, out);
+    }
+
+    @Override
+    public Object rangeIndex(Object series) {
+        return RangeMinMax.ofClose((TimeSeries) series);
+    }
+
+    @Override
+    public double rangeQuery(Object index, int from, int to) {
+        RangeMinMax r = (RangeMinMax) index;
+        return r.min(from, to) + r.max(from, to);
+    }
+
+    @Override
+    public Object indicators(String spec) {
+        return new IndicatorEngine(Indicators.parse(spec));
+    }
+
+    @Override
+    public int computeIndicators(Object engine, Object series) {
+        IndicatorEngine e = (IndicatorEngine) engine;
+        e.reset();
+        return e.update((TimeSeries) series);
+    }
+
+    /** A live buffer and the chart following it. */
+    private static final class Live {
+        final LiveSeries series;
+        final ChartPanel chart;
+        final SeriesBuilder poll = new SeriesBuilder(1);
+        long last;
+
+        Live(LiveSeries series, ChartPanel chart, long last) {
+            this.series = series;
+            this.chart = chart;
+            this.last = last;
+        }
+    }
+
+    @Override
+    public Object liveChart(int bars, int width, int height) {
+        LiveSeries live = new LiveSeries(2 * bars);
+        SeriesBuilder b = new SeriesBuilder(bars);
+        b.setIntraday(true);
+        Random r = new Random(1);
+        double p = 100;
+        long t = 1_700_000_000L;
+        for (int i = 0; i < bars; i++) {
+            p = Math.max(1, p + 0.1 * r.nextGaussian());
+            b.add(t + 60L * i, p, p + 0.05, p - 0.05, p, 1000 + r.nextInt(1000));
+        }
+        live.append(b.build());
+        ChartPanel chart = new ChartPanel();
+        chart.setSize(width, height);
+        chart.setIndicators(new IndicatorEngine(Indicators.parseOverlays(Config.getIndicators())));
+        chart.setLiveWindow(390);
+        chart.setSeries(live.view());
+        return new Live(live, chart, t + 60L * (bars - 1));
+    }
+
+    @Override
+    public int liveTick(Object live, boolean newBar, double close) {
+        Live l = (Live) live;
+        if (newBar) l.last += 60;
+        l.poll.clear();
+        l.poll.setIntraday(true);
+        l.poll.add(l.last, close, close + 0.05, close - 0.05, close, 1000);
+        int changed = l.series.append(l.poll.build());
+        if (changed >= 0) l.chart.appendBars(l.series.view(), changed);
+        return changed;
+    }
+
+    @Override
+    public Object cache(Object series, int maxEntries) {
+        TimeSeries s = (TimeSeries) series;
+        return new SeriesCache(key -> s, maxEntries, TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Override
+    public Object cacheGet(Object cache, String symbol) {
+        try {
+            return ((SeriesCache) cache).get(FetchKey.daily(symbol, "compact"), true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}: runs JMH with the given arguments and, unless a
+ * result format is given, also writes the results as JSON to {@code jmh-result.json}
+ * so runs can be compared for regressions.
+ *
+ * @author Atharva Usturge
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> all = new ArrayList<>(Arrays.asList(args));
+        if (!all.contains("-rf")) {
+            // JMH writes a "-rf json" result to jmh-result.json unless -rff names another file
+            all.add("-rf");
+            all.add("json");
+        }
+        org.openjdk.jmh.Main.main(all.toArray(new String[0]));
+    }
+}
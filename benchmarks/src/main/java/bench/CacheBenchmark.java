@@ -0,0 +1,66 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response cache lookups with an instant loader, so only the cache's own bookkeeping
+ * is measured: hits on a warm entry (single-threaded and contended) and a working set
+ * larger than the cache, where every lookup misses and evicts.
+ *
+ * @author Atharva Usturge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+    private static final int CAPACITY = 64;
+    private static final int WORKING_SET = 1024;
+
+    private Target target;
+    private Object cache;
+    private String[] symbols;
+    private int next;
+
+    @Setup
+    public void setup() {
+        target = Target.load();
+        cache = target.cache(target.series(100, 1), CAPACITY);
+        symbols = new String[WORKING_SET];
+        for (int i = 0; i < WORKING_SET; i++) symbols[i] = "SYM" + i;
+        target.cacheGet(cache, "IBM");
+    }
+
+    @Benchmark
+    public Object hit() {
+        return target.cacheGet(cache, "IBM");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object hitContended() {
+        return target.cacheGet(cache, "IBM");
+    }
+
+    @Benchmark
+    public Object missAndEvict() {
+        // cycling through more symbols than fit makes every lookup a miss
+        String s = symbols[next];
+        next = next + 1 == WORKING_SET ? 0 : next + 1;
+        return target.cacheGet(cache, s);
+    }
+}
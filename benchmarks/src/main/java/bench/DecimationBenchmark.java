@@ -0,0 +1,76 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Series reduction for drawing: min/max and LTTB decimation to a screen's worth of
+ * points, the range index behind Y auto-scaling, and indicator computation.
+ *
+ * @author Atharva Usturge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecimationBenchmark {
+    private static final int COLUMNS = 1200;
+
+    @Param({"10000", "1000000"})
+    public int bars;
+
+    private Target target;
+    private Object series;
+    private Object range;
+    private Object indicators;
+    private int[] out;
+
+    @Setup
+    public void setup() {
+        target = Target.load();
+        series = target.series(bars, 1);
+        range = target.rangeIndex(series);
+        indicators = target.indicators("SMA20,SMA50,SMA200,EMA12,EMA26,BB20,RSI14,VWAP,DC20,DC55");
+        out = new int[2 * COLUMNS + 2];
+    }
+
+    @Benchmark
+    public int minMax() {
+        return target.minMax(series, COLUMNS, out);
+    }
+
+    @Benchmark
+    public int lttb() {
+        return target.lttb(series, COLUMNS, out);
+    }
+
+    @Benchmark
+    public Object buildRangeIndex() {
+        return target.rangeIndex(series);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double rangeQuery() {
+        // a window of about a third of the series, as after a few zoom steps
+        return target.rangeQuery(range, bars / 3, 2 * bars / 3);
+    }
+
+    @Benchmark
+    public int tenIndicators() {
+        return target.computeIndicators(indicators, series);
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live ingest: one polled bar merged into the live buffer and handed to the chart, which
+ * updates its indicators and re-rasterizes the changed strip. A tick should cost the
+ * same whatever the number of bars held.
+ *
+ * @author Atharva Usturge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LiveBenchmark {
+    @Param({"4096", "1000000"})
+    public int bars;
+
+    private Target target;
+    private Object live;
+    private int tick;
+
+    @Setup
+    public void setup() {
+        target = Target.load();
+        live = target.liveChart(bars, 1280, 720);
+    }
+
+    /** The provider revises the forming bar on every poll until its interval closes. */
+    @Benchmark
+    public int reviseFormingBar() {
+        return target.liveTick(live, false, 100 + (++tick & 7) * 0.01);
+    }
+}
@@ -0,0 +1,47 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response parsing: compact and full pretty-printed payloads and a minified full one,
+ * parsed from memory so only the parser is measured.
+ *
+ * @author Atharva Usturge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({"compact", "full", "minified"})
+    public String payload;
+
+    private Target target;
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        target = Target.load();
+        body = Payloads.of(payload);
+    }
+
+    @Benchmark
+    public int parse() throws IOException {
+        return target.parse(body);
+    }
+}
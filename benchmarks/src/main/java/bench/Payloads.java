@@ -0,0 +1,83 @@
+package bench;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Synthetic Alpha Vantage TIME_SERIES_DAILY responses, shaped like the real ones:
+ * a "Meta Data" block followed by "Time Series (Daily)" with newest-first date keys.
+ *
+ * @author Atharva Usturge
+ */
+public final class Payloads {
+    /** Bars in an outputsize=compact response. */
+    public static final int COMPACT_BARS = 100;
+    /** Bars in an outputsize=full response for a symbol with about 25 years of history. */
+    public static final int FULL_BARS = 6300;
+
+    private Payloads() {
+    }
+
+    /**
+     * @param kind "compact" (100 bars, pretty-printed), "full" (6300 bars, pretty-printed)
+     *             or "minified" (6300 bars, no whitespace)
+     * @return the UTF-8 response body
+     */
+    public static byte[] of(String kind) {
+        switch (kind) {
+            case "compact": return daily("IBM", COMPACT_BARS, true);
+            case "full": return daily("IBM", FULL_BARS, true);
+            case "minified": return daily("IBM", FULL_BARS, false);
+            default: throw new IllegalArgumentException("unknown payload '" + kind + "'");
+        }
+    }
+
+    /**
+     * @param symbol the symbol in the meta data
+     * @param bars   number of bars
+     * @param pretty indent like the provider does, or emit minified JSON
+     * @return the UTF-8 response body
+     */
+    public static byte[] daily(String symbol, int bars, boolean pretty) {
+        String nl = pretty ? "\n" : "";
+        String in1 = pretty ? "    " : "", in2 = pretty ? "        " : "", in3 = pretty ? "            " : "";
+        String sep = pretty ? ": " : ":";
+        Random r = new Random(42);
+        LocalDate day = LocalDate.of(2025, 1, 2);
+        StringBuilder sb = new StringBuilder(bars * (pretty ? 230 : 150) + 512);
+        sb.append('{').append(nl)
+          .append(in1).append("\"Meta Data\"").append(sep).append('{').append(nl)
+          .append(in2).append("\"1. Information\"").append(sep).append("\"Daily Prices (open, high, low, close) and Volumes\",").append(nl)
+          .append(in2).append("\"2. Symbol\"").append(sep).append('"').append(symbol).append("\",").append(nl)
+          .append(in2).append("\"3. Last Refreshed\"").append(sep).append('"').append(day).append("\",").append(nl)
+          .append(in2).append("\"4. Output Size\"").append(sep).append("\"Full size\",").append(nl)
+          .append(in2).append("\"5. Time Zone\"").append(sep).append("\"US/Eastern\"").append(nl)
+          .append(in1).append("},").append(nl)
+          .append(in1).append("\"Time Series (Daily)\"").append(sep).append('{').append(nl);
+        double p = 150;
+        for (int i = 0; i < bars; i++) {
+            double o = p + r.nextGaussian();
+            double c = o + r.nextGaussian();
+            double h = Math.max(o, c) + r.nextDouble();
+            double l = Math.min(o, c) - r.nextDouble();
+            sb.append(in2).append('"').append(day).append('"').append(sep).append('{').append(nl);
+            field(sb, in3, sep, "1. open", o, nl);
+            field(sb, in3, sep, "2. high", h, nl);
+            field(sb, in3, sep, "3. low", l, nl);
+            field(sb, in3, sep, "4. close", c, nl);
+            sb.append(in3).append("\"5. volume\"").append(sep).append('"').append(1_000_000 + r.nextInt(9_000_000)).append('"').append(nl);
+            sb.append(in2).append('}').append(i + 1 < bars ? "," : "").append(nl);
+            p = c;
+            day = day.minusDays(day.getDayOfWeek().getValue() == 1 ? 3 : 1);
+        }
+        sb.append(in1).append('}').append(nl).append('}');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void field(StringBuilder sb, String indent, String sep, String name, double v, String nl) {
+        sb.append(indent).append('"').append(name).append('"').append(sep).append('"')
+          .append(String.format(Locale.ROOT, "%.4f", v)).append("\",").append(nl);
+    }
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless chart rendering into a {@link BufferedImage}: a full repaint rebuilds the
+ * cached static layer (axes, decimated series, indicators), a cached repaint only blits
+ * it and draws the overlay.
+ *
+ * @author Atharva Usturge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int bars;
+
+    @Param({"1280x720"})
+    public String size;
+
+    private Target target;
+    private Object chart;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup
+    public void setup() {
+        target = Target.load();
+        int x = size.indexOf('x');
+        int w = Integer.parseInt(size.substring(0, x));
+        int h = Integer.parseInt(size.substring(x + 1));
+        chart = target.chart(target.series(bars, 1), w, h);
+        image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage fullRepaint() {
+        target.paint(chart, g, true);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage cachedRepaint() {
+        target.paint(chart, g, false);
+        return image;
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.awt.Graphics2D;
+import java.io.IOException;
+
+/**
+ * The application code the benchmarks measure.
+ *
+ * JMH only accepts benchmarks in a named package, and a named package cannot refer to
+ * the application's classes, which live in the unnamed package. The benchmarks
+ * therefore call the application through this interface; its only implementation,
+ * {@code BenchTarget}, sits in the unnamed package and is looked up once per trial, so
+ * every measured call is a plain monomorphic interface call. Application objects are
+ * passed around as opaque handles.
+ *
+ * @author Atharva Usturge
+ */
+public interface Target {
+    /**
+     * @return the application bridge
+     */
+    static Target load() {
+        try {
+            return (Target) Class.forName("BenchTarget").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("BenchTarget not on the classpath", ex);
+        }
+    }
+
+    /** Parses an Alpha Vantage response the way the app does; returns the bar count. */
+    int parse(byte[] body) throws IOException;
+
+    /** Builds a random-walk daily series of the given length (TimeSeries handle). */
+    Object series(int bars, long seed);
+
+    /** Creates a chart of the given size showing the series (ChartPanel handle). */
+    Object chart(Object series, int width, int height);
+
+    /** Paints the chart; with {@code invalidate} the cached static layer is rebuilt first. */
+    void paint(Object chart, Graphics2D g, boolean invalidate);
+
+    /** Min/max decimation of the whole series to {@code columns} pixel columns. */
+    int minMax(Object series, int columns, int[] out);
+
+    /** LTTB downsampling of the whole series to {@code threshold} points. */
+    int lttb(Object series, int threshold, int[] out);
+
+    /** Builds the close-price range index (RangeMinMax handle). */
+    Object rangeIndex(Object series);
+
+    /** Range min plus range max over {@code [from, to)}. */
+    double rangeQuery(Object index, int from, int to);
+
+    /** Creates an indicator engine from a spec like "SMA20,EMA50" (IndicatorEngine handle). */
+    Object indicators(String spec);
+
+    /** Recomputes every indicator over the whole series; returns the bars fed. */
+    int computeIndicators(Object engine, Object series);
+
+    /** Creates a live chart following a live buffer of {@code bars} intraday bars, with the default indicators. */
+    Object liveChart(int bars, int width, int height);
+
+    /** Polls one bar into the live chart: a new bar, or a revision of the forming one; returns its index. */
+    int liveTick(Object live, boolean newBar, double close);
+
+    /** Creates a response cache whose loader returns {@code series} (SeriesCache handle). */
+    Object cache(Object series, int maxEntries);
+
+    /** Looks up a daily compact request for the symbol through the cache. */
+    Object cacheGet(Object cache, String symbol);
+}
@@ -0,0 +1,473 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Cross-symbol statistics: aligns several series on the bar times they all share and
+ * derives log returns, the covariance and correlation matrix, rolling beta against a
+ * benchmark and drawdowns.
+ *
+ * The heavy part is the matrix, one dot product of length T for each of the N(N+1)/2
+ * symbol pairs. The upper triangle is cut into square tiles that run as fork-join tasks
+ * on the common pool; inside a tile two rows are multiplied against two columns at a
+ * time, so every loaded value feeds two products, and the independent accumulators let
+ * the JIT keep the loop pipelined. Everything works on plain {@code double[]} rows.
+ *
+ * Series should share a bar size (resample them first); only times present in every
+ * series are kept.
+ *
+ * @author Atharva Usturge
+ */
+public final class Analytics {
+    // Symbols per side of a matrix tile
+    private static final int TILE = 32;
+    // Tiles a task computes itself instead of splitting further
+    private static final int TILES_PER_TASK = 2;
+
+    private Analytics() {
+    }
+
+    /** Closing prices of several symbols on the bar times they have in common. */
+    public static final class Aligned {
+        private final String[] symbols;
+        private final long[] times;
+        private final double[][] close;
+
+        Aligned(String[] symbols, long[] times, double[][] close) {
+            this.symbols = symbols;
+            this.times = times;
+            this.close = close;
+        }
+
+        /** @return the symbols, in input order */
+        public String[] getSymbols() { return symbols; }
+
+        /** @return the shared bar times, oldest first */
+        public long[] getTimes() { return times; }
+
+        /** @return one row of closes per symbol, one column per shared time */
+        public double[][] getClose() { return close; }
+    }
+
+    /** Covariance and correlation of the return rows of several symbols. */
+    public static final class Matrix {
+        private final String[] symbols;
+        private final double[][] covariance;
+        private final double[][] correlation;
+        private final int observations;
+
+        Matrix(String[] symbols, double[][] covariance, double[][] correlation, int observations) {
+            this.symbols = symbols;
+            this.covariance = covariance;
+            this.correlation = correlation;
+            this.observations = observations;
+        }
+
+        public String[] getSymbols() { return symbols; }
+
+        /** @return the sample covariance, symmetric */
+        public double[][] getCovariance() { return covariance; }
+
+        /** @return the correlation, symmetric, NaN for a symbol whose returns never vary */
+        public double[][] getCorrelation() { return correlation; }
+
+        /** @return the number of returns per symbol */
+        public int getObservations() { return observations; }
+    }
+
+    /** The largest peak-to-trough decline of a price series. */
+    public static final class Drawdown {
+        private final double max;
+        private final int peak;
+        private final int trough;
+        private final int recovery;
+        private final double current;
+
+        Drawdown(double max, int peak, int trough, int recovery, double current) {
+            this.max = max;
+            this.peak = peak;
+            this.trough = trough;
+            this.recovery = recovery;
+            this.current = current;
+        }
+
+        /** @return the largest decline as a fraction of the preceding peak, 0 if prices never fell */
+        public double getMax() { return max; }
+
+        /** @return index of the peak before the largest decline */
+        public int getPeak() { return peak; }
+
+        /** @return index of the trough of the largest decline */
+        public int getTrough() { return trough; }
+
+        /** @return index where prices first regained the peak, or -1 if they have not */
+        public int getRecovery() { return recovery; }
+
+        /** @return the decline of the last price from the highest price so far */
+        public double getCurrent() { return current; }
+    }
+
+    /** Everything {@link #analyze} computes. */
+    public static final class Report {
+        private final Aligned aligned;
+        private final Matrix matrix;
+        private final int benchmark;
+        private final double[] beta;
+        private final double[] rollingBeta;
+        private final Drawdown[] drawdowns;
+
+        Report(Aligned aligned, Matrix matrix, int benchmark, double[] beta, double[] rollingBeta, Drawdown[] drawdowns) {
+            this.aligned = aligned;
+            this.matrix = matrix;
+            this.benchmark = benchmark;
+            this.beta = beta;
+            this.rollingBeta = rollingBeta;
+            this.drawdowns = drawdowns;
+        }
+
+        public Aligned getAligned() { return aligned; }
+
+        public Matrix getMatrix() { return matrix; }
+
+        /** @return index of the benchmark symbol, or -1 if it was not among the series */
+        public int getBenchmark() { return benchmark; }
+
+        /** @return beta of each symbol against the benchmark over all returns (NaN without one) */
+        public double[] getBeta() { return beta; }
+
+        /** @return beta of each symbol over the most recent window of returns (NaN without one) */
+        public double[] getRollingBeta() { return rollingBeta; }
+
+        /** @return the drawdown of each symbol's closes */
+        public Drawdown[] getDrawdowns() { return drawdowns; }
+    }
+
+    /**
+     * Aligns, correlates and summarizes a set of series in one go.
+     *
+     * @param symbols   the symbols
+     * @param series    their bars, oldest first, in the same order
+     * @param benchmark the symbol betas are measured against (may be absent)
+     * @param window    returns per rolling beta window
+     * @return the report
+     */
+    public static Report analyze(List<String> symbols, List<TimeSeries> series, String benchmark, int window) {
+        Aligned aligned = align(symbols, series);
+        double[][] returns = logReturns(aligned.getClose());
+        Matrix matrix = correlate(aligned.getSymbols(), returns);
+        int n = returns.length;
+        int b = Arrays.asList(aligned.getSymbols()).indexOf(benchmark);
+        double[] beta = new double[n];
+        double[] rolling = new double[n];
+        Drawdown[] drawdowns = new Drawdown[n];
+        ForkJoinPool.commonPool().invoke(new RowTask(0, n, i -> {
+            if (b >= 0) {
+                double var = matrix.covariance[b][b];
+                beta[i] = var > 0 ? matrix.covariance[i][b] / var : Double.NaN;
+                double[] r = rollingBeta(returns[i], returns[b], window);
+                rolling[i] = r.length > 0 ? r[r.length - 1] : Double.NaN;
+            } else {
+                beta[i] = Double.NaN;
+                rolling[i] = Double.NaN;
+            }
+            drawdowns[i] = drawdown(aligned.close[i]);
+        }));
+        return new Report(aligned, matrix, b, beta, rolling, drawdowns);
+    }
+
+    /**
+     * Keeps the bar times present in every series. Empty series are left out.
+     *
+     * @param symbols the symbols
+     * @param series  their bars, oldest first, in the same order
+     * @return the closes of the non-empty series on their shared times
+     */
+    public static Aligned align(List<String> symbols, List<TimeSeries> series) {
+        List<String> names = new ArrayList<>();
+        List<TimeSeries> kept = new ArrayList<>();
+        for (int k = 0; k < series.size(); k++) {
+            TimeSeries s = series.get(k);
+            if (s == null || s.isEmpty()) continue;
+            names.add(symbols.get(k));
+            kept.add(s);
+        }
+        if (kept.isEmpty()) return new Aligned(new String[0], new long[0], new double[0][]);
+
+        // Intersect the sorted time columns pairwise, starting from the shortest
+        TimeSeries shortest = kept.get(0);
+        for (TimeSeries s : kept) if (s.size() < shortest.size()) shortest = s;
+        long[] common = new long[shortest.size()];
+        for (int i = 0; i < common.length; i++) common[i] = shortest.time(i);
+        int m = common.length;
+        for (TimeSeries s : kept) {
+            int out = 0, j = 0, n = s.size();
+            for (int i = 0; i < m && j < n; ) {
+                long a = common[i], t = s.time(j);
+                if (a == t) {
+                    common[out++] = a;
+                    i++;
+                    j++;
+                } else if (a < t) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            m = out;
+        }
+        long[] times = Arrays.copyOf(common, m);
+
+        double[][] close = new double[kept.size()][m];
+        ForkJoinPool.commonPool().invoke(new RowTask(0, kept.size(), k -> {
+            TimeSeries s = kept.get(k);
+            double[] row = close[k];
+            int j = 0;
+            for (int i = 0; i < times.length; i++) {
+                while (s.time(j) != times[i]) j++;
+                row[i] = s.close(j);
+            }
+        }));
+        return new Aligned(names.toArray(new String[0]), times, close);
+    }
+
+    /**
+     * @param close one row of prices per symbol
+     * @return one row of {@code ln(p[t] / p[t-1])} per symbol, one shorter than the prices
+     */
+    public static double[][] logReturns(double[][] close) {
+        double[][] out = new double[close.length][];
+        ForkJoinPool.commonPool().invoke(new RowTask(0, close.length, k -> {
+            double[] p = close[k];
+            double[] r = new double[Math.max(0, p.length - 1)];
+            for (int i = 0; i < r.length; i++) r[i] = Math.log(p[i + 1] / p[i]);
+            out[k] = r;
+        }));
+        return out;
+    }
+
+    /**
+     * Computes the full sample covariance and correlation matrix.
+     *
+     * @param symbols the symbols, one per row
+     * @param returns one row of returns per symbol, all the same length
+     * @return the matrix
+     */
+    public static Matrix correlate(String[] symbols, double[][] returns) {
+        int n = returns.length;
+        int t = n == 0 ? 0 : returns[0].length;
+        // Demean every row once; the products of demeaned rows are the co-moments
+        double[][] d = new double[n][];
+        ForkJoinPool.commonPool().invoke(new RowTask(0, n, k -> {
+            double[] r = returns[k];
+            double sum = 0;
+            for (double v : r) sum += v;
+            double mean = t > 0 ? sum / t : 0;
+            double[] row = new double[t];
+            for (int i = 0; i < t; i++) row[i] = r[i] - mean;
+            d[k] = row;
+        }));
+
+        double[][] cov = new double[n][n];
+        int blocks = (n + TILE - 1) / TILE;
+        int[] tiles = new int[blocks * (blocks + 1) / 2];
+        for (int bi = 0, k = 0; bi < blocks; bi++) {
+            for (int bj = bi; bj < blocks; bj++) tiles[k++] = bi * blocks + bj;
+        }
+        double scale = t > 1 ? 1.0 / (t - 1) : Double.NaN;
+        ForkJoinPool.commonPool().invoke(new TileTask(d, cov, tiles, 0, tiles.length, blocks, scale));
+
+        double[][] corr = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            double si = Math.sqrt(cov[i][i]);
+            for (int j = 0; j < n; j++) {
+                double c = cov[i][j] / (si * Math.sqrt(cov[j][j]));
+                // rounding can push a perfect correlation a hair past 1
+                corr[i][j] = i == j && si > 0 ? 1 : Math.max(-1, Math.min(1, c));
+            }
+        }
+        return new Matrix(symbols, cov, corr, t);
+    }
+
+    /**
+     * Beta of one return series against another over a sliding window, updated with
+     * running sums in one pass.
+     *
+     * @param returns   the symbol's returns
+     * @param benchmark the benchmark's returns on the same times
+     * @param window    returns per window; at least 2
+     * @return beta of the window ending at each return, NaN until a full window is available
+     */
+    public static double[] rollingBeta(double[] returns, double[] benchmark, int window) {
+        int t = Math.min(returns.length, benchmark.length);
+        int w = Math.max(2, window);
+        double[] out = new double[t];
+        double sa = 0, sb = 0, sab = 0, sbb = 0;
+        for (int i = 0; i < t; i++) {
+            double a = returns[i], b = benchmark[i];
+            sa += a;
+            sb += b;
+            sab += a * b;
+            sbb += b * b;
+            if (i >= w) {
+                double a0 = returns[i - w], b0 = benchmark[i - w];
+                sa -= a0;
+                sb -= b0;
+                sab -= a0 * b0;
+                sbb -= b0 * b0;
+            }
+            if (i < w - 1) {
+                out[i] = Double.NaN;
+            } else {
+                double var = w * sbb - sb * sb;
+                out[i] = var > 0 ? (w * sab - sa * sb) / var : Double.NaN;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param close prices, oldest first
+     * @return the largest peak-to-trough decline and the current one
+     */
+    public static Drawdown drawdown(double[] close) {
+        if (close.length == 0) return new Drawdown(0, 0, 0, -1, 0);
+        double peakPrice = close[0], max = 0;
+        int peakAt = 0, peak = 0, trough = 0;
+        for (int i = 1; i < close.length; i++) {
+            double p = close[i];
+            if (p > peakPrice) {
+                peakPrice = p;
+                peakAt = i;
+            } else if (peakPrice > 0) {
+                double dd = (peakPrice - p) / peakPrice;
+                if (dd > max) {
+                    max = dd;
+                    peak = peakAt;
+                    trough = i;
+                }
+            }
+        }
+        int recovery = -1;
+        if (max > 0) {
+            for (int i = trough + 1; i < close.length; i++) {
+                if (close[i] >= close[peak]) {
+                    recovery = i;
+                    break;
+                }
+            }
+        }
+        double current = peakPrice > 0 ? (peakPrice - close[close.length - 1]) / peakPrice : 0;
+        return new Drawdown(max, peak, trough, recovery, current);
+    }
+
+    /** Runs a body for every row of a range, halving the range across the pool. */
+    private static final class RowTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        RowTask(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 4) {
+                for (int i = from; i < to; i++) body.accept(i);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(from, mid, body), new RowTask(mid, to, body));
+        }
+    }
+
+    /** Computes a range of upper-triangle tiles of {@code d * d^T}, mirrored into the lower triangle. */
+    private static final class TileTask extends RecursiveAction {
+        private final double[][] d;
+        private final double[][] cov;
+        private final int[] tiles;
+        private final int from;
+        private final int to;
+        private final int blocks;
+        private final double scale;
+
+        TileTask(double[][] d, double[][] cov, int[] tiles, int from, int to, int blocks, double scale) {
+            this.d = d;
+            this.cov = cov;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.blocks = blocks;
+            this.scale = scale;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > TILES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TileTask(d, cov, tiles, from, mid, blocks, scale),
+                        new TileTask(d, cov, tiles, mid, to, blocks, scale));
+                return;
+            }
+            for (int k = from; k < to; k++) {
+                int bi = tiles[k] / blocks, bj = tiles[k] % blocks;
+                tile(bi * TILE, Math.min(d.length, (bi + 1) * TILE), bj * TILE, Math.min(d.length, (bj + 1) * TILE));
+            }
+        }
+
+        private void tile(int i0, int i1, int j0, int j1) {
+            for (int i = i0; i < i1; i += 2) {
+                // on a diagonal tile only j >= i is needed
+                int jStart = i0 == j0 ? i : j0;
+                for (int j = jStart; j < j1; j += 2) {
+                    if (i + 1 < i1 && j + 1 < j1) {
+                        block(i, j);
+                    } else {
+                        for (int a = i; a < Math.min(i + 2, i1); a++) {
+                            for (int b = j; b < Math.min(j + 2, j1); b++) store(a, b, dot(d[a], d[b]));
+                        }
+                    }
+                }
+            }
+        }
+
+        // Rows i, i+1 against rows j, j+1: four dot products sharing their loads
+        private void block(int i, int j) {
+            double[] a0 = d[i], a1 = d[i + 1], b0 = d[j], b1 = d[j + 1];
+            double s00 = 0, s01 = 0, s10 = 0, s11 = 0;
+            for (int t = 0; t < a0.length; t++) {
+                double x0 = a0[t], x1 = a1[t], y0 = b0[t], y1 = b1[t];
+                s00 += x0 * y0;
+                s01 += x0 * y1;
+                s10 += x1 * y0;
+                s11 += x1 * y1;
+            }
+            store(i, j, s00);
+            store(i, j + 1, s01);
+            store(i + 1, j, s10);
+            store(i + 1, j + 1, s11);
+        }
+
+        private void store(int i, int j, double sum) {
+            double v = sum * scale;
+            cov[i][j] = v;
+            cov[j][i] = v;
+        }
+
+        private static double dot(double[] a, double[] b) {
+            double s0 = 0, s1 = 0;
+            int t = 0;
+            for (; t + 1 < a.length; t += 2) {
+                s0 += a[t] * b[t];
+                s1 += a[t + 1] * b[t + 1];
+            }
+            if (t < a.length) s0 += a[t] * b[t];
+            return s0 + s1;
+        }
+    }
+}
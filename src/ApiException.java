@@ -0,0 +1,41 @@
+import java.io.IOException;
+
+/**
+ * Signals that the data provider answered with a message instead of a time series.
+ * Alpha Vantage reports bad symbols, invalid keys and quota limits as a normal
+ * 200 response carrying an "Error Message", "Note" or "Information" field; this
+ * exception carries that text back to the caller.
+ *
+ * @author Atharva Usturge
+ */
+public class ApiException extends IOException {
+    private final String field;
+
+    /**
+     * @param field   the JSON field the message came from (e.g. "Note")
+     * @param message the provider's message text
+     */
+    public ApiException(String field, String message) {
+        super(message);
+        this.field = field;
+    }
+
+    /** @return the JSON field the message came from */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Tells whether the message is a rate-limit notice rather than a real error, so the
+     * request is worth retrying later. Alpha Vantage phrases these as "API call frequency"
+     * or "rate limit" notes.
+     *
+     * @return true if the provider throttled the request
+     */
+    public boolean isThrottled() {
+        String m = getMessage();
+        if (m == null) return false;
+        m = m.toLowerCase();
+        return m.contains("call frequency") || m.contains("rate limit") || m.contains("too many requests");
+    }
+}
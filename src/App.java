@@ -4,19 +4,20 @@
  */
 
 
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
 import javax.swing.JTextField;
 import javax.swing.JLabel;
 import javax.swing.SwingUtilities;
 import java.awt.BorderLayout;
+import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
 
 
 /**
@@ -33,10 +34,24 @@ public class App {
      * Initializes the GUI window with input controls and a chart display.
      * Sets up an action listener to fetch and display stock data when the user enters a symbol.
      * 
-     * @param args Command-line arguments (not used)
+     * With {@code --batch} or {@code --stub-server} as the first argument no window is
+     * created; the remaining arguments are handed to {@link BatchRunner#run(String[])} or
+     * {@link StubServer#run(String[])} instead.
+     * 
+     * @param args Command-line arguments: none for the GUI, {@code --batch ...} or {@code --stub-server ...}
      * @throws Exception If an error occurs during initialization
      */
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchRunner.run(java.util.Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("--stub-server")) {
+            int code = StubServer.run(java.util.Arrays.copyOfRange(args, 1, args.length));
+            // on success the server keeps the process alive
+            if (code != 0) System.exit(code);
+            return;
+        }
+
         JFrame frame = new JFrame();
         frame.setTitle("Stock Viewer");
         frame.setSize(1080,720);
@@ -62,177 +77,414 @@ public class App {
         JTextField textBox = new JTextField(20);
         inputPanel.add(textBox, BorderLayout.CENTER);
 
+        // Listed symbols: suggestions while typing, and unknown symbols never reach the provider
+        SymbolIndex index = null;
+        try {
+            index = SymbolIndex.fromConfig();
+        } catch (IOException ex) {
+            System.err.println("Warning: symbol list unavailable, symbols are not checked: " + ex.getMessage());
+        }
+        SymbolIndex listing = index;
+        if (listing != null) SymbolAutocomplete.install(textBox, listing);
+
         // Chart area
         ChartPanel chart = new ChartPanel();
         chart.setPreferredSize(new java.awt.Dimension(800, 400));
+        chart.setIndicators(new IndicatorEngine(Indicators.parseOverlays(Config.getIndicators())));
+        WatchlistPanel watchlist = new WatchlistPanel();
+
+        // Local bar store: cached symbols open from disk, the network only tops them up
+        SeriesStore store = null;
+        try {
+            store = SeriesStore.open();
+        } catch (IOException ex) {
+            System.err.println("Warning: local data store unavailable, every lookup will hit the network: " + ex.getMessage());
+        }
+        SeriesStore bars = store;
+
+        // Fetch jobs: user lookups run ahead of background refreshes and provider calls stay inside the rate limit
+        FetchScheduler scheduler = FetchScheduler.fromConfig();
+
+        // Parsed responses by request; concurrent lookups of the same request share one fetch
+        StockClient client = StockClient.fromConfig();
+        SeriesCache cache = SeriesCache.fromConfig(key -> scheduler.callWithRetry(
+                () -> client.fetchDaily(key.getSymbol(), key.getOutputSize(), 0).build()));
+
+        // Latency histograms and counters over JMX and on the chart's F3 overlay
+        Metrics.get().bind(cache, scheduler);
+        Metrics.get().register();
+        chart.setHudVisible(Boolean.parseBoolean(Config.get("STOCK_HUD", "stock.hud", "false")));
+
+        // Symbol the user asked for most recently; late results for older lookups are not plotted
+        java.util.concurrent.atomic.AtomicReference<String> current = new java.util.concurrent.atomic.AtomicReference<>();
+
+        // Chart controls: timeframe, bar style and volume pane
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 6, 0));
+        inputPanel.add(controls, BorderLayout.EAST);
+        JComboBox<Timeframe> timeframeBox = new JComboBox<>(new Timeframe[] {
+                Timeframe.NATIVE, Timeframe.minutes(5), Timeframe.minutes(15), Timeframe.minutes(30), Timeframe.minutes(60),
+                Timeframe.DAILY, Timeframe.WEEKLY, Timeframe.MONTHLY, Timeframe.QUARTERLY });
+        timeframeBox.setToolTipText("Resample the bars; applies to history, not to live bars");
+        JComboBox<ChartPanel.Style> styleBox = new JComboBox<>(ChartPanel.Style.values());
+        JCheckBox volumeBox = new JCheckBox("Volume");
+        controls.add(timeframeBox);
+        controls.add(styleBox);
+        controls.add(volumeBox);
+        styleBox.addActionListener(e -> chart.setStyle((ChartPanel.Style) styleBox.getSelectedItem()));
+        volumeBox.addActionListener(e -> chart.setVolumeVisible(volumeBox.isSelected()));
+
+        // Resampled series per (symbol, timeframe): switching timeframe never fetches again
+        ResampleCache resampled = ResampleCache.fromConfig();
+        java.util.function.BiConsumer<String, TimeSeries> show = (symbol, series) ->
+                chart.setSeries(resampled.get(symbol, series, (Timeframe) timeframeBox.getSelectedItem()));
+
+        // Live intraday mode: while ticked, the entered symbol is streamed instead of looked up
+        LivePoller poller = LivePoller.fromConfig(client, scheduler, chart);
+        JCheckBox liveBox = new JCheckBox("Live");
+        liveBox.setToolTipText("Stream intraday bars for the symbol");
+        controls.add(liveBox);
+        timeframeBox.addActionListener(e -> {
+            String symbol = current.get();
+            TimeSeries series = symbol == null || poller.isRunning() ? null
+                    : resampled.get(symbol, (Timeframe) timeframeBox.getSelectedItem());
+            if (series != null) chart.setSeries(series);
+        });
+        liveBox.addActionListener(e -> {
+            String symbol = textBox.getText().trim().toUpperCase();
+            if (!liveBox.isSelected()) {
+                poller.stop();
+            } else if (symbol.isEmpty() || apiKey == null || apiKey.isEmpty()) {
+                System.out.println(symbol.isEmpty() ? "Please enter a stock symbol." : "No API key configured. Set `STOCK_API_KEY` or edit `config.properties`.");
+                liveBox.setSelected(false);
+            } else if (!isListed(listing, symbol)) {
+                liveBox.setSelected(false);
+            } else {
+                current.set(symbol);
+                poller.start(symbol);
+            }
+        });
 
         // Key Press to get Stock Symbol and call API.
         textBox.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                String stockSymbol = textBox.getText().trim();
+                String stockSymbol = textBox.getText().trim().toUpperCase();
                 if (stockSymbol.isEmpty()) {
                     System.out.println("Please enter a stock symbol.");
                     return;
                 }
-
-                if (apiKey == null || apiKey.isEmpty()) {
-                    System.err.println("No API key configured. Set `STOCK_API_KEY` or edit `config.properties`.");
+                if (!isListed(listing, stockSymbol)) return;
+                current.set(stockSymbol);
+                if (liveBox.isSelected()) {
+                    poller.start(stockSymbol);
                     return;
                 }
-                // Disable input while fetching
-                textBox.setEnabled(false);
-                System.out.println("Fetching data for '" + stockSymbol + "'...");
-
-                // Fetch in background thread 
-                new Thread(() -> {
-                    String response = fetchTimeSeries(stockSymbol, apiKey);
-                    java.util.List<String> labels = new java.util.ArrayList<>();
-                    java.util.List<Double> values = new java.util.ArrayList<>();
+
+                // Input stays enabled: a new symbol supersedes (cancels) the lookup still in progress
+                scheduler.submit(FetchScheduler.Priority.USER, "lookup", () -> {
+                    // 1) Open straight from disk if we have the symbol
+                    TimeSeries cached = null;
+                    if (bars != null) {
+                        try {
+                            cached = bars.load(stockSymbol);
+                        } catch (IOException ex) {
+                            System.err.println("Ignoring unreadable local data for " + stockSymbol + ": " + ex.getMessage());
+                        }
+                    }
+                    boolean hadCache = cached != null && !cached.isEmpty();
+                    if (hadCache) {
+                        TimeSeries fromDisk = cached;
+                        SwingUtilities.invokeLater(() -> {
+                            if (stockSymbol.equals(current.get())) {
+                                show.accept(stockSymbol, fromDisk);
+                                System.out.println("Plotted " + fromDisk.size() + " stored data points for " + stockSymbol);
+                            }
+                        });
+                    }
+
+                    // 2) Only go to the network when the stored copy is missing or stale
+                    boolean stale = true;
                     try {
-                        // Parse the response into (date,label) pairs. The parser is lightweight
-                        // and looks for the Alpha Vantage "Time Series (Daily)" block and
-                        // extracts the "4. close" fields. 200 points max for performance.
-                        parseTimeSeries(response, labels, values, 200);
-                    } catch (Exception ex) {
-                        // ignore parse errors and fall back to raw display
+                        stale = bars == null || !hadCache || bars.isStale(stockSymbol);
+                    } catch (IOException ex) {
+                        // treat as stale
+                    }
+                    if (!stale) return null;
+                    if (apiKey == null || apiKey.isEmpty()) {
+                        System.err.println("No API key configured. Set `STOCK_API_KEY` or edit `config.properties`.");
+                        return null;
                     }
 
-                    SwingUtilities.invokeLater(() -> {
-                        if (!values.isEmpty()) {
-                            // parsed newest->oldest, reverse to oldest first
-                            java.util.Collections.reverse(values);
-                            java.util.Collections.reverse(labels);
-                            chart.setSeries(labels, values);
-                            System.out.println("Plotted " + values.size() + " data points for " + stockSymbol);
-                        } else {
-                            System.err.println("Failed to parse data. Response: " + response);
-                        }
-                        textBox.setEnabled(true);
-                    });
-                }).start();
+                    TimeSeries stored = cached;
+                    if (hadCache) {
+                        // The user already sees stored bars, so topping them up can queue behind other lookups
+                        scheduler.submit(FetchScheduler.Priority.BACKGROUND, "refresh:" + stockSymbol, () -> {
+                            refreshAndShow(bars, cache, stockSymbol, stored, show, watchlist, current);
+                            return null;
+                        });
+                    } else {
+                        refreshAndShow(bars, cache, stockSymbol, stored, show, watchlist, current);
+                    }
+                    return null;
+                });
+            }
+        });
+
+        // Watchlist: one sparkline tile per symbol; clicking a tile opens it in the chart
+        java.util.List<String> watched = parseSymbols(Config.getWatchlist());
+        watchlist.setSymbols(watched);
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Chart", chart);
+        tabs.addTab("Watchlist", new JScrollPane(watchlist));
+        java.util.function.Consumer<String> openSymbol = symbol -> {
+            tabs.setSelectedIndex(0);
+            textBox.setText(symbol);
+            textBox.postActionEvent();
+        };
+        watchlist.setTileListener(openSymbol);
+
+        // Correlation heatmap of the watchlist and the benchmark, recomputed whenever the tab is opened
+        HeatmapPanel heatmap = new HeatmapPanel();
+        heatmap.setCellListener(openSymbol);
+        tabs.addTab("Correlation", heatmap);
+        String benchmark = Config.get("STOCK_ANALYTICS_BENCHMARK", "stock.analytics.benchmark", "SPY").trim().toUpperCase(java.util.Locale.ROOT);
+        tabs.addChangeListener(e -> {
+            if (tabs.getSelectedComponent() == heatmap) {
+                refreshAnalytics(bars, cache, scheduler, heatmap, watched, benchmark, apiKey != null && !apiKey.isEmpty());
             }
         });
 
-        // Add the input panel and chart to the frame
+        // Stored bars show up at once; stale symbols are refreshed in the background, now and periodically
+        int refreshSeconds = Math.max(60, Config.getInt("STOCK_WATCHLIST_REFRESH_SECONDS", "stock.watchlist.refresh.seconds", 300));
+        java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "watchlist-refresh");
+            t.setDaemon(true);
+            return t;
+        }).scheduleWithFixedDelay(() -> refreshWatchlist(bars, cache, scheduler, watchlist, watched, apiKey != null && !apiKey.isEmpty()),
+                0, refreshSeconds, java.util.concurrent.TimeUnit.SECONDS);
+
+        // Add the input panel and the tabs to the frame
         frame.add(inputPanel, BorderLayout.NORTH);
-        frame.add(chart, BorderLayout.CENTER);
+        frame.add(tabs, BorderLayout.CENTER);
 
         frame.setVisible(true);
     }
 
     /**
-     * Fetches stock time series data from the Alpha Vantage API.
-     * Retrieves daily stock prices for a given symbol using the TIME_SERIES_DAILY function.
-     * The response includes up to 100 data points in compact format.
-     * 
-     * @param symbol The stock symbol to fetch data for (e.g., "AAPL", "GOOGL")
-     * @param apiKey The Alpha Vantage API key for authentication
-     * @return The raw JSON response from the API, or an error message if the request fails
+     * Refreshes a symbol from the provider and plots the result if the user is still
+     * looking at that symbol. Errors are reported on stderr; a cancelled (superseded)
+     * request is dropped silently.
+     *
+     * @param store   the local store, or null
+     * @param cache   the response cache
+     * @param symbol  the stock symbol
+     * @param cached  the stored series already on screen, or null
+     * @param show      plots a symbol's series on the chart (on the EDT)
+     * @param watchlist the watchlist, whose tile for the symbol (if any) is updated too
+     * @param current   the symbol the user asked for most recently
      */
-    private static String fetchTimeSeries(String symbol, String apiKey) {
+    private static void refreshAndShow(SeriesStore store, SeriesCache cache, String symbol, TimeSeries cached,
+                                       java.util.function.BiConsumer<String, TimeSeries> show, WatchlistPanel watchlist,
+                                       java.util.concurrent.atomic.AtomicReference<String> current) {
+        System.out.println("Fetching data for '" + symbol + "'...");
+        TimeSeries series = TimeSeries.EMPTY;
+        String error = null;
         try {
-            String urlStr = "https://www.alphavantage.co/query?function=TIME_SERIES_DAILY&symbol=" + URLEncoder.encode(symbol, "UTF-8") + "&outputsize=compact&apikey=" + URLEncoder.encode(apiKey, "UTF-8");
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(10000);
-            conn.setReadTimeout(10000);
-
-            int status = conn.getResponseCode();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(status >= 200 && status < 400 ? conn.getInputStream() : conn.getErrorStream(), "UTF-8"));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line).append('\n');
-            }
-            reader.close();
-            return sb.toString();
+            series = refresh(store, cache, symbol, cached);
+        } catch (java.io.InterruptedIOException ex) {
+            return;
         } catch (Exception ex) {
-            return "Error fetching data: " + ex.getMessage();
+            error = ex.getMessage();
         }
+        TimeSeries fetched = series;
+        String failure = error;
+        boolean hadCache = cached != null && !cached.isEmpty();
+
+        if (!fetched.isEmpty()) watchlist.update(symbol, fetched);
+
+        SwingUtilities.invokeLater(() -> {
+            if (!fetched.isEmpty()) {
+                if (symbol.equals(current.get())) {
+                    show.accept(symbol, fetched);
+                    System.out.println("Plotted " + fetched.size() + " data points for " + symbol);
+                }
+            } else if (hadCache) {
+                System.err.println("Refresh failed for " + symbol + ", showing stored data" + (failure != null ? ": " + failure : "."));
+            } else {
+                System.err.println("Failed to parse data" + (failure != null ? ": " + failure : "."));
+            }
+        });
     }
 
     /**
-     * Parses the JSON response from Alpha Vantage API and extracts time series data.
-     * Searches for the "Time Series (Daily)" or similar block in the response and extracts
-     * date labels and closing prices. The results are added to the provided lists.
-     * 
-     * @param response The raw JSON response string from the API
-     * @param labels A list to be populated with date strings (format: YYYY-MM-DD)
-     * @param values A list to be populated with corresponding closing prices as doubles
-     * @param maxPoints The maximum number of data points to extract
+     * Queues a background job per watchlist symbol that shows its stored bars and, if
+     * they are stale, refreshes them from the provider. A symbol whose previous job is
+     * still queued gets the new job instead, so repeated calls do not pile up.
+     *
+     * @param store     the local store, or null
+     * @param cache     the response cache
+     * @param scheduler the fetch scheduler
+     * @param watchlist the watchlist to update
+     * @param symbols   the watchlist symbols
+     * @param hasApiKey whether provider calls can be made
      */
-    private static void parseTimeSeries(String response, java.util.List<String> labels, java.util.List<Double> values, int maxPoints) {
-        if (response == null || response.isEmpty()) return;
-        String marker = "\"Time Series (Daily)\"";
-        int idx = response.indexOf(marker);
-        if (idx == -1) {
-            // try common intraday marker
-            marker = "\"Time Series (60min)\"";
-            idx = response.indexOf(marker);
-        }
-        if (idx == -1) {
-            // try generic "Time Series"
-            marker = "\"Time Series";
-            idx = response.indexOf(marker);
+    private static void refreshWatchlist(SeriesStore store, SeriesCache cache, FetchScheduler scheduler,
+                                         WatchlistPanel watchlist, java.util.List<String> symbols, boolean hasApiKey) {
+        for (String symbol : symbols) {
+            scheduler.submit(FetchScheduler.Priority.BACKGROUND, "watch:" + symbol, () -> {
+                TimeSeries cached = null;
+                try {
+                    if (store != null) cached = store.load(symbol);
+                    if (cached != null && !cached.isEmpty()) watchlist.update(symbol, cached);
+                    boolean stale = store == null || cached == null || cached.isEmpty() || store.isStale(symbol);
+                    if (stale && hasApiKey) watchlist.update(symbol, refresh(store, cache, symbol, cached));
+                } catch (java.io.InterruptedIOException ex) {
+                    // superseded
+                } catch (IOException ex) {
+                    System.err.println("Watchlist refresh failed for " + symbol + ": " + ex.getMessage());
+                }
+                return null;
+            });
         }
-        if (idx == -1) return;
+    }
 
-        java.io.BufferedReader rdr = new java.io.BufferedReader(new java.io.StringReader(response));
-        String line;
-        boolean inSeries = false;
-        int count = 0;
-        try {
-            while ((line = rdr.readLine()) != null) {
-                line = line.trim();
-                if (!inSeries) {
-                    if (line.startsWith(marker)) {
-                        inSeries = true;
+    /**
+     * Queues a background job that correlates the watchlist symbols and the benchmark
+     * over their most recent bars and shows the result in the heatmap. Stored symbols are
+     * read from the store's compressed blocks, decoding only the blocks of the lookback
+     * window; a symbol without stored bars is fetched if provider calls can be made.
+     * Settings: `stock.analytics.bars` (bars looked back, default 1260, about five years
+     * of trading days) and `stock.analytics.beta.window` (returns per rolling beta
+     * window, default 63), or the matching `STOCK_*` environment variables.
+     *
+     * @param store     the local store, or null
+     * @param cache     the response cache
+     * @param scheduler the fetch scheduler
+     * @param heatmap   the heatmap to update
+     * @param symbols   the watchlist symbols
+     * @param benchmark the symbol betas are measured against
+     * @param hasApiKey whether provider calls can be made
+     */
+    private static void refreshAnalytics(SeriesStore store, SeriesCache cache, FetchScheduler scheduler, HeatmapPanel heatmap,
+                                         java.util.List<String> symbols, String benchmark, boolean hasApiKey) {
+        int lookback = Math.max(2, Config.getInt("STOCK_ANALYTICS_BARS", "stock.analytics.bars", 1260));
+        int window = Math.max(2, Config.getInt("STOCK_ANALYTICS_BETA_WINDOW", "stock.analytics.beta.window", 63));
+        java.util.List<String> names = new java.util.ArrayList<>(symbols);
+        if (!benchmark.isEmpty() && !names.contains(benchmark)) names.add(benchmark);
+        heatmap.setMessage("Loading " + names.size() + " symbols...");
+        scheduler.submit(FetchScheduler.Priority.BACKGROUND, "analytics", () -> {
+            java.util.List<TimeSeries> series = new java.util.ArrayList<>(names.size());
+            for (String symbol : names) {
+                TimeSeries s = null;
+                try {
+                    CompressedSeries stored = store == null ? null : store.loadCompressed(symbol);
+                    if (stored != null && stored.size() > 0) {
+                        s = stored.decode(stored.size() - lookback, stored.size());
+                    } else if (hasApiKey) {
+                        s = refresh(store, cache, symbol, null).tail(lookback);
                     }
-                    continue;
+                } catch (java.io.InterruptedIOException ex) {
+                    return null;
+                } catch (IOException ex) {
+                    System.err.println("Analytics skipped " + symbol + ": " + ex.getMessage());
+                }
+                series.add(s);
+            }
+            long start = System.nanoTime();
+            Analytics.Report report = Analytics.analyze(names, series, benchmark, window);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            SwingUtilities.invokeLater(() -> {
+                if (report.getMatrix().getSymbols().length < 2 || report.getMatrix().getObservations() < 2) {
+                    heatmap.setReport(null, benchmark, millis);
+                    heatmap.setMessage("Not enough overlapping history to correlate.");
+                } else {
+                    heatmap.setReport(report, benchmark, millis);
                 }
+            });
+            return null;
+        });
+    }
 
-                // end of series
-                if (line.equals("}") || line.startsWith("}\"")) break;
-
-                if (line.startsWith("\"")) {
-                    // Candidate quoted key. Only treat it as a DATE key when it begins
-                    // with a 4-digit year (e.g. "2025-12-19": { ). This avoids
-                    // accidentally interpreting lines like "1. open" or "5. volume" as dates.
-                    int endQuote = line.indexOf('"', 1);
-                    if (endQuote == -1) continue;
-                    String key = line.substring(1, endQuote);
-                    // simple date check: starts with 4 digits (year)
-                    if (key.length() < 4 || !Character.isDigit(key.charAt(0)) || !Character.isDigit(key.charAt(1)) || !Character.isDigit(key.charAt(2)) || !Character.isDigit(key.charAt(3))) {
-                        continue; // not a date key
-                    }
-                    String date = key;
+    /**
+     * Checks a symbol against the symbol list before anything is fetched, suggesting the
+     * closest listed symbol on stdout when it is unknown. Symbols with an exchange suffix
+     * (e.g. {@code TSCO.LON}) are outside the list and left for the provider to answer.
+     *
+     * @param listing the symbol list, or null to accept every symbol
+     * @param symbol  the symbol entered
+     * @return true if the symbol may be looked up
+     */
+    private static boolean isListed(SymbolIndex listing, String symbol) {
+        if (listing == null || !SymbolIndex.covers(symbol) || listing.contains(symbol)) return true;
+        java.util.List<SymbolIndex.Entry> near = listing.complete(symbol, 1);
+        System.out.println("Unknown symbol '" + symbol + "'" + (near.isEmpty() ? "." : ", did you mean " + near.get(0).getSymbol() + "?"));
+        return false;
+    }
 
-                    // read until we find "4. close"
-                    String closeLine = rdr.readLine();
-                    while (closeLine != null && !closeLine.trim().startsWith("\"4. close\"")) {
-                        closeLine = rdr.readLine();
-                    }
-                    if (closeLine != null) {
-                        String[] parts = closeLine.split(":");
-                        if (parts.length >= 2) {
-                            String val = parts[1].replaceAll("[\",]", "").trim();
-                            try {
-                                double d = Double.parseDouble(val);
-                                labels.add(date);
-                                values.add(d);
-                                count++;
-                                if (count >= maxPoints) break;
-                            } catch (NumberFormatException nfe) {
-                                // ignore
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (java.io.IOException ioe) {
-            // shouldn't happen on StringReader
+    /**
+     * Splits a symbol list on commas and whitespace.
+     *
+     * @param list e.g. "AAPL, MSFT IBM"
+     * @return the upper-cased symbols in order
+     */
+    static java.util.List<String> parseSymbols(String list) {
+        java.util.List<String> symbols = new java.util.ArrayList<>();
+        for (String token : list.split("[,\\s]+")) {
+            if (!token.isEmpty()) symbols.add(token.toUpperCase(java.util.Locale.ROOT));
         }
+        return symbols;
+    }
+
+    /**
+     * Brings a symbol's history up to date and returns it.
+     * With no stored copy the configured outputsize is fetched and stored. Otherwise only
+     * the compact window (latest 100 bars) is fetched and merged into the store; the full
+     * history is re-downloaded only if the stored copy is so old that the compact window
+     * would leave a gap.
+     *
+     * @param store  the local store, or null to fetch without persisting
+     * @param cache  the response cache the provider is reached through
+     * @param symbol the stock symbol
+     * @param cached the currently stored series, or null if none
+     * @return the up-to-date series, oldest first
+     * @throws IOException if fetching or storing fails
+     */
+    private static TimeSeries refresh(SeriesStore store, SeriesCache cache, String symbol, TimeSeries cached) throws IOException {
+        if (store == null) {
+            return fetchCached(cache, symbol, Config.getOutputSize());
+        }
+        if (cached == null || cached.isEmpty()) {
+            TimeSeries fresh = fetchCached(cache, symbol, Config.getOutputSize());
+            if (!fresh.isEmpty()) store.replace(symbol, fresh);
+            return fresh;
+        }
+        TimeSeries window = fetchCached(cache, symbol, "compact");
+        if (window.isEmpty()) return window;
+        if (!SeriesStore.overlaps(cached, window)) {
+            // Stored copy is older than the compact window: refill the whole history once
+            TimeSeries full = fetchCached(cache, symbol, "full");
+            store.replace(symbol, full);
+            return full;
+        }
+        int added = store.merge(symbol, window);
+        System.out.println("Merged " + added + " new bars for " + symbol);
+        return store.load(symbol);
+    }
+
+    /**
+     * Fetches a daily series through the response cache. The load runs on the calling
+     * thread; a concurrent caller asking for the same request waits for that load
+     * instead of sending its own, unless it is a user lookup and the load belongs to a
+     * background refresh. Cancelling the caller that runs the load does not fail the
+     * callers waiting for it.
+     *
+     * @param cache      the response cache
+     * @param symbol     the stock symbol
+     * @param outputSize "compact" or "full"
+     * @return the series, oldest first
+     * @throws IOException if the fetch fails
+     */
+    private static TimeSeries fetchCached(SeriesCache cache, String symbol, String outputSize) throws IOException {
+        return cache.get(FetchKey.daily(symbol, outputSize), FetchScheduler.isUrgent());
     }
 }
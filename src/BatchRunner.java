@@ -0,0 +1,564 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Headless batch mode: fetches, parses and exports the daily history of many symbols
+ * without touching Swing.
+ *
+ * Symbols flow through a three-stage pipeline connected by bounded queues, so a fast
+ * stage cannot run ahead of a slow one and memory stays flat:
+ * <ol>
+ *   <li><b>fetch</b> - a few I/O threads download raw response bodies. Every call goes
+ *       through the shared {@link RateLimiter} with throttle retries, so the whole batch
+ *       stays inside the API rate limit. Symbols whose stored copy is still fresh are
+ *       served from the {@link SeriesStore} without a request.</li>
+ *   <li><b>parse</b> - one thread per core turns bodies into {@link TimeSeries} and
+ *       merges them into the store. A compact window that no longer reaches the stored
+ *       copy goes back to the fetch stage for the full history.</li>
+ *   <li><b>write</b> - a single thread appends each series to the output file through a
+ *       direct buffer and a {@link FileChannel}.</li>
+ * </ol>
+ *
+ * Output is UTF-8 CSV ({@code symbol,date,open,high,low,close,volume}, one row per bar) or a
+ * compact big-endian columnar file: the header {@code int magic 'SVBC', int version},
+ * then one block per symbol: {@code short symbolLength, symbol bytes (UTF-8),
+ * byte flags (bit 0 = intraday), int barCount}, followed by the time column
+ * (epoch seconds, longs) and the open, high, low, close and volume columns (doubles).
+ * Blocks appear in completion order.
+ *
+ * @author Atharva Usturge
+ */
+public class BatchRunner {
+    /** Output file format. */
+    public enum Format { CSV, BINARY }
+
+    private static final int BINARY_MAGIC = 0x53564243; // "SVBC"
+    private static final int BINARY_VERSION = 1;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final long PROGRESS_INTERVAL_MILLIS = 10_000;
+
+    /** One symbol on its way through the pipeline. */
+    private static final class Item {
+        final String symbol;
+        TimeSeries stored;
+        byte[] body;
+        TimeSeries series;
+        // Set when the compact window left a gap after the stored copy
+        boolean full;
+
+        Item(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    // End-of-stream marker, one per consumer thread
+    private static final Item END = new Item(null);
+
+    /** Counters for one pipeline stage. */
+    private static final class Stage {
+        final String name;
+        final LongAdder items = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+        volatile long firstNanos;
+        volatile long lastNanos;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void record(long startNanos, long byteCount) {
+            long now = System.nanoTime();
+            items.increment();
+            bytes.add(byteCount);
+            busyNanos.add(now - startNanos);
+            if (firstNanos == 0) firstNanos = startNanos;
+            lastNanos = now;
+        }
+
+        String report(int threads) {
+            double wall = Math.max(1, lastNanos - firstNanos) / 1e9;
+            double busy = busyNanos.sum() / 1e9;
+            double mb = bytes.sum() / 1e6;
+            long n = items.sum();
+            return String.format(Locale.ROOT,
+                    "%-6s %6d items %9.2f MB | wall %8.2fs: %8.1f items/s %8.2f MB/s | busy %8.2fs on %d thread(s)",
+                    name, n, mb, wall, n / wall, mb / wall, busy, threads);
+        }
+    }
+
+    private final StockClient client;
+    private final FetchScheduler scheduler;
+    private final SeriesStore store;
+    private final String outputSize;
+    private final Format format;
+    private final Path out;
+    private final int fetchThreads;
+    private final int parseThreads;
+
+    private final Stage fetchStage = new Stage("fetch");
+    private final Stage parseStage = new Stage("parse");
+    private final Stage writeStage = new Stage("write");
+    private final AtomicInteger fromStore = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    // Symbols that may still come back to the fetch stage
+    private final AtomicInteger unresolved = new AtomicInteger();
+
+    /**
+     * @param client       the provider client
+     * @param scheduler    provides the rate-limited, retrying call path
+     * @param store        the local store, or null to always fetch and not persist
+     * @param outputSize   "compact" or "full"
+     * @param format       the output format
+     * @param out          the output file; replaced if it exists
+     * @param fetchThreads concurrent downloads (the rate limiter still paces them)
+     * @param parseThreads parser threads, normally the number of cores
+     */
+    public BatchRunner(StockClient client, FetchScheduler scheduler, SeriesStore store, String outputSize,
+                       Format format, Path out, int fetchThreads, int parseThreads) {
+        this.client = client;
+        this.scheduler = scheduler;
+        this.store = store;
+        this.outputSize = outputSize;
+        this.format = format;
+        this.out = out;
+        this.fetchThreads = Math.max(1, fetchThreads);
+        this.parseThreads = Math.max(1, parseThreads);
+    }
+
+    /**
+     * Command-line entry point, reached through {@code App --batch}.
+     * <pre>
+     * --batch &lt;symbols-file&gt; [--out FILE] [--format csv|bin] [--outputsize compact|full]
+     *         [--fetch-threads N] [--parse-threads N]
+     * </pre>
+     * The symbols file lists one symbol per line (commas also separate); blank lines and
+     * lines starting with '#' are ignored. The format defaults to CSV when the output
+     * file ends in ".csv" and to binary otherwise.
+     *
+     * @param args the arguments after {@code --batch}
+     * @return the process exit code: 0 on success, 1 on a usage or fatal error, 2 if
+     *         some symbols failed
+     */
+    public static int run(String[] args) {
+        Path symbolsFile = null;
+        Path outFile = Paths.get("batch.csv");
+        Format format = null;
+        String outputSize = Config.getOutputSize();
+        int fetchThreads = Config.getInt("STOCK_FETCH_CONCURRENCY", "stock.fetch.concurrency", 4);
+        int parseThreads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                switch (a) {
+                    case "--out": outFile = Paths.get(args[++i]); break;
+                    case "--format": format = parseFormat(args[++i]); break;
+                    case "--outputsize": outputSize = args[++i].equalsIgnoreCase("full") ? "full" : "compact"; break;
+                    case "--fetch-threads": fetchThreads = Integer.parseInt(args[++i]); break;
+                    case "--parse-threads": parseThreads = Integer.parseInt(args[++i]); break;
+                    default:
+                        if (a.startsWith("--") || symbolsFile != null) throw new IllegalArgumentException("unexpected argument '" + a + "'");
+                        symbolsFile = Paths.get(a);
+                }
+            }
+            if (symbolsFile == null) throw new IllegalArgumentException("missing symbols file");
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException ex) {
+            String msg = ex instanceof ArrayIndexOutOfBoundsException ? "missing option value" : ex.getMessage();
+            System.err.println("Error: " + msg);
+            System.err.println("Usage: App --batch <symbols-file> [--out FILE] [--format csv|bin] [--outputsize compact|full] [--fetch-threads N] [--parse-threads N]");
+            return 1;
+        }
+        if (format == null) {
+            format = outFile.toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? Format.CSV : Format.BINARY;
+        }
+
+        List<String> symbols;
+        try {
+            symbols = readSymbols(symbolsFile);
+        } catch (IOException ex) {
+            System.err.println("Error: cannot read " + symbolsFile + ": " + ex.getMessage());
+            return 1;
+        }
+
+        SeriesStore store = null;
+        try {
+            store = SeriesStore.open();
+        } catch (IOException ex) {
+            System.err.println("Warning: local data store unavailable, every symbol will be fetched: " + ex.getMessage());
+        }
+        StockClient client = StockClient.fromConfig();
+        if (!client.hasApiKey()) {
+            System.err.println("Warning: no API key configured; only symbols with fresh stored data can be exported.");
+        }
+
+        FetchScheduler scheduler = FetchScheduler.fromConfig();
+        Metrics.get().bind(null, scheduler);
+        Metrics.get().register();
+        try {
+            BatchRunner runner = new BatchRunner(client, scheduler, store, outputSize, format, outFile,
+                    fetchThreads, parseThreads);
+            return runner.process(symbols) == 0 ? 0 : 2;
+        } catch (IOException ex) {
+            System.err.println("Error: " + ex.getMessage());
+            return 1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 1;
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static Format parseFormat(String s) {
+        switch (s.toLowerCase(Locale.ROOT)) {
+            case "csv": return Format.CSV;
+            case "bin": case "binary": return Format.BINARY;
+            default: throw new IllegalArgumentException("unknown format '" + s + "'");
+        }
+    }
+
+    /**
+     * Reads a symbol list, uppercased and de-duplicated in file order.
+     *
+     * @param file the list
+     * @return the symbols
+     * @throws IOException if the file cannot be read
+     */
+    static List<String> readSymbols(Path file) throws IOException {
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            for (String s : line.split(",")) {
+                s = s.trim().toUpperCase(Locale.ROOT);
+                if (!s.isEmpty()) symbols.add(s);
+            }
+        }
+        return new ArrayList<>(symbols);
+    }
+
+    /**
+     * Runs every symbol through the pipeline and writes the output file. Per-symbol
+     * failures are reported on stderr and do not stop the batch.
+     *
+     * @param symbols the symbols to export
+     * @return the number of symbols that failed
+     * @throws IOException          if the output file cannot be written
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public int process(List<String> symbols) throws IOException, InterruptedException {
+        BlockingQueue<Item> pending = new ArrayBlockingQueue<>(Math.max(1, symbols.size()) + fetchThreads);
+        BlockingQueue<Item> fetched = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Item> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        for (String s : symbols) pending.add(new Item(s));
+        // The fetch threads get their end markers once no symbol can be sent back to them
+        unresolved.set(symbols.size());
+        if (symbols.isEmpty()) resolved(pending);
+
+        System.out.println("Batch: " + symbols.size() + " symbols -> " + out + " (" + format + ", " + outputSize
+                + "), " + fetchThreads + " fetch / " + parseThreads + " parse threads");
+        long start = System.nanoTime();
+
+        AtomicInteger fetchersLeft = new AtomicInteger(fetchThreads);
+        AtomicInteger parsersLeft = new AtomicInteger(parseThreads);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < fetchThreads; i++) {
+            threads.add(startThread("batch-fetch-" + i, () -> {
+                fetchLoop(pending, fetched);
+                if (fetchersLeft.decrementAndGet() == 0) {
+                    for (int k = 0; k < parseThreads; k++) putQuietly(fetched, END);
+                }
+            }));
+        }
+        for (int i = 0; i < parseThreads; i++) {
+            threads.add(startThread("batch-parse-" + i, () -> {
+                parseLoop(fetched, parsed, pending);
+                if (parsersLeft.decrementAndGet() == 0) putQuietly(parsed, END);
+            }));
+        }
+
+        Thread progress = startThread("batch-progress", () -> {
+            try {
+                while (true) {
+                    Thread.sleep(PROGRESS_INTERVAL_MILLIS);
+                    System.out.println("  fetched " + fetchStage.items.sum() + "/" + symbols.size()
+                            + ", parsed " + parseStage.items.sum() + ", written " + writeStage.items.sum()
+                            + ", failed " + failed.get());
+                }
+            } catch (InterruptedException ex) {
+                // batch finished
+            }
+        });
+
+        try {
+            // The writer runs on the calling thread
+            writeLoop(parsed);
+        } finally {
+            progress.interrupt();
+            for (Thread t : threads) t.interrupt();
+        }
+        for (Thread t : threads) t.join();
+
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "Batch done in %.2fs: %d written, %d from store, %d failed",
+                secs, writeStage.items.sum(), fromStore.get(), failed.get()));
+        System.out.println("  " + fetchStage.report(fetchThreads));
+        System.out.println("  " + parseStage.report(parseThreads));
+        System.out.println("  " + writeStage.report(1));
+        if (Metrics.get().getRequests() > 0) System.out.println("  http " + Metrics.get().getHttpLatency());
+        return failed.get();
+    }
+
+    private static Thread startThread(String name, Runnable body) {
+        Thread t = new Thread(body, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static void putQuietly(BlockingQueue<Item> q, Item item) {
+        try {
+            q.put(item);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Counts a symbol out of the pipeline; after the last one the fetch threads are stopped. */
+    private void resolved(BlockingQueue<Item> pending) {
+        if (unresolved.decrementAndGet() <= 0) {
+            for (int i = 0; i < fetchThreads; i++) putQuietly(pending, END);
+        }
+    }
+
+    private void fetchLoop(BlockingQueue<Item> in, BlockingQueue<Item> out) {
+        try {
+            Item item;
+            while ((item = in.take()) != END) {
+                long t0 = System.nanoTime();
+                try {
+                    if (fetch(item)) {
+                        fetchStage.record(t0, item.body != null ? item.body.length : 0);
+                        out.put(item);
+                    } else {
+                        resolved(in);
+                    }
+                } catch (IOException ex) {
+                    // Only a shutdown interrupts the thread; any other failure is the symbol's
+                    if (Thread.currentThread().isInterrupted()) return;
+                    fail(item.symbol, "fetch", ex);
+                    resolved(in);
+                }
+            }
+        } catch (InterruptedException ex) {
+            // pipeline shut down
+        }
+    }
+
+    /**
+     * Fills in the stored copy and either the fresh stored series or the downloaded body;
+     * for an item sent back by the parse stage, the body of the full history.
+     *
+     * @return false if the symbol cannot be served (no key and no stored copy)
+     */
+    private boolean fetch(Item item) throws IOException {
+        if (item.full) {
+            item.body = scheduler.callWithRetry(() -> client.fetchDailyBody(item.symbol, "full"));
+            return true;
+        }
+        if (store != null) {
+            try {
+                item.stored = store.load(item.symbol);
+                if (item.stored != null && !item.stored.isEmpty() && !store.isStale(item.symbol)) {
+                    item.series = item.stored;
+                    fromStore.incrementAndGet();
+                    return true;
+                }
+            } catch (IOException ex) {
+                System.err.println("Ignoring unreadable local data for " + item.symbol + ": " + ex.getMessage());
+                item.stored = null;
+            }
+        }
+        if (!client.hasApiKey()) {
+            if (item.stored != null && !item.stored.isEmpty()) {
+                // stale, but better than nothing
+                item.series = item.stored;
+                fromStore.incrementAndGet();
+                return true;
+            }
+            fail(item.symbol, "fetch", new IOException("no API key and no stored data"));
+            return false;
+        }
+        // Compact is enough to top up a stored copy; the parse stage falls back to full on a gap
+        String size = item.stored != null && !item.stored.isEmpty() ? "compact" : outputSize;
+        item.body = scheduler.callWithRetry(() -> client.fetchDailyBody(item.symbol, size));
+        return true;
+    }
+
+    private void parseLoop(BlockingQueue<Item> in, BlockingQueue<Item> out, BlockingQueue<Item> refetch) {
+        try {
+            Item item;
+            while ((item = in.take()) != END) {
+                if (item.series == null) {
+                    long t0 = System.nanoTime();
+                    boolean gap;
+                    try {
+                        item.series = StockClient.parse(new ByteArrayInputStream(item.body), 0).build();
+                        gap = !item.full && store != null && !SeriesStore.overlaps(item.stored, item.series);
+                        if (!gap) item.series = persist(item);
+                    } catch (IOException ex) {
+                        if (Thread.currentThread().isInterrupted()) return;
+                        fail(item.symbol, "parse", ex);
+                        resolved(refetch);
+                        continue;
+                    }
+                    parseStage.record(t0, item.body.length);
+                    item.body = null;
+                    if (gap) {
+                        // Too far behind for the compact window: the fetch stage gets the full history
+                        item.full = true;
+                        item.series = null;
+                        refetch.put(item);
+                        continue;
+                    }
+                }
+                out.put(item);
+                resolved(refetch);
+            }
+        } catch (InterruptedException ex) {
+            // pipeline shut down
+        }
+    }
+
+    /**
+     * Merges a freshly parsed series into the store, mirroring the GUI's refresh: a
+     * compact window that overlaps the stored copy is merged into it, a full history
+     * replaces it.
+     *
+     * @return the series to export
+     */
+    private TimeSeries persist(Item item) throws IOException {
+        TimeSeries fresh = item.series;
+        if (store == null || fresh.isEmpty()) return fresh;
+        TimeSeries stored = item.stored;
+        if (item.full || stored == null || stored.isEmpty()) {
+            store.replace(item.symbol, fresh);
+            return fresh;
+        }
+        store.merge(item.symbol, fresh);
+        return store.load(item.symbol);
+    }
+
+    private void fail(String symbol, String stage, IOException ex) {
+        failed.incrementAndGet();
+        System.err.println("  " + symbol + ": " + stage + " failed: " + ex.getMessage());
+    }
+
+    private void writeLoop(BlockingQueue<Item> in) throws IOException, InterruptedException {
+        try (FileChannel ch = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            if (format == Format.CSV) {
+                putUtf8(ch, buf, "symbol,date,open,high,low,close,volume\n");
+            } else {
+                buf.putInt(BINARY_MAGIC).putInt(BINARY_VERSION);
+            }
+            Item item;
+            while ((item = in.take()) != END) {
+                long t0 = System.nanoTime();
+                long before = ch.position() + buf.position();
+                if (format == Format.CSV) writeCsv(ch, buf, item.symbol, item.series);
+                else writeBinary(ch, buf, item.symbol, item.series);
+                writeStage.record(t0, ch.position() + buf.position() - before);
+            }
+            drain(ch, buf);
+        }
+    }
+
+    private static void writeCsv(FileChannel ch, ByteBuffer buf, String symbol, TimeSeries s) throws IOException {
+        StringBuilder row = new StringBuilder(96);
+        for (int i = 0; i < s.size(); i++) {
+            row.setLength(0);
+            row.append(symbol).append(',');
+            if (s.isIntraday()) {
+                row.append(LocalDateTime.ofEpochSecond(s.time(i), 0, ZoneOffset.UTC));
+            } else {
+                row.append(LocalDate.ofEpochDay(s.epochDay(i)));
+            }
+            row.append(',').append(s.open(i)).append(',').append(s.high(i)).append(',').append(s.low(i))
+                    .append(',').append(s.close(i)).append(',').append((long) s.volume(i)).append('\n');
+            putUtf8(ch, buf, row);
+        }
+    }
+
+    private static void writeBinary(FileChannel ch, ByteBuffer buf, String symbol, TimeSeries s) throws IOException {
+        byte[] sym = symbol.getBytes(StandardCharsets.UTF_8);
+        int n = s.size();
+        ensure(ch, buf, 2 + sym.length + 1 + 4);
+        buf.putShort((short) sym.length).put(sym).put((byte) (s.isIntraday() ? 1 : 0)).putInt(n);
+        for (int i = 0; i < n; i++) {
+            ensure(ch, buf, 8);
+            buf.putLong(s.time(i));
+        }
+        putColumn(ch, buf, n, s::open);
+        putColumn(ch, buf, n, s::high);
+        putColumn(ch, buf, n, s::low);
+        putColumn(ch, buf, n, s::close);
+        putColumn(ch, buf, n, s::volume);
+    }
+
+    private static void putColumn(FileChannel ch, ByteBuffer buf, int n, IntToDoubleFunction column) throws IOException {
+        for (int i = 0; i < n; i++) {
+            ensure(ch, buf, 8);
+            buf.putDouble(column.applyAsDouble(i));
+        }
+    }
+
+    // Rows are ASCII but for the odd symbol, so only the rest of a row with a wider char is encoded
+    private static void putUtf8(FileChannel ch, ByteBuffer buf, CharSequence text) throws IOException {
+        int len = text.length();
+        ensure(ch, buf, len);
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                byte[] rest = text.subSequence(i, len).toString().getBytes(StandardCharsets.UTF_8);
+                ensure(ch, buf, rest.length);
+                buf.put(rest);
+                return;
+            }
+            buf.put((byte) c);
+        }
+    }
+
+    // Flushes the buffer to the channel if fewer than the given number of bytes are free
+    private static void ensure(FileChannel ch, ByteBuffer buf, int bytes) throws IOException {
+        if (buf.remaining() < bytes) drain(ch, buf);
+    }
+
+    private static void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+    }
+}
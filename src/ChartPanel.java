@@ -1,86 +1,663 @@
 import javax.swing.JPanel;
-import javax.swing.JPopupMenu;
-import javax.swing.JLabel;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Color;
 import java.awt.BasicStroke;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Transparency;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.List;
-import java.util.ArrayList;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 
 
 public class ChartPanel extends JPanel {
-    private List<Double> values = new ArrayList<>();
-    private List<String> labels = new ArrayList<>();
-    
+    /** How bars are drawn. */
+    public enum Style {
+        /** Close prices joined by a line. */
+        LINE("Line"),
+        /** Candlesticks: a body from open to close and a wick from low to high. */
+        CANDLE("Candles"),
+        /** OHLC bars: a low-high line with ticks for the open (left) and close (right). */
+        OHLC("OHLC");
+
+        private final String label;
+
+        Style(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // Formatters are immutable and thread-safe, so they are shared rather than rebuilt per label
+    private static final DateTimeFormatter MONTH_FMT = DateTimeFormatter.ofPattern("MMM");
+    private static final DateTimeFormatter MONTH_DAY_FMT = DateTimeFormatter.ofPattern("MMM d");
+    private static final DateTimeFormatter DATE_TIME_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Paint resources are created once instead of on every repaint
+    private static final Color AXIS_COLOR = new Color(100, 100, 100); // dark gray
+    private static final Color UP_COLOR = new Color(0, 200, 0);
+    private static final Color DOWN_COLOR = new Color(255, 50, 50);
+    private static final Color SELECTION_COLOR = new Color(255, 215, 0);
+    private static final Color CROSSHAIR_COLOR = new Color(180, 180, 180, 140);
+    private static final Color TOOLTIP_BG = new Color(30, 30, 30, 220);
+    private static final Color VOLUME_UP_COLOR = new Color(0, 200, 0, 110);
+    private static final Color VOLUME_DOWN_COLOR = new Color(255, 50, 50, 110);
+    // One colour per indicator, cycled when there are more indicators than colours
+    private static final Color[] INDICATOR_COLORS = {
+            new Color(80, 160, 255), new Color(255, 160, 40), new Color(200, 110, 255),
+            new Color(0, 210, 210), new Color(240, 90, 160), new Color(200, 200, 80)
+    };
+    private static final Font LABEL_FONT = new Font("SansSerif", Font.PLAIN, 11);
+    private static final Font MESSAGE_FONT = new Font("SansSerif", Font.PLAIN, 12);
+    private static final Font HUD_FONT = new Font("Monospaced", Font.PLAIN, 11);
+    private static final BasicStroke LINE_STROKE = new BasicStroke(2f);
+    private static final BasicStroke THIN_STROKE = new BasicStroke(1f);
+    private static final BasicStroke INDICATOR_STROKE = new BasicStroke(1.25f);
+
+    // Markers are only drawn when neighbouring points are at least this many pixels apart
+    private static final int MIN_MARKER_SPACING = 8;
+    // Zooming in stops at this many visible bars
+    private static final int MIN_VISIBLE_BARS = 10;
+    private static final double ZOOM_STEP = 1.25;
+    // When live bars reach the right edge, the window jumps so the newest bar sits at this fraction
+    private static final double LIVE_PAGE_FILL = 0.75;
+    // Headroom added above and below the live price range so most ticks fit without a rescale
+    private static final double LIVE_RANGE_MARGIN = 0.05;
+    // Candles and OHLC ticks stop growing at this half width; below 3 px per bar, bars
+    // sharing a pixel column are merged into one
+    private static final int MAX_BAR_HALF_WIDTH = 6;
+    private static final int VOLUME_GAP = 8;
+
+    private TimeSeries series = TimeSeries.EMPTY;
+    // Min/max of the close over any bar range, built once per series for Y auto-scaling
+    private RangeMinMax closeRange = RangeMinMax.ofClose(TimeSeries.EMPTY);
+    // Low/high and volume indexes, built on first use by the bar styles and the volume pane
+    private RangeMinMax lowHighRange;
+    private RangeMinMax volumeRange;
+    // Indicators drawn over the price line, or null for none
+    private IndicatorEngine indicators;
+    private Style style = Style.LINE;
+    private boolean volumeVisible = false;
+    // Debug overlay with the Metrics figures, refreshed once a second while shown
+    private boolean hudVisible = false;
+    private java.awt.Rectangle hudBounds = new java.awt.Rectangle();
+    private final javax.swing.Timer hudTimer = new javax.swing.Timer(1000, e -> repaint(hudBounds));
+
+    // The range index is rebuilt lazily after live appends
+    private boolean rangeStale = false;
+
+    // Visible window [viewFrom, viewTo) of bar indices
+    private int viewFrom = 0;
+    private int viewTo = 0;
+    // Live layout: the x axis spans this many bar slots (0 = just the visible bars) and
+    // follows new bars until the user zooms or pans
+    private int liveSlots = 0;
+    private boolean following = false;
+    // Drag state for panning
+    private int dragStartX = -1;
+    private int dragStartFrom = 0;
+
+    // Reused index buffer for the decimated points of the current repaint
+    private int[] drawIndices = new int[0];
+
+    // DecimalFormat is not thread-safe, but every use happens on the EDT
+    private final DecimalFormat priceFormat = new DecimalFormat("0.00");
+
+    // Static layer: background, axes, labels and series, rasterized once per data/size change
+    private BufferedImage baseLayer;
+    private boolean baseDirty = true;
+
+    // Interactive overlay state, drawn over the cached layer on every repaint
+    private int selectedIndex = -1;
+    private int hoverIndex = -1;
+    private int mouseY = -1;
+    // Tooltip text, reformatted only when the hovered bar changes
+    private String hoverDate = "";
+    private String hoverPrice = "";
+    private String hoverVolume = "";
+    // Where the tooltip box goes, laid out for the overlay and for hover repaints
+    private final java.awt.Rectangle tooltipBox = new java.awt.Rectangle();
+
+    // Number of plotted bars, 0 if none. Their screen x follows from the cached geometry
+    // (xForIndex) and is inverted arithmetically on hover, so neither a relayout nor a
+    // mouse move touches every bar
+    private int barCount = 0;
+
     // Cache for last computed chart geometry to enable click detection
     private int lastPadding = 40;
     private int lastLabelPadding = 40;
     private int lastGraphWidth = 0;
     private int lastGraphHeight = 0;
+    // Price area plus volume pane
+    private int lastPlotHeight = 0;
+    private int lastWidth = 0;
+    private int lastHeight = 0;
+    private int lastFrom = 0;
+    private int lastCount = 0;
+    // Bar slots the x axis spans; equals lastCount unless a live window is partly filled
+    private int lastSlots = 0;
+    private boolean lastMarkers = false;
+    private double lastScaleX = 1;
+    private double lastScaleY = 1;
     private double lastMin = 0;
     private double lastMax = 0;
     private double lastRange = 1;
 
     /**
-     * Constructs a ChartPanel with a mouse listener for interactive data point selection.
-     * Initializes the panel and sets up click detection on chart data points.
+     * Constructs a ChartPanel with mouse listeners for interactive data inspection.
+     * Hovering shows a crosshair and a tooltip for the nearest bar; clicking a point
+     * pins it as the selection. The mouse wheel zooms around the cursor, dragging pans,
+     * and double-clicking resets the view to the whole series.
      */
     public ChartPanel() {
-        // Add mouse listener for click detection on data points
-        addMouseListener(new MouseAdapter() {
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                handleHover(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                handleHover(-1, -1);
+            }
+
             @Override
             public void mouseClicked(MouseEvent e) {
-                handlePointClick(e.getX(), e.getY());
+                if (e.getClickCount() == 2) {
+                    resetView();
+                } else {
+                    handlePointClick(e.getX(), e.getY());
+                }
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStartX = e.getX();
+                dragStartFrom = viewFrom;
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragStartX = -1;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                handleDrag(e.getX());
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                handleZoom(e.getX(), e.getPreciseWheelRotation());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+
+        // F3 toggles the debug overlay
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(javax.swing.KeyStroke.getKeyStroke("F3"), "toggleHud");
+        getActionMap().put("toggleHud", new javax.swing.AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                setHudVisible(!hudVisible);
             }
         });
     }
 
     /**
-     * Updates the chart with new data series.
-     * Replaces the current labels and values with the provided lists. If either parameter
-     * is null, an empty ArrayList is used. Automatically triggers a repaint to display
-     * the updated chart.
+     * Updates the chart with a new data series.
+     * The close column is plotted; bar times provide the x-axis labels. If the
+     * parameter is null, an empty series is shown. Automatically triggers a repaint
+     * to display the updated chart.
      *
-     * @param labels a list of label strings (typically dates) corresponding to each data point,
-     *               or null to display with empty labels
-     * @param values a list of Double values representing the chart data points,
-     *               or null to display an empty chart
+     * @param series the bars to plot, oldest first, or null to display an empty chart
      */
-    public void setSeries(List<String> labels, List<Double> values) {
+    public void setSeries(TimeSeries series) {
         // Replace stored series (defensive null handling) and trigger a repaint
-        this.labels = labels == null ? new ArrayList<>() : labels;
-        this.values = values == null ? new ArrayList<>() : values;
+        this.series = series == null ? TimeSeries.EMPTY : series;
+        closeRange = RangeMinMax.ofClose(this.series);
+        rangeStale = false;
+        lowHighRange = null;
+        volumeRange = null;
+        // Possibly another symbol over the same dates: the indicators start over
+        if (indicators != null) indicators.update(this.series);
+        viewFrom = 0;
+        viewTo = this.series.size();
+        if (liveSlots > 0) {
+            following = true;
+            followTail();
+        }
+        selectedIndex = -1;
+        hoverIndex = -1;
+        barCount = 0;
+        invalidateLayers();
+    }
+
+    /**
+     * Sets the indicators drawn over the chart. They must share the price scale; see
+     * {@link Indicators#parseOverlays(String)}.
+     *
+     * @param engine the indicators, or null to draw none
+     * @throws IllegalArgumentException if an indicator is not on the price scale (e.g. RSI)
+     */
+    public void setIndicators(IndicatorEngine engine) {
+        if (engine != null) {
+            for (int k = 0; k < engine.indicatorCount(); k++) {
+                Indicator ind = engine.getIndicator(k);
+                if (!ind.isOverlay()) throw new IllegalArgumentException(ind.getName() + " is not on the price scale");
+            }
+        }
+        this.indicators = engine;
+        if (engine != null) engine.update(series);
+        invalidateLayers();
+    }
+
+    /** @return the indicators drawn over the chart, or null */
+    public IndicatorEngine getIndicators() {
+        return indicators;
+    }
+
+    /**
+     * Switches the live layout on or off. With a live window the x axis spans a fixed
+     * number of bar slots and new bars from {@link #appendBars} fill it from the left;
+     * when they reach the right edge the window jumps forward by a quarter.
+     *
+     * @param slots bar slots the x axis spans, or 0 to fit the visible bars again
+     */
+    public void setLiveWindow(int slots) {
+        liveSlots = Math.max(0, slots);
+        following = liveSlots > 0;
+        if (following) followTail();
+        else {
+            viewFrom = 0;
+            viewTo = series.size();
+        }
+        hoverIndex = -1;
+        invalidateLayers();
+    }
+
+    /** @return bar slots of the live layout, or 0 when it is off */
+    public int getLiveWindow() {
+        return liveSlots;
+    }
+
+    /**
+     * Shows a series that extends the current one: bars from {@code firstChanged} on are
+     * new or revised, everything before is unchanged. The indicators take only the new
+     * bars, after rolling back a revised forming bar. While the live layout follows new
+     * bars and they fit the current scale, only the strip from the previous bar to the
+     * newest one is re-rasterized into the cached layer and repainted, so a tick costs
+     * O(changed bars) regardless of how many bars are held. Anything else (a series with
+     * a different start, a new high or low, the window running full) falls back to a
+     * full repaint.
+     *
+     * @param next         the extended series, oldest first
+     * @param firstChanged index of the first new or revised bar in {@code next}
+     */
+    public void appendBars(TimeSeries next, int firstChanged) {
+        TimeSeries prev = series;
+        if (next == null || next.isEmpty() || prev.isEmpty() || next.time(0) != prev.time(0)
+                || firstChanged < 0 || firstChanged > prev.size()) {
+            // a different or rebased series (e.g. the live buffer dropped its oldest half)
+            int sel = selectedIndex;
+            setSeries(next);
+            if (next != null && prev.size() > 0 && sel >= 0 && sel < next.size() && next.time(0) == prev.time(0)) selectedIndex = sel;
+            return;
+        }
+        series = next;
+        rangeStale = true;
+        lowHighRange = null;
+        volumeRange = null;
+        if (indicators != null) indicators.update(next, firstChanged);
+        int n = next.size();
+
+        if (liveSlots > 0 && following) {
+            if (viewFrom + liveSlots < n) {
+                // out of room on the right: jump forward and redraw everything
+                followTail();
+                invalidateLayers();
+                return;
+            }
+            int oldTo = viewTo;
+            viewTo = n;
+            if (!paintIncrement(firstChanged, oldTo)) invalidateLayers();
+        } else if (firstChanged < viewTo) {
+            // the user is looking at a part that changed
+            invalidateLayers();
+        }
+    }
+
+    // Live window position: keep it while the newest bar fits, otherwise jump forward
+    private void followTail() {
+        int n = series.size();
+        if (n <= liveSlots) viewFrom = 0;
+        else if (viewFrom + liveSlots < n || viewFrom > n) viewFrom = n - (int) (liveSlots * LIVE_PAGE_FILL);
+        viewTo = n;
+    }
+
+    /**
+     * Draws bars {@code [firstChanged, viewTo)} into the cached layer, clipped to the strip
+     * they occupy, and repaints only that strip.
+     *
+     * @return false if the cached layer cannot be updated in place and needs a rebuild
+     */
+    private boolean paintIncrement(int firstChanged, int oldTo) {
+        TimeSeries s = series;
+        int from = viewFrom, to = viewTo;
+        if (style != Style.LINE || volumeVisible || baseDirty || baseLayer == null || lastSlots != liveSlots || lastFrom != from
+                || getWidth() != lastWidth || getHeight() != lastHeight || firstChanged < from) {
+            return false;
+        }
+        for (int i = firstChanged; i < to; i++) {
+            double c = s.close(i);
+            if (c < lastMin || c > lastMax) return false;
+        }
+        // an x label appears once its slot has a bar
+        int labelCount = Math.min(6, lastSlots);
+        for (int k = 0; k < labelCount; k++) {
+            int idx = labelIndex(k, labelCount, from, lastSlots);
+            if (idx >= oldTo && idx < to) return false;
+        }
+
+        // past two bars per pixel column the full paint decimates, which a strip cannot match
+        int count = to - from;
+        int columns = Math.max(1, (int) ((long) lastGraphWidth * count / lastSlots));
+        if (count > 2 * columns + 2) return false;
+
+        lastCount = count;
+        barCount = lastCount;
+
+        int i0 = Math.max(from, firstChanged - 1);
+        int x0 = xForIndex(i0) - 4;
+        int x1 = xForIndex(to - 1) + 5;
+        // from just below the legend to just above the x labels
+        int top = lastPadding - 2;
+        int bottom = lastPadding + lastGraphHeight + 4;
+        // everything reaching into the strip is redrawn in paint order: segments and markers
+        // from the last bar left of it, whose line and marker end before x0
+        int k0 = i0;
+        while (k0 > from && xForIndex(k0) > x0 - 4) k0--;
+
+        Graphics2D g2 = baseLayer.createGraphics();
+        try {
+            g2.scale(lastScaleX, lastScaleY);
+            g2.clipRect(x0, top, x1 - x0, bottom - top);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(Color.BLACK);
+            g2.fillRect(x0, top, x1 - x0, bottom - top);
+            g2.setColor(AXIS_COLOR);
+            int left = lastPadding + lastLabelPadding;
+            g2.drawLine(left, lastPadding + lastGraphHeight, left, lastPadding);
+            g2.drawLine(left, lastPadding + lastGraphHeight, left + lastGraphWidth, lastPadding + lastGraphHeight);
+
+            int jStart = k0 + 1;
+            g2.setStroke(LINE_STROKE);
+            for (int j = jStart; j < to; j++) {
+                double v1 = s.close(j - 1), v2 = s.close(j);
+                g2.setColor(v2 >= v1 ? UP_COLOR : DOWN_COLOR);
+                g2.drawLine(xForIndex(j - 1), yForValue(v1), xForIndex(j), yForValue(v2));
+            }
+            IndicatorEngine engine = indicators;
+            if (engine != null && engine.size() >= s.size()) {
+                Shape clip = g2.getClip();
+                g2.clipRect(left, lastPadding, lastGraphWidth + 1, lastGraphHeight + 1);
+                g2.setStroke(INDICATOR_STROKE);
+                for (int line = 0; line < engine.lineCount(); line++) {
+                    g2.setColor(INDICATOR_COLORS[engine.indicatorIndex(line) % INDICATOR_COLORS.length]);
+                    for (int j = jStart; j < to; j++) {
+                        double v1 = engine.value(line, j - 1), v2 = engine.value(line, j);
+                        if (Double.isNaN(v1) || Double.isNaN(v2)) continue;
+                        g2.drawLine(xForIndex(j - 1), yForValue(v1), xForIndex(j), yForValue(v2));
+                    }
+                }
+                g2.setClip(clip);
+            }
+            if (lastMarkers) {
+                g2.setColor(Color.WHITE);
+                for (int i = k0; i < to; i++) {
+                    g2.fillOval(xForIndex(i) - 3, yForValue(s.close(i)) - 3, 6, 6);
+                }
+            }
+        } finally {
+            g2.dispose();
+        }
+        repaint(x0, top, x1 - x0, bottom - top);
+        return true;
+    }
+
+    /** @return the series currently displayed */
+    public TimeSeries getSeries() {
+        return series;
+    }
+
+    /**
+     * Switches between the close line, candlesticks and OHLC bars. The bar styles scale
+     * the Y axis to the lows and highs of the visible bars.
+     *
+     * @param style the style; null means {@link Style#LINE}
+     */
+    public void setStyle(Style style) {
+        Style next = style == null ? Style.LINE : style;
+        if (next == this.style) return;
+        this.style = next;
+        hoverIndex = -1;
+        invalidateLayers();
+    }
+
+    /** @return how bars are drawn */
+    public Style getStyle() {
+        return style;
+    }
+
+    /**
+     * Shows or hides the volume pane, a bar per bar in the bottom quarter of the plot
+     * coloured by the bar's direction.
+     *
+     * @param visible true to show volume
+     */
+    public void setVolumeVisible(boolean visible) {
+        if (visible == volumeVisible) return;
+        volumeVisible = visible;
+        hoverIndex = -1;
+        invalidateLayers();
+    }
+
+    /** @return true if the volume pane is shown */
+    public boolean isVolumeVisible() {
+        return volumeVisible;
+    }
+
+    /**
+     * Shows or hides the debug overlay in the top right corner: paint time and frame
+     * rate, request latency, parse time, bytes received, cache hit rate and queue depth
+     * from {@link Metrics}. F3 toggles it too.
+     *
+     * @param visible true to show the overlay
+     */
+    public void setHudVisible(boolean visible) {
+        if (visible == hudVisible) return;
+        hudVisible = visible;
+        if (visible) hudTimer.start();
+        else hudTimer.stop();
+        repaint();
+    }
+
+    /** @return true if the debug overlay is shown */
+    public boolean isHudVisible() {
+        return hudVisible;
+    }
+
+    /**
+     * Shows bars {@code [from, to)}. The range is clamped to the series and to a minimum
+     * width; the Y axis rescales to the visible bars.
+     *
+     * @param from first visible bar (inclusive)
+     * @param to   last visible bar (exclusive)
+     */
+    public void setViewRange(int from, int to) {
+        int n = series.size();
+        int width = Math.min(n, Math.max(to - from, Math.min(MIN_VISIBLE_BARS, n)));
+        from = Math.max(0, Math.min(from, n - width));
+        if (from == viewFrom && from + width == viewTo) return;
+        viewFrom = from;
+        viewTo = from + width;
+        hoverIndex = -1;
+        invalidateLayers();
+    }
+
+    /** Shows the whole series again, or in live mode the live window following new bars. */
+    public void resetView() {
+        if (liveSlots > 0) {
+            following = true;
+            viewFrom = Math.max(0, series.size() - (int) (liveSlots * LIVE_PAGE_FILL));
+            followTail();
+            hoverIndex = -1;
+            invalidateLayers();
+            return;
+        }
+        setViewRange(0, series.size());
+    }
+
+    /** @return first visible bar (inclusive) */
+    public int getViewFrom() {
+        return viewFrom;
+    }
+
+    /** @return last visible bar (exclusive) */
+    public int getViewTo() {
+        return viewTo;
+    }
+
+    /**
+     * Discards the cached static layer so the next repaint re-rasterizes it.
+     * Called when the data or the visible window changes; size changes are detected
+     * during painting.
+     */
+    protected void invalidateLayers() {
+        baseDirty = true;
         repaint();
     }
 
     /**
      * Renders the chart on the panel. This method is called by the Swing framework
      * whenever the component needs to be redrawn.
-     * 
-     * Draws a line chart with the following features:
-     * - Black background with dark gray axes
-     * - Green lines for upward price movements, red lines for downward movements
-     * - White data point circles at each value
-     * - Y-axis labels showing min, max, and intermediate price values
-     * - X-axis labels showing up to 6 dates (with intelligent formatting)
-     * - A "No data to display" message if the chart is empty
+     *
+     * The static part of the chart is rasterized into an offscreen image that is reused
+     * until the data, the visible window or the component size changes, so exposes and hovering
+     * only cost one image blit plus the interactive overlay.
      *
      * @param g the Graphics context used for drawing
      */
     @Override
     protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
         super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
-        // Use antialiasing for nicer lines and points
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         int w = getWidth();
         int h = getHeight();
+        if (w <= 0 || h <= 0) return;
+
+        // Rasterize at device resolution so HiDPI screens stay sharp
+        AffineTransform tx = g2.getTransform();
+        double sx = tx.getScaleX(), sy = tx.getScaleY();
+        int iw = (int) Math.ceil(w * sx), ih = (int) Math.ceil(h * sy);
+        if (baseDirty || baseLayer == null || baseLayer.getWidth() != iw || baseLayer.getHeight() != ih) {
+            rebuildBaseLayer(iw, ih, sx, sy, w, h);
+        }
+        g2.drawImage(baseLayer, 0, 0, w, h, null);
+
+        paintOverlay(g2);
+        Metrics.get().recordPaint(start, System.nanoTime());
+        if (hudVisible) paintHud(g2);
+    }
+
+    /** Draws the debug overlay; not included in the paint time it reports. */
+    private void paintHud(Graphics2D g2) {
+        Metrics m = Metrics.get();
+        Histogram.Snapshot paint = m.getPaintTime(), frame = m.getFrameInterval();
+        Histogram.Snapshot http = m.getHttpLatency(), parse = m.getParseTime();
+        double hitRate = m.getCacheHitRate();
+        long bytes = m.getBytesReceived();
+        String[] lines = {
+                String.format(java.util.Locale.ROOT, "paint  p50 %6.2f  p99 %6.2f ms  %3d fps", paint.getP50(), paint.getP99(), m.getFramesPerSecond()),
+                String.format(java.util.Locale.ROOT, "frame  p50 %6.2f  p99 %6.2f ms", frame.getP50(), frame.getP99()),
+                String.format(java.util.Locale.ROOT, "http   p50 %6.1f  p99 %6.1f ms  %d req", http.getP50(), http.getP99(), m.getRequests()),
+                String.format(java.util.Locale.ROOT, "parse  p50 %6.2f  p99 %6.2f ms  %d pts", parse.getP50(), parse.getP99(), m.getPointsParsed()),
+                String.format(java.util.Locale.ROOT, "recv %s  cache %s  queue %d", bytes >= 1e6
+                                ? String.format(java.util.Locale.ROOT, "%.2f MB", bytes / 1e6) : String.format(java.util.Locale.ROOT, "%.1f KB", bytes / 1e3),
+                        Double.isNaN(hitRate) ? "-" : Math.round(hitRate * 100) + "%", m.getQueueDepth())
+        };
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(HUD_FONT);
+        FontMetrics fm = g2.getFontMetrics();
+        int boxW = 0;
+        for (String line : lines) boxW = Math.max(boxW, fm.stringWidth(line));
+        boxW += 12;
+        int boxH = lines.length * fm.getHeight() + 8;
+        int bx = Math.max(0, getWidth() - boxW - 6), by = 6;
+        hudBounds = new java.awt.Rectangle(bx, by, boxW, boxH);
+        g2.setColor(TOOLTIP_BG);
+        g2.fillRect(bx, by, boxW, boxH);
+        g2.setColor(Color.WHITE);
+        for (int k = 0; k < lines.length; k++) g2.drawString(lines[k], bx + 6, by + 4 + k * fm.getHeight() + fm.getAscent());
+    }
+
+    private void rebuildBaseLayer(int iw, int ih, double sx, double sy, int w, int h) {
+        if (baseLayer == null || baseLayer.getWidth() != iw || baseLayer.getHeight() != ih) {
+            if (baseLayer != null) baseLayer.flush();
+            // A compatible image matches the screen format and can be cached in video memory by Java2D
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            baseLayer = gc != null ? gc.createCompatibleImage(iw, ih, Transparency.OPAQUE)
+                    : new BufferedImage(iw, ih, BufferedImage.TYPE_INT_RGB);
+        }
+        lastScaleX = sx;
+        lastScaleY = sy;
+        Graphics2D lg = baseLayer.createGraphics();
+        try {
+            lg.scale(sx, sy);
+            paintBase(lg, w, h);
+        } finally {
+            lg.dispose();
+        }
+        baseDirty = false;
+    }
+
+    /**
+     * Draws the static layer of the chart:
+     * - Black background with dark gray axes
+     * - Green lines for upward price movements, red lines for downward movements
+     * - White data point circles at each value, when points are at least 8 pixels apart
+     * - Long series are decimated to the lowest and highest bar per pixel column
+     * - Price-scale indicators (moving averages, bands, VWAP) as coloured lines
+     * - Y-axis labels showing min, max, and intermediate price values
+     * - X-axis labels showing up to 6 dates (with intelligent formatting)
+     * - A "No data to display" message if the chart is empty
+     *
+     * @param g2 the Graphics context of the offscreen layer
+     * @param w  the component width
+     * @param h  the component height
+     */
+    private void paintBase(Graphics2D g2, int w, int h) {
+        // Use antialiasing for nicer lines and points
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
         int padding = 40;
         int labelPadding = 40;
 
@@ -89,165 +666,479 @@ public class ChartPanel extends JPanel {
         g2.fillRect(0, 0, w, h);
 
         // Nothing to draw if we have no data
-        if (values == null || values.isEmpty()) {
+        TimeSeries s = series;
+        barCount = 0;
+        if (s.isEmpty()) {
             g2.setColor(Color.WHITE);
-            g2.setFont(new Font("SansSerif", Font.PLAIN, 12));
+            g2.setFont(MESSAGE_FONT);
             g2.drawString("No data to display", padding, h/2);
             return;
         }
 
-        double min = Double.MAX_VALUE;
-        double max = -Double.MAX_VALUE;
-        for (Double v : values) {
-            if (v != null) {
-                min = Math.min(min, v);
-                max = Math.max(max, v);
-            }
+        // Visible window; its range comes from the min/max index in O(log n), no scan
+        int from = viewFrom;
+        int to = viewTo;
+        int count = to - from;
+        if (count <= 0) return;
+        if (rangeStale) {
+            closeRange = RangeMinMax.ofClose(s);
+            rangeStale = false;
         }
-
-        if (min == Double.MAX_VALUE || max == -Double.MAX_VALUE) return;
+        RangeMinMax priceRange = closeRange;
+        if (style != Style.LINE) {
+            if (lowHighRange == null) lowHighRange = RangeMinMax.ofLowHigh(s);
+            priceRange = lowHighRange;
+        }
+        double min = priceRange.min(from, to);
+        double max = priceRange.max(from, to);
+        if (Double.isInfinite(min) || Double.isInfinite(max)) return;
+        boolean live = liveSlots > 0 && following;
+        int slots = live ? Math.max(liveSlots, count) : count;
 
         // Compute vertical range and avoid division by zero for flat series
         double range = max - min;
-        if (range == 0) range = max * 0.1 + 1; 
-        
+        if (range == 0) range = max * 0.1 + 1;
+        if (live) {
+            // leave headroom so most live ticks fit without rescaling the whole chart
+            min -= range * LIVE_RANGE_MARGIN;
+            max += range * LIVE_RANGE_MARGIN;
+            range = max - min;
+        }
+
         int graphWidth = w - 2 * padding - labelPadding;
-        int graphHeight = h - 2 * padding;
-        
+        int plotHeight = h - 2 * padding;
+        // The volume pane takes the bottom quarter of the plot
+        int volumeHeight = volumeVisible ? plotHeight / 4 : 0;
+        int graphHeight = volumeVisible ? plotHeight - volumeHeight - VOLUME_GAP : plotHeight;
+
         // Cache geometry for mouse click detection
         lastMin = min;
         lastMax = max;
         lastRange = range;
         lastGraphWidth = graphWidth;
         lastGraphHeight = graphHeight;
+        lastPlotHeight = plotHeight;
+        lastFrom = from;
+        lastCount = count;
+        lastSlots = slots;
+        lastWidth = w;
+        lastHeight = h;
 
-        // dark gray
-        g2.setColor(new Color(100, 100, 100));
+        barCount = count;
+
+        g2.setColor(AXIS_COLOR);
         g2.drawLine(padding + labelPadding, h - padding, padding + labelPadding, padding);
         g2.drawLine(padding + labelPadding, h - padding, w - padding, h - padding);
 
-        // Draw the polyline connecting close values - green for up, red for down
-        g2.setStroke(new BasicStroke(2f));
+        // Decimate to at most two points per pixel column, looked up in the close index, so
+        // the cost of a zoom or pan step depends on the graph width, not on the number of bars
+        int columns = Math.max(1, (int) ((long) graphWidth * count / slots));
+        if (drawIndices.length < 2 * columns + 2) drawIndices = new int[2 * columns + 2];
+        int[] pts = drawIndices;
+        int m = Decimator.minMax(closeRange, from, to, columns, pts);
 
-        int n = values.size();
-        for (int i = 0; i < n - 1; i++) {
-            Double v1 = values.get(i);
-            Double v2 = values.get(i+1);
-            if (v1 == null || v2 == null) continue;
-            // Color: green if price went up, red if down
-            if (v2 >= v1) {
-                g2.setColor(new Color(0, 200, 0)); // green for up
-            } else {
-                g2.setColor(new Color(255, 50, 50)); // red for down
+        if (style == Style.LINE) {
+            // Draw the polyline connecting close values - green for up, red for down
+            g2.setStroke(LINE_STROKE);
+            for (int k = 0; k < m - 1; k++) {
+                int i1 = pts[k];
+                int i2 = pts[k+1];
+                double v1 = s.close(i1);
+                double v2 = s.close(i2);
+                // Color: green if price went up, red if down
+                g2.setColor(v2 >= v1 ? UP_COLOR : DOWN_COLOR);
+                g2.drawLine(xForIndex(i1), yForValue(v1), xForIndex(i2), yForValue(v2));
             }
-            int x1 = padding + labelPadding + (int) ((double) i / (n - 1) * graphWidth);
-            int x2 = padding + labelPadding + (int) ((double) (i+1) / (n - 1) * graphWidth);
-            int y1 = padding + (int) ((max - v1) / range * graphHeight);
-            int y2 = padding + (int) ((max - v2) / range * graphHeight);
-            g2.drawLine(x1, y1, x2, y2);
+        } else {
+            paintBars(g2, s, from, to, graphWidth);
         }
+        if (volumeVisible) paintVolume(g2, s, from, to, graphWidth, padding + graphHeight + VOLUME_GAP, volumeHeight);
 
-        // Draw data points on top of the line in white
-        g2.setColor(Color.WHITE);
-        for (int i = 0; i < n; i++) {
-            Double v = values.get(i);
-            if (v == null) continue;
-            int x = padding + labelPadding + (int) ((double) i / (n - 1) * graphWidth);
-            int y = padding + (int) ((max - v) / range * graphHeight);
-            g2.fillOval(x - 3, y - 3, 6, 6);
+        paintIndicators(g2, pts, m, padding, labelPadding, graphWidth, graphHeight);
+
+        // Draw data points on top of the line in white, only when they are far enough apart to see
+        lastMarkers = style == Style.LINE && (slots == 1 || (double) graphWidth / (slots - 1) >= MIN_MARKER_SPACING);
+        if (lastMarkers) {
+            g2.setColor(Color.WHITE);
+            for (int i = from; i < to; i++) {
+                g2.fillOval(xForIndex(i) - 3, yForValue(s.close(i)) - 3, 6, 6);
+            }
         }
 
         // Draw min/max numeric labels on the left side in white
         g2.setColor(Color.WHITE);
-        g2.setFont(new Font("SansSerif", Font.PLAIN, 11));
-        g2.drawString(String.format("%.2f", max), 5, padding + 10);
-        g2.drawString(String.format("%.2f", min), 5, h - padding);
-        
+        g2.setFont(LABEL_FONT);
+        g2.drawString(priceFormat.format(max), 5, padding + 10);
+        g2.drawString(priceFormat.format(min), 5, padding + graphHeight);
+
         // Draw intermediate y-axis labels (quarters between min and max)
         int labelSteps = 3; // divide range into quarters
         for (int step = 1; step < labelSteps; step++) {
             double value = min + (range / labelSteps) * step;
             int y = padding + (int) ((max - value) / range * graphHeight);
-            g2.drawString(String.format("%.2f", value), 5, y + 5);
-        }
-
-        // Draw a few sparse x-axis labels (up to 6) to avoid clutter
-        int labelCount = Math.min(6, labels.size());
-        if (labelCount > 0) {
-            for (int i = 0; i < labelCount; i++) {
-                int idx;
-                if (labelCount == 1) idx = 0;
-                else idx = (int) Math.round(((double) i / (labelCount - 1)) * (n - 1));
-                if (idx < 0) idx = 0;
-                if (idx >= n) idx = n - 1;
-                String s = labels.get(idx);
-                String display = s;
-                // If label looks like yyyy-mm-dd, show month abbreviation (e.g., "Dec")
-                try {
-                    if (s != null) {
-                        if (s.matches("\\d{4}-\\d{2}-\\d{2}")) {
-                            java.time.LocalDate d = java.time.LocalDate.parse(s);
-                            display = d.format(java.time.format.DateTimeFormatter.ofPattern("MMM"));
-                        } else if (s.matches("\\d{4}-\\d{2}-\\d{2} .*")) {
-                            // intraday key like "2025-12-19 16:00:00"
-                            java.time.format.DateTimeFormatter inFmt = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                            java.time.LocalDateTime dt = java.time.LocalDateTime.parse(s, inFmt);
-                            display = dt.format(java.time.format.DateTimeFormatter.ofPattern("MMM d"));
-                        } else if (s.length() >= 5) {
-                            // fallback: show last 5 chars
-                            display = s.substring(Math.max(0, s.length() - 5));
-                        }
-                    }
-                } catch (Exception ex) {
-                    display = s; // parsing fallback
-                }
-                int x = padding + labelPadding + (int) ((double) idx / (n - 1) * graphWidth);
-                // ensure label is visible: draw with small font and clamp x
-                int tx = Math.max(padding + labelPadding, Math.min(x - 20, w - padding - 40));
-                g2.setFont(new Font("SansSerif", Font.PLAIN, 11));
-                g2.setColor(Color.WHITE);
-                g2.drawString(display, tx, h - padding + 15);
+            g2.drawString(priceFormat.format(value), 5, y + 5);
+        }
+
+        // Draw a few sparse x-axis labels (up to 6) to avoid clutter; in a partly filled
+        // live window, slots without a bar yet get no label
+        int labelCount = Math.min(6, slots);
+        for (int i = 0; i < labelCount; i++) {
+            int idx = labelIndex(i, labelCount, from, slots);
+            if (idx >= to) {
+                if (slots > count) continue;
+                idx = to - 1;
+            }
+            // Daily bars show the month abbreviation (e.g., "Dec"), intraday bars "Dec 19"
+            String display = s.isIntraday()
+                    ? LocalDateTime.ofEpochSecond(s.time(idx), 0, ZoneOffset.UTC).format(MONTH_DAY_FMT)
+                    : LocalDate.ofEpochDay(s.epochDay(idx)).format(MONTH_FMT);
+            int x = xForIndex(idx);
+            // ensure label is visible: clamp x
+            int tx = Math.max(padding + labelPadding, Math.min(x - 20, w - padding - 40));
+            g2.drawString(display, tx, h - padding + 15);
+        }
+    }
+
+    /**
+     * Draws candlesticks or OHLC bars. Bars at least 3 pixels apart are drawn one by one;
+     * closer bars sharing a pixel column are merged into one (first open, highest high,
+     * lowest low, last close) and drawn as a single low-high line. A column's high and low
+     * come from the low/high index, so the cost of drawing depends on the graph width
+     * rather than the number of bars.
+     */
+    private void paintBars(Graphics2D g2, TimeSeries s, int from, int to, int graphWidth) {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2.setStroke(THIN_STROKE);
+        int half = barHalfWidth(graphWidth);
+        if (half > 0) {
+            for (int i = from; i < to; i++) {
+                paintBar(g2, xForIndex(i), s.open(i), s.high(i), s.low(i), s.close(i), half);
+            }
+        } else {
+            RangeMinMax lowHigh = lowHighRange;
+            for (int i = from; i < to; ) {
+                int x = xForIndex(i);
+                int end = Math.min(to, firstIndexAt(x + 1));
+                paintBar(g2, x, s.open(i), lowHigh.max(i, end), lowHigh.min(i, end), s.close(end - 1), 0);
+                i = end;
+            }
+        }
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+
+    /** @return half the width of a candle body, or 0 if bars are too close to draw one by one */
+    private int barHalfWidth(int graphWidth) {
+        double perBar = lastSlots > 1 ? (double) graphWidth / (lastSlots - 1) : graphWidth;
+        return perBar < 3 ? 0 : Math.max(1, Math.min(MAX_BAR_HALF_WIDTH, (int) (perBar * 0.35)));
+    }
+
+    private void paintBar(Graphics2D g2, int x, double o, double h, double l, double c, int half) {
+        g2.setColor(c >= o ? UP_COLOR : DOWN_COLOR);
+        g2.drawLine(x, yForValue(h), x, yForValue(l));
+        if (half == 0) return;
+        int yo = yForValue(o), yc = yForValue(c);
+        if (style == Style.OHLC) {
+            g2.drawLine(x - half, yo, x, yo);
+            g2.drawLine(x, yc, x + half, yc);
+        } else {
+            g2.fillRect(x - half, Math.min(yo, yc), 2 * half + 1, Math.max(1, Math.abs(yo - yc)));
+        }
+    }
+
+    /**
+     * Draws the volume pane: one bar per bar, scaled to the largest visible volume and
+     * coloured by the bar's direction, with that volume as the pane's label. Bars sharing
+     * a pixel column show their largest volume, looked up in the volume index.
+     */
+    private void paintVolume(Graphics2D g2, TimeSeries s, int from, int to, int graphWidth, int top, int height) {
+        if (volumeRange == null) volumeRange = RangeMinMax.ofVolume(s);
+        double maxVolume = volumeRange.max(from, to);
+        if (!(maxVolume > 0) || height <= 0) return;
+        int bottom = top + height;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        int half = barHalfWidth(graphWidth);
+        for (int i = from; i < to; ) {
+            int x = xForIndex(i);
+            int end = half > 0 ? i + 1 : Math.min(to, firstIndexAt(x + 1));
+            int j = end - i == 1 ? i : volumeRange.argMax(i, end);
+            int y = bottom - (int) (s.volume(j) / maxVolume * height);
+            g2.setColor(s.close(j) >= s.open(j) ? VOLUME_UP_COLOR : VOLUME_DOWN_COLOR);
+            g2.fillRect(x - half, y, 2 * half + 1, Math.max(1, bottom - y));
+            i = end;
+        }
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setColor(AXIS_COLOR);
+        g2.drawLine(lastPadding + lastLabelPadding, top - VOLUME_GAP / 2, lastPadding + lastLabelPadding + graphWidth, top - VOLUME_GAP / 2);
+        g2.setColor(Color.WHITE);
+        g2.setFont(LABEL_FONT);
+        g2.drawString(formatVolume(maxVolume), 5, top + 10);
+    }
+
+    /** @return a volume in compact form, e.g. "950", "12.3K", "4.56M" */
+    private static String formatVolume(double v) {
+        if (v >= 1e9) return String.format(java.util.Locale.ROOT, "%.2fB", v / 1e9);
+        if (v >= 1e6) return String.format(java.util.Locale.ROOT, "%.2fM", v / 1e6);
+        if (v >= 1e3) return String.format(java.util.Locale.ROOT, "%.1fK", v / 1e3);
+        return String.format(java.util.Locale.ROOT, "%.0f", v);
+    }
+
+    /**
+     * Draws the price-scale indicator lines through the same decimated bars as the close
+     * line, clipped to the plot area since bands may leave the close range, plus a legend.
+     * Warm-up bars (NaN) break the line.
+     */
+    private void paintIndicators(Graphics2D g2, int[] pts, int m, int padding, int labelPadding,
+                                 int graphWidth, int graphHeight) {
+        IndicatorEngine engine = indicators;
+        if (engine == null || engine.size() < series.size()) return;
+
+        Shape clip = g2.getClip();
+        g2.clipRect(padding + labelPadding, padding, graphWidth + 1, graphHeight + 1);
+        g2.setStroke(INDICATOR_STROKE);
+        for (int line = 0; line < engine.lineCount(); line++) {
+            g2.setColor(INDICATOR_COLORS[engine.indicatorIndex(line) % INDICATOR_COLORS.length]);
+            for (int k = 0; k < m - 1; k++) {
+                int i1 = pts[k];
+                int i2 = pts[k + 1];
+                double v1 = engine.value(line, i1);
+                double v2 = engine.value(line, i2);
+                if (Double.isNaN(v1) || Double.isNaN(v2)) continue;
+                g2.drawLine(xForIndex(i1), yForValue(v1), xForIndex(i2), yForValue(v2));
+            }
+        }
+        g2.setClip(clip);
+
+        // Legend along the top edge of the plot
+        g2.setFont(LABEL_FONT);
+        FontMetrics fm = g2.getFontMetrics();
+        int x = padding + labelPadding + 4;
+        for (int k = 0; k < engine.indicatorCount(); k++) {
+            Indicator ind = engine.getIndicator(k);
+            g2.setColor(INDICATOR_COLORS[k % INDICATOR_COLORS.length]);
+            g2.drawString(ind.getName(), x, padding - 6);
+            x += fm.stringWidth(ind.getName()) + 12;
+        }
+        g2.setStroke(LINE_STROKE);
+    }
+
+    /**
+     * Draws the interactive overlay over the cached layer: the pinned selection and,
+     * while the mouse is over the chart, a crosshair on the nearest bar with a tooltip.
+     * Runs on every repaint, so it must stay cheap and allocation free.
+     *
+     * @param g2 the component's Graphics context
+     */
+    protected void paintOverlay(Graphics2D g2) {
+        TimeSeries s = series;
+        int from = lastFrom, to = lastFrom + lastCount;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setStroke(THIN_STROKE);
+
+        int i = selectedIndex;
+        if (i >= from && i < to && i < s.size()) {
+            g2.setColor(SELECTION_COLOR);
+            g2.drawOval(xForIndex(i) - 6, yForValue(s.close(i)) - 6, 12, 12);
+        }
+
+        i = hoverIndex;
+        if (i < from || i >= to || i >= s.size()) return;
+        int x = xForIndex(i);
+        int y = yForValue(s.close(i));
+        int top = lastPadding, bottom = lastPadding + lastPlotHeight;
+        int left = lastPadding + lastLabelPadding, right = left + lastGraphWidth;
+
+        g2.setColor(CROSSHAIR_COLOR);
+        g2.drawLine(x, top, x, bottom);
+        if (mouseY >= top && mouseY <= bottom) g2.drawLine(left, mouseY, right, mouseY);
+        g2.setColor(Color.WHITE);
+        g2.fillOval(x - 4, y - 4, 8, 8);
+
+        g2.setFont(LABEL_FONT);
+        FontMetrics fm = g2.getFontMetrics();
+        int lineH = fm.getHeight();
+        layoutTooltip(x, y, fm);
+        int bx = tooltipBox.x, by = tooltipBox.y;
+        g2.setColor(TOOLTIP_BG);
+        g2.fillRect(bx, by, tooltipBox.width, tooltipBox.height);
+        g2.setColor(Color.WHITE);
+        g2.drawString(hoverDate, bx + 6, by + 4 + fm.getAscent());
+        g2.drawString(hoverPrice, bx + 6, by + 4 + lineH + fm.getAscent());
+        if (!hoverVolume.isEmpty()) g2.drawString(hoverVolume, bx + 6, by + 4 + 2 * lineH + fm.getAscent());
+    }
+
+    /** Places the tooltip box next to the bar at (x, y), flipped to stay inside the component. */
+    private void layoutTooltip(int x, int y, FontMetrics fm) {
+        int lines = hoverVolume.isEmpty() ? 2 : 3;
+        int boxW = Math.max(Math.max(fm.stringWidth(hoverDate), fm.stringWidth(hoverPrice)), fm.stringWidth(hoverVolume)) + 12;
+        int boxH = lines * fm.getHeight() + 8;
+        int bx = x + 12;
+        if (bx + boxW > getWidth()) bx = x - 12 - boxW;
+        int by = Math.max(0, Math.min(y - boxH - 8, getHeight() - boxH));
+        tooltipBox.setBounds(bx, by, boxW, boxH);
+    }
+
+    private static int labelIndex(int k, int labelCount, int from, int slots) {
+        if (labelCount == 1) return from;
+        return from + (int) Math.round(((double) k / (labelCount - 1)) * (slots - 1));
+    }
+
+    private int xForIndex(int i) {
+        return lastPadding + lastLabelPadding + (int) ((double) (i - lastFrom) / (lastSlots - 1) * lastGraphWidth);
+    }
+
+    private int yForValue(double v) {
+        return lastPadding + (int) ((lastMax - v) / lastRange * lastGraphHeight);
+    }
+
+    /**
+     * Finds the first bar slot whose screen x is at or right of {@code x} by inverting
+     * {@link #xForIndex}, so the cost is O(1) regardless of series length. Slots past the
+     * last plotted bar count too; {@code lastFrom + lastSlots} means none is.
+     */
+    private int firstIndexAt(int x) {
+        int left = lastPadding + lastLabelPadding;
+        if (lastSlots <= 1 || lastGraphWidth <= 0) return x <= left ? lastFrom : lastFrom + lastSlots;
+        double k = (double) (x - left) * (lastSlots - 1) / lastGraphWidth;
+        int i = lastFrom + (int) Math.max(0, Math.min(lastSlots, Math.ceil(k)));
+        // xForIndex truncates, so the estimate can be a slot off either way
+        while (i > lastFrom && xForIndex(i - 1) >= x) i--;
+        while (i < lastFrom + lastSlots && xForIndex(i) < x) i++;
+        return i;
+    }
+
+    /**
+     * Finds the plotted bar whose screen x is nearest to {@code mouseX}, in O(1).
+     *
+     * @param mouseX the x-coordinate to look up
+     * @return the nearest visible bar index, or -1 if nothing is plotted
+     */
+    private int nearestIndex(int mouseX) {
+        int n = barCount;
+        if (n == 0) return -1;
+        int i = Math.min(firstIndexAt(mouseX), lastFrom + n - 1);
+        if (i > lastFrom && mouseX - xForIndex(i - 1) <= xForIndex(i) - mouseX) i--;
+        return i;
+    }
+
+    /**
+     * Tracks the mouse for the crosshair. Tooltip text is only reformatted when the
+     * hovered bar changes, so plain mouse movement does not allocate. Only the marks that
+     * move are repainted, where they were and where they are now: the vertical line,
+     * marker and tooltip when the hovered bar changes, the horizontal line when the mouse
+     * moves up or down.
+     *
+     * @param mouseX the mouse x-coordinate, or -1 when the mouse left the component
+     * @param mouseY the mouse y-coordinate
+     */
+    private void handleHover(int mouseX, int mouseY) {
+        int left = lastPadding + lastLabelPadding;
+        int i = -1;
+        if (mouseX >= left - 8 && mouseX <= left + lastGraphWidth + 8) i = nearestIndex(mouseX);
+        boolean barMoved = i != hoverIndex;
+        boolean lineMoved = hoverLineVisible(i, mouseY) != hoverLineVisible(hoverIndex, this.mouseY)
+                || hoverLineVisible(i, mouseY) && mouseY != this.mouseY;
+        if (barMoved) repaintHoverBar();
+        if (lineMoved) repaintHoverLine();
+        this.mouseY = mouseY;
+        if (barMoved) {
+            hoverIndex = i;
+            if (i >= 0) {
+                TimeSeries s = series;
+                hoverDate = formatDate(s, i);
+                hoverPrice = style == Style.LINE ? "$" + priceFormat.format(s.close(i))
+                        : "O " + priceFormat.format(s.open(i)) + "  H " + priceFormat.format(s.high(i))
+                        + "  L " + priceFormat.format(s.low(i)) + "  C " + priceFormat.format(s.close(i));
+                hoverVolume = volumeVisible ? "Vol " + formatVolume(s.volume(i)) : "";
             }
+            repaintHoverBar();
         }
+        if (lineMoved) repaintHoverLine();
+    }
+
+    private boolean hoverVisible(int i) {
+        return i >= lastFrom && i < lastFrom + lastCount && i < series.size();
+    }
+
+    private boolean hoverLineVisible(int i, int y) {
+        return hoverVisible(i) && y >= lastPadding && y <= lastPadding + lastPlotHeight;
+    }
+
+    /** Repaints the vertical crosshair line, marker and tooltip of the hovered bar, if any. */
+    private void repaintHoverBar() {
+        int i = hoverIndex;
+        if (!hoverVisible(i)) return;
+        int x = xForIndex(i);
+        int y = yForValue(series.close(i));
+        // a pixel of slack around each mark for antialiasing
+        repaint(x - 1, lastPadding - 1, 3, lastPlotHeight + 3);
+        repaint(x - 5, y - 5, 11, 11);
+        layoutTooltip(x, y, getFontMetrics(LABEL_FONT));
+        repaint(tooltipBox);
     }
-    
+
+    /** Repaints the horizontal crosshair line, if shown. */
+    private void repaintHoverLine() {
+        if (!hoverLineVisible(hoverIndex, mouseY)) return;
+        repaint(lastPadding + lastLabelPadding - 1, mouseY - 1, lastGraphWidth + 3, 3);
+    }
+
+    private static String formatDate(TimeSeries s, int i) {
+        return s.isIntraday()
+                ? LocalDateTime.ofEpochSecond(s.time(i), 0, ZoneOffset.UTC).format(DATE_TIME_FMT)
+                : LocalDate.ofEpochDay(s.epochDay(i)).toString();
+    }
+
     /**
-     * Handles mouse clicks on data points and displays a popup tooltip.
-     * When a user clicks within 8 pixels of a data point, this method displays
-     * a popup showing the corresponding date and price value.
+     * Handles mouse clicks on data points. Clicking within 8 pixels of a point pins it as
+     * the selection; clicking it again clears the selection.
      *
      * @param mouseX the x-coordinate of the mouse click
      * @param mouseY the y-coordinate of the mouse click
      */
     private void handlePointClick(int mouseX, int mouseY) {
-        
-        int padding = lastPadding;
-        int labelPadding = lastLabelPadding;
-        
-        if (values.isEmpty() || lastRange == 0) return;
-        
-        int n = values.size();
-        // Check each point to see if the click is within 8 pixels
-        for (int i = 0; i < n; i++) {
-            Double v = values.get(i);
-            if (v == null) continue;
-            int x = padding + labelPadding + (int) ((double) i / (n - 1) * lastGraphWidth);
-            int y = padding + (int) ((lastMax - v) / lastRange * lastGraphHeight);
-            
-            // Check if click is within 8 pixels of the point
-            if (Math.abs(mouseX - x) <= 8 && Math.abs(mouseY - y) <= 8) {
-                String date = i < labels.size() ? labels.get(i) : "?";
-                String message = String.format("Date: %s\nPrice: $%.2f", date, v);
-                
-                // Popup
-                javax.swing.JPopupMenu popup = new javax.swing.JPopupMenu();
-                javax.swing.JLabel label = new javax.swing.JLabel(message);
-                label.setBorder(javax.swing.BorderFactory.createEmptyBorder(5, 5, 5, 5));
-                popup.add(label);
-                popup.show(this, mouseX, mouseY);
-                
-                return;
-            }
+        int i = nearestIndex(mouseX);
+        if (i < 0) return;
+        int x = xForIndex(i);
+        int y = yForValue(series.close(i));
+        // Check if click is within 8 pixels of the point
+        if (Math.abs(mouseX - x) <= 8 && Math.abs(mouseY - y) <= 8) {
+            // Only the overlay changes, the cached layer is reused
+            selectedIndex = selectedIndex == i ? -1 : i;
+            repaint();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Zooms around the bar under the cursor: that bar stays at the same screen position
+     * while the window shrinks or grows by {@link #ZOOM_STEP} per wheel notch.
+     *
+     * @param mouseX   the cursor x-coordinate
+     * @param rotation wheel rotation; negative zooms in
+     */
+    private void handleZoom(int mouseX, double rotation) {
+        int count = viewTo - viewFrom;
+        if (count <= 0 || lastGraphWidth <= 0) return;
+        double frac = (double) (mouseX - lastPadding - lastLabelPadding) / lastGraphWidth;
+        frac = Math.max(0, Math.min(1, frac));
+        double anchor = viewFrom + frac * (count - 1);
+        int newCount = (int) Math.round(count * Math.pow(ZOOM_STEP, rotation));
+        if (newCount == count) newCount += rotation > 0 ? 1 : -1;
+        int newFrom = (int) Math.round(anchor - frac * (newCount - 1));
+        following = false;
+        setViewRange(newFrom, newFrom + newCount);
+    }
+
+    /**
+     * Pans the window so the bar grabbed at the start of the drag follows the cursor.
+     *
+     * @param mouseX the cursor x-coordinate
+     */
+    private void handleDrag(int mouseX) {
+        int count = viewTo - viewFrom;
+        if (dragStartX < 0 || count <= 1 || lastGraphWidth <= 0) return;
+        int shift = (int) Math.round((double) (dragStartX - mouseX) * (count - 1) / lastGraphWidth);
+        if (shift == 0) return;
+        following = false;
+        setViewRange(dragStartFrom + shift, dragStartFrom + shift + count);
+    }
+}
@@ -0,0 +1,476 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compressed, immutable copy of a {@link TimeSeries}, for keeping long daily and
+ * intraday histories on disk and in the heap.
+ *
+ * Bars are cut into blocks of {@value #BLOCK_SIZE}. Inside a block every column is its
+ * own {@link Gorilla} bit stream: delta-of-delta timestamps and XOR-encoded values.
+ * Prices are usually exact cents; a column whose values all are exact decimals with at
+ * most four places is encoded as the scaled integers (still as doubles), whose XORs
+ * have long runs of trailing zeros, and divided back on decode, which restores the
+ * exact same doubles. Any other column is encoded as raw doubles, so the format is
+ * lossless either way.
+ *
+ * Each block carries a summary: bar count, first and last time, and the minimum,
+ * maximum, first and last value of every column. Time lookups and min/max queries over
+ * bar ranges use the summaries for whole blocks and decode (a single column of) at most
+ * the two partial blocks at the ends.
+ *
+ * <pre>
+ * block:   int count | int scales | long timeUnit | long firstTime | long lastTime
+ *          5 x (double min | double max | double first | double last)   (open, high, low, close, volume)
+ *          6 x int words   (time stream, then one stream per column)
+ *          long[] words
+ * scales:  3 bits per column, the number of decimal places, or 7 for raw doubles
+ * </pre>
+ *
+ * @author Atharva Usturge
+ */
+public final class CompressedSeries {
+    /** Bars per block. */
+    public static final int BLOCK_SIZE = 512;
+
+    /** The value columns. */
+    public enum Column { OPEN, HIGH, LOW, CLOSE, VOLUME }
+
+    private static final int COLUMNS = 5;
+    private static final int RAW = 7;
+    private static final int MAX_DECIMALS = 4;
+    private static final double[] POW10 = {1, 10, 100, 1000, 10000};
+
+    /** Size of the fixed part of an encoded block, which is enough for {@link #blockLength}. */
+    public static final int BLOCK_HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + COLUMNS * 32 + (COLUMNS + 1) * 4;
+
+    /** One encoded block. */
+    private static final class Block {
+        final int count;
+        final int scales;
+        final long unit;
+        final long firstTime;
+        final long lastTime;
+        // per column: min, max, first, last
+        final double[] summary;
+        // streams in order time, open, high, low, close, volume; start word of each plus the end
+        final int[] streamStart;
+        final long[] words;
+
+        Block(int count, int scales, long unit, long firstTime, long lastTime, double[] summary,
+              int[] streamStart, long[] words) {
+            this.count = count;
+            this.scales = scales;
+            this.unit = unit;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+            this.summary = summary;
+            this.streamStart = streamStart;
+            this.words = words;
+        }
+
+        int scale(int column) {
+            return (scales >>> (3 * column)) & 7;
+        }
+
+        double min(int column) { return summary[column * 4]; }
+        double max(int column) { return summary[column * 4 + 1]; }
+
+        int bytes() {
+            return BLOCK_HEADER_BYTES + 8 * words.length;
+        }
+    }
+
+    private final Block[] blocks;
+    private final int size;
+    private final boolean intraday;
+
+    private CompressedSeries(Block[] blocks, boolean intraday) {
+        this.blocks = blocks;
+        this.intraday = intraday;
+        int n = 0;
+        for (Block b : blocks) n += b.count;
+        this.size = n;
+    }
+
+    /**
+     * Compresses a series.
+     *
+     * @param s the bars, oldest first
+     * @return the compressed copy
+     */
+    public static CompressedSeries encode(TimeSeries s) {
+        int n = s.size();
+        long[] t = new long[n];
+        double[][] cols = new double[COLUMNS][n];
+        for (int i = 0; i < n; i++) {
+            t[i] = s.time(i);
+            cols[0][i] = s.open(i);
+            cols[1][i] = s.high(i);
+            cols[2][i] = s.low(i);
+            cols[3][i] = s.close(i);
+            cols[4][i] = s.volume(i);
+        }
+        Block[] blocks = new Block[(n + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        for (int b = 0; b < blocks.length; b++) {
+            int from = b * BLOCK_SIZE;
+            blocks[b] = encodeBlock(t, cols, from, Math.min(BLOCK_SIZE, n - from));
+        }
+        return new CompressedSeries(blocks, s.isIntraday());
+    }
+
+    private static Block encodeBlock(long[] t, double[][] cols, int from, int n) {
+        long unit = 0;
+        for (int i = from + 1; i < from + n; i++) unit = gcd(unit, t[i] - t[i - 1]);
+        if (unit <= 0) unit = 1;
+
+        double[] summary = new double[COLUMNS * 4];
+        int scales = 0;
+        int[] streamStart = new int[COLUMNS + 2];
+        Gorilla.BitWriter out = new Gorilla.BitWriter();
+        Gorilla.encodeTimes(t, from, n, unit, out);
+        double[] scaled = new double[n];
+        for (int c = 0; c < COLUMNS; c++) {
+            out.alignToWord();
+            streamStart[c + 1] = out.wordCount();
+            double[] v = cols[c];
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < from + n; i++) {
+                if (v[i] < min) min = v[i];
+                if (v[i] > max) max = v[i];
+            }
+            summary[c * 4] = min;
+            summary[c * 4 + 1] = max;
+            summary[c * 4 + 2] = v[from];
+            summary[c * 4 + 3] = v[from + n - 1];
+
+            int scale = decimals(v, from, n);
+            scales |= scale << (3 * c);
+            if (scale == RAW) {
+                Gorilla.encodeValues(v, from, n, out);
+            } else {
+                double p = POW10[scale];
+                for (int i = 0; i < n; i++) scaled[i] = Math.rint(v[from + i] * p);
+                Gorilla.encodeValues(scaled, 0, n, out);
+            }
+        }
+        out.alignToWord();
+        streamStart[COLUMNS + 1] = out.wordCount();
+        return new Block(n, scales, unit, t[from], t[from + n - 1], summary, streamStart, out.toWords());
+    }
+
+    /**
+     * @return the fewest decimal places (up to {@link #MAX_DECIMALS}) at which every value
+     *         survives a round trip through a scaled integer, or {@link #RAW}
+     */
+    private static int decimals(double[] v, int from, int n) {
+        int d = 0;
+        for (int i = from; i < from + n; i++) {
+            double x = v[i];
+            while (d <= MAX_DECIMALS) {
+                double r = Math.rint(x * POW10[d]);
+                if (Math.abs(r) < 0x1p53 && r / POW10[d] == x && Double.doubleToRawLongBits(x) != Double.doubleToRawLongBits(-0.0)) break;
+                d++;
+            }
+            if (d > MAX_DECIMALS) return RAW;
+        }
+        return d;
+    }
+
+    private static long gcd(long a, long b) {
+        a = Math.abs(a);
+        b = Math.abs(b);
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /** @return number of bars */
+    public int size() { return size; }
+
+    /** @return true if the bars carry a time of day */
+    public boolean isIntraday() { return intraday; }
+
+    /** @return number of blocks */
+    public int blockCount() { return blocks.length; }
+
+    /** @return the encoded size in bytes, as written by {@link #write} */
+    public int sizeInBytes() {
+        int bytes = 0;
+        for (Block b : blocks) bytes += b.bytes();
+        return bytes;
+    }
+
+    /**
+     * @param block a block index, up to {@link #blockCount()}
+     * @return bytes written by {@link #write} before that block
+     */
+    public int blockOffset(int block) {
+        int bytes = 0;
+        for (int b = 0; b < block; b++) bytes += blocks[b].bytes();
+        return bytes;
+    }
+
+    /**
+     * Measures an encoded block from its fixed part, without reading its bit streams, so
+     * a file of blocks can be walked from block to block.
+     *
+     * @param in holds at least {@link #BLOCK_HEADER_BYTES} bytes from {@code at}
+     * @param at absolute index of the block
+     * @return the block's total size in bytes
+     * @throws IOException if the fixed part is truncated or malformed
+     */
+    public static int blockLength(ByteBuffer in, int at) throws IOException {
+        if (in.limit() - at < BLOCK_HEADER_BYTES) throw new IOException("Truncated compressed block");
+        int count = in.getInt(at);
+        long words = 0;
+        for (int s = 0, p = at + BLOCK_HEADER_BYTES - (COLUMNS + 1) * 4; s < COLUMNS + 1; s++, p += 4) {
+            int w = in.getInt(p);
+            if (w < 0) throw new IOException("Malformed compressed block");
+            words += w;
+        }
+        long bytes = BLOCK_HEADER_BYTES + 8 * words;
+        if (count <= 0 || count > BLOCK_SIZE || bytes > Integer.MAX_VALUE) throw new IOException("Malformed compressed block");
+        return (int) bytes;
+    }
+
+    /** @return time of the first bar; the series must not be empty */
+    public long firstTime() { return blocks[0].firstTime; }
+
+    /** @return time of the last bar; the series must not be empty */
+    public long lastTime() { return blocks[blocks.length - 1].lastTime; }
+
+    /**
+     * Decompresses every bar.
+     *
+     * @return the bars, oldest first
+     */
+    public TimeSeries decode() {
+        return decode(0, size);
+    }
+
+    /**
+     * Decompresses bars {@code [from, to)}; only the blocks holding them are decoded.
+     *
+     * @param from first bar (inclusive)
+     * @param to   last bar (exclusive)
+     * @return the bars, oldest first
+     */
+    public TimeSeries decode(int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(size, to);
+        if (from >= to) return TimeSeries.EMPTY;
+        int first = from / BLOCK_SIZE, last = (to - 1) / BLOCK_SIZE;
+        int base = first * BLOCK_SIZE;
+        int span = Math.min(size, (last + 1) * BLOCK_SIZE) - base;
+        long[] t = new long[span];
+        double[][] cols = new double[COLUMNS][span];
+        for (int b = first; b <= last; b++) {
+            Block blk = blocks[b];
+            int off = b * BLOCK_SIZE - base;
+            Gorilla.decodeTimes(new Gorilla.BitReader(blk.words, 0), blk.firstTime, blk.unit, blk.count, t, off);
+            for (int c = 0; c < COLUMNS; c++) decodeColumn(blk, c, cols[c], off);
+        }
+        int lo = from - base, hi = to - base;
+        if (lo == 0 && hi == span) return new TimeSeries(t, cols[0], cols[1], cols[2], cols[3], cols[4], intraday);
+        return new TimeSeries(Arrays.copyOfRange(t, lo, hi), Arrays.copyOfRange(cols[0], lo, hi),
+                Arrays.copyOfRange(cols[1], lo, hi), Arrays.copyOfRange(cols[2], lo, hi),
+                Arrays.copyOfRange(cols[3], lo, hi), Arrays.copyOfRange(cols[4], lo, hi), intraday);
+    }
+
+    private static void decodeColumn(Block blk, int c, double[] out, int off) {
+        Gorilla.decodeValues(new Gorilla.BitReader(blk.words, blk.streamStart[c + 1]), blk.count, out, off);
+        int scale = blk.scale(c);
+        if (scale != RAW && scale > 0) {
+            double p = POW10[scale];
+            for (int i = off; i < off + blk.count; i++) out[i] /= p;
+        }
+    }
+
+    /**
+     * Decompresses the bars with {@code fromTime <= time < toTime}.
+     *
+     * @param fromTime start (epoch seconds, inclusive)
+     * @param toTime   end (epoch seconds, exclusive)
+     * @return the bars, oldest first
+     */
+    public TimeSeries range(long fromTime, long toTime) {
+        return decode(indexOf(fromTime), indexOf(toTime));
+    }
+
+    /**
+     * Finds the first bar at or after a time. Blocks are located through their summaries;
+     * only the time stream of one block is decoded.
+     *
+     * @param time epoch seconds
+     * @return index of the first bar with {@code time(i) >= time}, or {@link #size()} if none
+     */
+    public int indexOf(long time) {
+        int lo = 0, hi = blocks.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blocks[mid].lastTime < time) lo = mid + 1;
+            else hi = mid;
+        }
+        if (lo == blocks.length) return size;
+        Block blk = blocks[lo];
+        if (blk.firstTime >= time) return lo * BLOCK_SIZE;
+        long[] t = new long[blk.count];
+        Gorilla.decodeTimes(new Gorilla.BitReader(blk.words, 0), blk.firstTime, blk.unit, blk.count, t, 0);
+        int i = Arrays.binarySearch(t, time);
+        if (i < 0) i = -i - 1;
+        else while (i > 0 && t[i - 1] == time) i--;
+        return lo * BLOCK_SIZE + i;
+    }
+
+    /**
+     * Smallest value of a column over bars {@code [from, to)}, answered from the block
+     * summaries except for partially covered blocks, of which only that column is decoded.
+     *
+     * @param column the column
+     * @param from   first bar (inclusive)
+     * @param to     last bar (exclusive)
+     * @return the minimum, or +Infinity if the range is empty
+     */
+    public double min(Column column, int from, int to) {
+        return extreme(column.ordinal(), from, to, false);
+    }
+
+    /**
+     * Largest value of a column over bars {@code [from, to)}; see {@link #min}.
+     *
+     * @param column the column
+     * @param from   first bar (inclusive)
+     * @param to     last bar (exclusive)
+     * @return the maximum, or -Infinity if the range is empty
+     */
+    public double max(Column column, int from, int to) {
+        return extreme(column.ordinal(), from, to, true);
+    }
+
+    private double extreme(int c, int from, int to, boolean max) {
+        from = Math.max(0, from);
+        to = Math.min(size, to);
+        double res = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        if (from >= to) return res;
+        double[] scratch = null;
+        for (int b = from / BLOCK_SIZE; b <= (to - 1) / BLOCK_SIZE; b++) {
+            Block blk = blocks[b];
+            int start = b * BLOCK_SIZE;
+            int lo = Math.max(from, start) - start, hi = Math.min(to, start + blk.count) - start;
+            if (lo == 0 && hi == blk.count) {
+                res = max ? Math.max(res, blk.max(c)) : Math.min(res, blk.min(c));
+                continue;
+            }
+            if (scratch == null) scratch = new double[BLOCK_SIZE];
+            decodeColumn(blk, c, scratch, 0);
+            for (int i = lo; i < hi; i++) res = max ? Math.max(res, scratch[i]) : Math.min(res, scratch[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Merges newer bars the way {@link SeriesStore#merge} does: bars older than the last
+     * one are ignored, a bar at the last time replaces it, newer bars are appended. Only
+     * the last block is decoded and re-encoded; every block before it is shared with this
+     * copy, so the merged copy's blocks from {@code blockCount() - 1} of this one on are
+     * all that is new.
+     *
+     * @param fresh bars, oldest first
+     * @return the merged copy, or this one if nothing changed (no newer bars, and the bar
+     *         at the last time, if any, is identical to the stored one)
+     */
+    public CompressedSeries merge(TimeSeries fresh) {
+        if (blocks.length == 0) return encode(fresh);
+        long lastTime = lastTime();
+        int from = 0;
+        while (from < fresh.size() && fresh.time(from) < lastTime) from++;
+        if (from == fresh.size()) return this;
+        if (from == fresh.size() - 1 && fresh.time(from) == lastTime && isLastBar(fresh, from)) return this;
+
+        int keep = blocks.length - 1;
+        TimeSeries tail = decode(keep * BLOCK_SIZE, size);
+        int m = tail.size();
+        SeriesBuilder b = new SeriesBuilder(m + fresh.size() - from);
+        b.setIntraday(intraday);
+        int copy = fresh.time(from) == lastTime ? m - 1 : m;
+        for (int i = 0; i < copy; i++) b.add(tail.time(i), tail.open(i), tail.high(i), tail.low(i), tail.close(i), tail.volume(i));
+        for (int i = from; i < fresh.size(); i++) {
+            b.add(fresh.time(i), fresh.open(i), fresh.high(i), fresh.low(i), fresh.close(i), fresh.volume(i));
+        }
+        CompressedSeries enc = encode(b.build());
+        Block[] merged = Arrays.copyOf(blocks, keep + enc.blocks.length);
+        System.arraycopy(enc.blocks, 0, merged, keep, enc.blocks.length);
+        return new CompressedSeries(merged, intraday);
+    }
+
+    /** True if bar {@code i} of {@code s} has the same values as the last bar, which the summaries hold. */
+    private boolean isLastBar(TimeSeries s, int i) {
+        double[] last = blocks[blocks.length - 1].summary;
+        return Double.compare(s.open(i), last[3]) == 0
+                && Double.compare(s.high(i), last[4 + 3]) == 0
+                && Double.compare(s.low(i), last[8 + 3]) == 0
+                && Double.compare(s.close(i), last[12 + 3]) == 0
+                && Double.compare(s.volume(i), last[16 + 3]) == 0;
+    }
+
+    /**
+     * Writes every block.
+     *
+     * @param out receives {@link #sizeInBytes()} bytes
+     */
+    public void write(ByteBuffer out) {
+        for (Block b : blocks) {
+            out.putInt(b.count).putInt(b.scales).putLong(b.unit).putLong(b.firstTime).putLong(b.lastTime);
+            for (double d : b.summary) out.putDouble(d);
+            for (int s = 0; s < COLUMNS + 1; s++) out.putInt(b.streamStart[s + 1] - b.streamStart[s]);
+            for (long w : b.words) out.putLong(w);
+        }
+    }
+
+    /**
+     * Reads blocks written by {@link #write} up to the end of the buffer. The bit streams
+     * are copied out but not decoded.
+     *
+     * @param in       the encoded blocks
+     * @param intraday whether the bars carry a time of day
+     * @return the compressed series
+     * @throws IOException if a block is truncated or malformed
+     */
+    public static CompressedSeries read(ByteBuffer in, boolean intraday) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        while (in.hasRemaining()) {
+            if (in.remaining() < BLOCK_HEADER_BYTES) throw new IOException("Truncated compressed block");
+            int count = in.getInt();
+            int scales = in.getInt();
+            long unit = in.getLong();
+            long firstTime = in.getLong();
+            long lastTime = in.getLong();
+            double[] summary = new double[COLUMNS * 4];
+            for (int i = 0; i < summary.length; i++) summary[i] = in.getDouble();
+            int[] streamStart = new int[COLUMNS + 2];
+            for (int s = 0; s < COLUMNS + 1; s++) {
+                int words = in.getInt();
+                if (words < 0) throw new IOException("Malformed compressed block");
+                streamStart[s + 1] = streamStart[s] + words;
+            }
+            int total = streamStart[COLUMNS + 1];
+            if (count <= 0 || count > BLOCK_SIZE || unit <= 0 || (long) total * 8 > in.remaining()) {
+                throw new IOException("Malformed compressed block");
+            }
+            long[] words = new long[total];
+            in.asLongBuffer().get(words);
+            in.position(in.position() + total * 8);
+            blocks.add(new Block(count, scales, unit, firstTime, lastTime, summary, streamStart, words));
+        }
+        for (int b = 0; b < blocks.size() - 1; b++) {
+            if (blocks.get(b).count != BLOCK_SIZE) throw new IOException("Malformed compressed block");
+        }
+        return new CompressedSeries(blocks.toArray(new Block[0]), intraday);
+    }
+}
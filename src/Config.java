@@ -5,6 +5,7 @@ import java.util.Properties;
 
 public class Config {
     private static String cachedKey = null;
+    private static Properties cachedProps = null;
 
     /**
      * @return 
@@ -31,4 +32,71 @@ public class Config {
             return "";
         }
     }
+
+    /**
+     * Looks up a setting, preferring the environment variable over `config.properties`.
+     *
+     * @param envName  environment variable to check first (e.g. "STOCK_OUTPUTSIZE")
+     * @param propKey  key in `config.properties` (e.g. "stock.outputsize")
+     * @param fallback value returned when neither source defines the setting
+     * @return the configured value, trimmed, or {@code fallback}
+     */
+    public static String get(String envName, String propKey, String fallback) {
+        String v = envName == null ? null : System.getenv(envName);
+        if (v != null && !v.trim().isEmpty()) return v.trim();
+        v = properties().getProperty(propKey);
+        if (v != null && !v.trim().isEmpty()) return v.trim();
+        return fallback;
+    }
+
+    /**
+     * Integer variant of {@link #get(String, String, String)}. Malformed values fall back
+     * to {@code fallback}.
+     */
+    public static int getInt(String envName, String propKey, int fallback) {
+        String v = get(envName, propKey, null);
+        if (v == null) return fallback;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * @return the Alpha Vantage `outputsize` to request: "compact" (latest 100 bars, the
+     *         default) or "full" (the whole history)
+     */
+    public static String getOutputSize() {
+        String v = get("STOCK_OUTPUTSIZE", "stock.outputsize", "compact");
+        return v.equalsIgnoreCase("full") ? "full" : "compact";
+    }
+
+    /**
+     * @return the chart indicators as a comma-separated list (e.g. "SMA20,EMA50,BB20,VWAP");
+     *         see {@link Indicators#parseOverlays(String)}. Defaults to "SMA20,EMA50".
+     */
+    public static String getIndicators() {
+        return get("STOCK_INDICATORS", "stock.indicators", "SMA20,EMA50");
+    }
+
+    /**
+     * @return the watchlist symbols as a comma-separated list (e.g. "AAPL,MSFT,IBM");
+     *         defaults to a handful of large caps
+     */
+    public static String getWatchlist() {
+        return get("STOCK_WATCHLIST", "stock.watchlist", "AAPL,MSFT,GOOGL,AMZN,NVDA,META,TSLA,IBM");
+    }
+
+    private static synchronized Properties properties() {
+        if (cachedProps != null) return cachedProps;
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream("config.properties")) {
+            props.load(in);
+        } catch (IOException e) {
+            // No config file: every lookup falls back to env vars and defaults
+        }
+        cachedProps = props;
+        return cachedProps;
+    }
 }
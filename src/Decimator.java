@@ -0,0 +1,164 @@
+/**
+ * Reduces a long series to a pixel-bounded set of representative points before drawing.
+ * Both strategies select bar indices (never synthesize values), so hit-testing and
+ * labels still refer to real bars. Output goes into a caller-supplied index array so
+ * repeated repaints do not allocate.
+ *
+ * <ul>
+ *   <li>{@link #minMax} keeps the lowest and highest bar of every pixel column, which
+ *       preserves every visible peak and trough exactly (at most 2 points per column).
+ *       Given a {@link RangeMinMax} it looks each column up instead of scanning it.</li>
+ *   <li>{@link #lttb} implements Largest-Triangle-Three-Buckets, which keeps the visual
+ *       shape with fewer points and suits small renderings such as sparklines.</li>
+ * </ul>
+ *
+ * @author Atharva Usturge
+ */
+public final class Decimator {
+    private Decimator() {
+    }
+
+    /**
+     * Min/max-per-column decimation of the close column over {@code [from, to)}.
+     * The range is split into {@code columns} equal buckets; for each bucket the
+     * indices of its minimum and maximum close are emitted in index order. The first
+     * and last bar of the range are always kept. If the range already fits, every
+     * index is emitted.
+     *
+     * @param s       the series
+     * @param from    first bar index (inclusive)
+     * @param to      last bar index (exclusive)
+     * @param columns number of pixel columns available
+     * @param out     receives the selected indices; must hold at least {@code 2 * columns + 2}
+     *                entries, or {@code to - from} if that is smaller
+     * @return the number of indices written to {@code out}
+     */
+    public static int minMax(TimeSeries s, int from, int to, int columns, int[] out) {
+        int n = to - from;
+        if (n <= 0) return 0;
+        if (columns < 1) columns = 1;
+        if (n <= 2 * columns + 2) {
+            for (int i = 0; i < n; i++) out[i] = from + i;
+            return n;
+        }
+        int k = 0;
+        out[k++] = from;
+        double perColumn = (double) n / columns;
+        for (int c = 0; c < columns; c++) {
+            int start = from + (int) (c * perColumn);
+            int end = c == columns - 1 ? to : from + (int) ((c + 1) * perColumn);
+            if (start >= end) continue;
+            int lo = start, hi = start;
+            double loV = s.close(start), hiV = loV;
+            for (int i = start + 1; i < end; i++) {
+                double v = s.close(i);
+                if (v < loV) { loV = v; lo = i; }
+                if (v > hiV) { hiV = v; hi = i; }
+            }
+            int a = Math.min(lo, hi), b = Math.max(lo, hi);
+            if (a > out[k - 1]) out[k++] = a;
+            if (b > out[k - 1]) out[k++] = b;
+        }
+        if (out[k - 1] != to - 1) out[k++] = to - 1;
+        return k;
+    }
+
+    /**
+     * The same decimation as {@link #minMax(TimeSeries, int, int, int, int[])}, with each
+     * column's lowest and highest close looked up in a {@link RangeMinMax} of the close
+     * column instead of scanned, so the cost is O(columns log n) however many bars the
+     * range spans.
+     *
+     * @param closes  min/max index of the close column
+     * @param from    first bar index (inclusive)
+     * @param to      last bar index (exclusive)
+     * @param columns number of pixel columns available
+     * @param out     receives the selected indices, as for the scanning version
+     * @return the number of indices written to {@code out}
+     */
+    public static int minMax(RangeMinMax closes, int from, int to, int columns, int[] out) {
+        int n = to - from;
+        if (n <= 0) return 0;
+        if (columns < 1) columns = 1;
+        if (n <= 2 * columns + 2) {
+            for (int i = 0; i < n; i++) out[i] = from + i;
+            return n;
+        }
+        int k = 0;
+        out[k++] = from;
+        double perColumn = (double) n / columns;
+        for (int c = 0; c < columns; c++) {
+            int start = from + (int) (c * perColumn);
+            int end = c == columns - 1 ? to : from + (int) ((c + 1) * perColumn);
+            if (start >= end) continue;
+            int lo = closes.argMin(start, end), hi = closes.argMax(start, end);
+            int a = Math.min(lo, hi), b = Math.max(lo, hi);
+            if (a > out[k - 1]) out[k++] = a;
+            if (b > out[k - 1]) out[k++] = b;
+        }
+        if (out[k - 1] != to - 1) out[k++] = to - 1;
+        return k;
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets decimation of the close column over {@code [from, to)}.
+     * Keeps the first and last bar and, from each of {@code threshold - 2} buckets, the bar
+     * forming the largest triangle with the previously kept bar and the next bucket's mean.
+     *
+     * @param s         the series
+     * @param from      first bar index (inclusive)
+     * @param to        last bar index (exclusive)
+     * @param threshold the number of points to keep (values below 3 are treated as 3)
+     * @param out       receives the selected indices; must hold {@code min(max(threshold, 3), to - from)} entries
+     * @return the number of indices written to {@code out}
+     */
+    public static int lttb(TimeSeries s, int from, int to, int threshold, int[] out) {
+        int n = to - from;
+        if (n <= 0) return 0;
+        if (threshold < 3) threshold = 3;
+        if (threshold >= n) {
+            for (int i = 0; i < n; i++) out[i] = from + i;
+            return n;
+        }
+        int k = 0;
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = from;
+        out[k++] = a;
+        for (int i = 0; i < threshold - 2; i++) {
+            // mean of the next bucket
+            int avgStart = from + (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int) ((i + 2) * every) + 1, to);
+            double avgX = 0, avgY = 0;
+            int avgLen = avgEnd - avgStart;
+            if (avgLen <= 0) {
+                avgX = to - 1;
+                avgY = s.close(to - 1);
+            } else {
+                for (int j = avgStart; j < avgEnd; j++) {
+                    avgX += j;
+                    avgY += s.close(j);
+                }
+                avgX /= avgLen;
+                avgY /= avgLen;
+            }
+
+            // bar in this bucket with the largest triangle area
+            int rangeStart = from + (int) (i * every) + 1;
+            int rangeEnd = from + (int) ((i + 1) * every) + 1;
+            double ax = a, ay = s.close(a);
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (s.close(j) - ay) - (ax - j) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            out[k++] = next;
+            a = next;
+        }
+        out[k++] = to - 1;
+        return k;
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.Objects;
+
+/**
+ * Identifies one provider request: the API function, symbol, bar interval and output size.
+ * Used as the key of {@link SeriesCache}. Symbols are compared case-insensitively.
+ *
+ * @author Atharva Usturge
+ */
+public final class FetchKey {
+    private final String function;
+    private final String symbol;
+    private final String interval;
+    private final String outputSize;
+
+    /**
+     * @param function   the Alpha Vantage function, e.g. "TIME_SERIES_DAILY"
+     * @param symbol     the stock symbol
+     * @param interval   the bar interval for intraday functions (e.g. "60min"), or null
+     * @param outputSize "compact" or "full"
+     */
+    public FetchKey(String function, String symbol, String interval, String outputSize) {
+        this.function = Objects.requireNonNull(function, "function");
+        this.symbol = Objects.requireNonNull(symbol, "symbol").toUpperCase();
+        this.interval = interval;
+        this.outputSize = Objects.requireNonNull(outputSize, "outputSize");
+    }
+
+    /** Key for a daily series request. */
+    public static FetchKey daily(String symbol, String outputSize) {
+        return new FetchKey("TIME_SERIES_DAILY", symbol, null, outputSize);
+    }
+
+    public String getFunction() { return function; }
+    public String getSymbol() { return symbol; }
+    public String getInterval() { return interval; }
+    public String getOutputSize() { return outputSize; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FetchKey)) return false;
+        FetchKey k = (FetchKey) o;
+        return function.equals(k.function) && symbol.equals(k.symbol)
+                && Objects.equals(interval, k.interval) && outputSize.equals(k.outputSize);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(function, symbol, interval, outputSize);
+    }
+
+    @Override
+    public String toString() {
+        return function + ":" + symbol + (interval != null ? ":" + interval : "") + ":" + outputSize;
+    }
+}
@@ -0,0 +1,313 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs data jobs off the EDT in priority order while keeping provider calls inside the
+ * API's rate limit.
+ *
+ * <ul>
+ *   <li>Jobs wait in a priority queue: user-initiated lookups always start before
+ *       background refreshes. Background jobs are additionally bounded by a
+ *       concurrency limit so a long watchlist cannot crowd out the user; those over
+ *       the limit are set aside and started, oldest first, as running ones finish.</li>
+ *   <li>Jobs submitted under the same group supersede each other: submitting a new
+ *       lookup cancels the previous one, dropping it from the queue or interrupting it
+ *       while it waits for the rate limiter.</li>
+ *   <li>Provider calls made through {@link #callWithRetry} take a token from the
+ *       {@link RateLimiter} (user jobs first) and are retried with exponential backoff
+ *       when the provider reports throttling.</li>
+ * </ul>
+ *
+ * Jobs run on virtual threads when the runtime provides them (JDK 21+) and on daemon
+ * platform threads otherwise.
+ *
+ * @author Atharva Usturge
+ */
+public class FetchScheduler {
+    /** Job priority; lower ordinal runs first. */
+    public enum Priority { USER, BACKGROUND }
+
+    /** A provider call that can be retried. */
+    public interface Call<T> {
+        T call() throws IOException;
+    }
+
+    // Priority of the job running on the current thread, read by callWithRetry
+    private static final ThreadLocal<Priority> CURRENT = new ThreadLocal<>();
+
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60_000L;
+
+    private final class Job<T> implements Comparable<Job<?>> {
+        final Priority priority;
+        final long seq;
+        final String group;
+        final Callable<T> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        // Guarded by "this"; set while the job's thread is running it
+        Thread runner;
+
+        Job(Priority priority, long seq, String group, Callable<T> task) {
+            this.priority = priority;
+            this.seq = seq;
+            this.group = group;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Job<?> o) {
+            int c = priority.compareTo(o.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+
+        void run() {
+            synchronized (this) {
+                if (future.isDone()) return;
+                runner = Thread.currentThread();
+            }
+            CURRENT.set(priority);
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                CURRENT.remove();
+                synchronized (this) {
+                    runner = null;
+                    // Clear an interrupt aimed at this job so it cannot leak into the next task
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        synchronized void interrupt() {
+            if (runner != null) runner.interrupt();
+        }
+    }
+
+    private final RateLimiter limiter;
+    private final int maxRetries;
+    private final long backoffMillis;
+    private final PriorityBlockingQueue<Job<?>> queue = new PriorityBlockingQueue<>();
+    private final ConcurrentHashMap<String, Job<?>> groups = new ConcurrentHashMap<>();
+    private final int backgroundConcurrency;
+    private final Object slots = new Object();
+    // Guarded by "slots": background jobs waiting for a slot, and the number of slots taken
+    private final PriorityQueue<Job<?>> parked = new PriorityQueue<>();
+    private int backgroundRunning;
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private final AtomicLong seq = new AtomicLong();
+    private volatile boolean shutdown;
+
+    /**
+     * @param limiter               the provider rate limiter
+     * @param backgroundConcurrency how many background jobs may run at once
+     * @param maxRetries            how often a throttled call is retried
+     * @param backoffMillis         the first retry delay; doubles on every further retry
+     */
+    public FetchScheduler(RateLimiter limiter, int backgroundConcurrency, int maxRetries, long backoffMillis) {
+        this.limiter = limiter;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoffMillis = Math.max(1, backoffMillis);
+        this.backgroundConcurrency = Math.max(1, backgroundConcurrency);
+        this.workers = newWorkerPool();
+        this.dispatcher = new Thread(this::dispatch, "fetch-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Creates a scheduler from the configuration: `stock.fetch.concurrency` (default 4
+     * background jobs), `stock.fetch.retries` (default 3) and `stock.fetch.backoff.seconds`
+     * (default 15), each overridable by the matching `STOCK_FETCH_*` env var, plus the
+     * limiter from {@link RateLimiter#fromConfig()}.
+     *
+     * @return the scheduler
+     */
+    public static FetchScheduler fromConfig() {
+        int concurrency = Config.getInt("STOCK_FETCH_CONCURRENCY", "stock.fetch.concurrency", 4);
+        int retries = Config.getInt("STOCK_FETCH_RETRIES", "stock.fetch.retries", 3);
+        int backoff = Config.getInt("STOCK_FETCH_BACKOFF_SECONDS", "stock.fetch.backoff.seconds", 15);
+        return new FetchScheduler(RateLimiter.fromConfig(), concurrency, retries, backoff * 1000L);
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param priority the job priority
+     * @param group    supersession group: a queued or running job with the same group is
+     *                 cancelled. May be null for jobs that never supersede each other.
+     * @param task     the work to run
+     * @return a future for the job's result; cancelling it cancels the job
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, String group, Callable<T> task) {
+        if (shutdown) throw new IllegalStateException("scheduler is shut down");
+        Job<T> job = new Job<>(priority, seq.incrementAndGet(), group, task);
+        job.future.whenComplete((r, t) -> {
+            if (job.future.isCancelled()) {
+                if (!queue.remove(job)) {
+                    synchronized (slots) {
+                        parked.remove(job);
+                    }
+                }
+                job.interrupt();
+            }
+            if (job.group != null) groups.remove(job.group, job);
+        });
+        if (group != null) {
+            Job<?> previous = groups.put(group, job);
+            if (previous != null) previous.future.cancel(true);
+        }
+        queue.offer(job);
+        return job.future;
+    }
+
+    /**
+     * Makes one provider call within the rate limit, retrying with exponential backoff
+     * while the provider reports throttling. Calls from user jobs are served before calls
+     * from background jobs; calls from threads outside the scheduler count as user calls.
+     *
+     * @param call the provider call
+     * @return the call's result
+     * @throws IOException if the call fails, keeps being throttled, or the job is cancelled
+     */
+    public <T> T callWithRetry(Call<T> call) throws IOException {
+        boolean urgent = isUrgent();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                limiter.acquire(urgent);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Request cancelled");
+            }
+            try {
+                return call.call();
+            } catch (ApiException ex) {
+                if (!ex.isThrottled() || attempt >= maxRetries) throw ex;
+                long delay = Math.min(MAX_BACKOFF_MILLIS, backoffMillis << attempt);
+                delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+                System.err.println("Provider throttled the request, retrying in " + (delay / 1000) + "s");
+                // Hold back every caller, not just this one, until the provider has recovered
+                limiter.pause(delay);
+            }
+        }
+    }
+
+    /**
+     * @return false on a thread running a background job, true on a thread running a user
+     *         job or outside the scheduler
+     */
+    public static boolean isUrgent() {
+        return CURRENT.get() != Priority.BACKGROUND;
+    }
+
+    /** @return number of jobs waiting to start */
+    public int getQueueDepth() {
+        synchronized (slots) {
+            return queue.size() + parked.size();
+        }
+    }
+
+    /** @return the rate limiter provider calls go through */
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+
+    /** Cancels every queued job and stops accepting new ones. Running jobs are interrupted. */
+    public void shutdown() {
+        shutdown = true;
+        dispatcher.interrupt();
+        Job<?> job;
+        while ((job = queue.poll()) != null) job.future.cancel(true);
+        while (true) {
+            synchronized (slots) {
+                job = parked.poll();
+            }
+            if (job == null) break;
+            job.future.cancel(true);
+        }
+        workers.shutdownNow();
+    }
+
+    private void dispatch() {
+        while (!shutdown) {
+            Job<?> job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException ie) {
+                return;
+            }
+            if (job.future.isDone()) continue;
+            if (job.priority == Priority.BACKGROUND) {
+                synchronized (slots) {
+                    if (backgroundRunning >= backgroundConcurrency) {
+                        // All background slots busy: set it aside so the dispatcher is free for
+                        // user jobs; the next background job to finish starts it
+                        parked.offer(job);
+                        continue;
+                    }
+                    backgroundRunning++;
+                }
+                start(job, true);
+            } else {
+                start(job, false);
+            }
+        }
+    }
+
+    private void start(Job<?> job, boolean holdsSlot) {
+        try {
+            workers.execute(() -> {
+                try {
+                    job.run();
+                } finally {
+                    if (holdsSlot) releaseSlot();
+                }
+            });
+        } catch (RuntimeException ex) {
+            job.future.completeExceptionally(ex);
+            if (holdsSlot) releaseSlot();
+        }
+    }
+
+    /** Hands a finished background job's slot to the oldest parked job, or frees it. */
+    private void releaseSlot() {
+        Job<?> next;
+        synchronized (slots) {
+            do {
+                next = parked.poll();
+            } while (next != null && next.future.isDone());
+            if (next == null) {
+                backgroundRunning--;
+                return;
+            }
+        }
+        start(next, true);
+    }
+
+    /**
+     * Virtual-thread-per-task executor when the runtime has one, otherwise a cached pool
+     * of daemon threads. Looked up reflectively so the code still compiles on JDK 17.
+     */
+    private static ExecutorService newWorkerPool() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            AtomicLong n = new AtomicLong();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "fetch-worker-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
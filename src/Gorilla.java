@@ -0,0 +1,190 @@
+import java.util.Arrays;
+
+/**
+ * Bit-level codecs of the Gorilla time series format (Pelkonen et al., VLDB 2015), used
+ * by {@link CompressedSeries}.
+ *
+ * <ul>
+ *   <li><b>Timestamps</b> are stored as delta-of-deltas in units of a common divisor of
+ *       the deltas (a day for daily bars, a minute for most intraday bars), so a regular
+ *       series costs one bit per bar and a weekend gap nine.</li>
+ *   <li><b>Values</b> are XORed with the previous value; an unchanged value costs one
+ *       bit, otherwise only the bits between the leading and trailing zeros of the XOR
+ *       are written, reusing the previous window when it still fits.</li>
+ * </ul>
+ *
+ * Bits are packed most-significant first into {@code long} words.
+ *
+ * @author Atharva Usturge
+ */
+final class Gorilla {
+    private Gorilla() {
+    }
+
+    /** Appends bits to a growable array of words. */
+    static final class BitWriter {
+        private long[] words = new long[64];
+        private long bits = 0;
+
+        /** Writes the low {@code n} bits of {@code value}, 0 &lt;= n &lt;= 64. */
+        void write(long value, int n) {
+            if (n == 0) return;
+            int idx = (int) (bits >>> 6);
+            if (idx + 1 >= words.length) words = Arrays.copyOf(words, words.length * 2);
+            if (n < 64) value &= (1L << n) - 1;
+            int free = 64 - (int) (bits & 63);
+            if (n <= free) {
+                words[idx] |= value << (free - n);
+            } else {
+                words[idx] |= value >>> (n - free);
+                words[idx + 1] |= value << (64 - (n - free));
+            }
+            bits += n;
+        }
+
+        /** @return the words written so far, padded to a whole word */
+        long[] toWords() {
+            return Arrays.copyOf(words, (int) ((bits + 63) >>> 6));
+        }
+
+        /** Starts a new stream: the next bit goes to a fresh word. */
+        void alignToWord() {
+            bits = (bits + 63) & ~63L;
+        }
+
+        /** @return the number of whole words used */
+        int wordCount() {
+            return (int) ((bits + 63) >>> 6);
+        }
+    }
+
+    /** Reads bits from an array of words. */
+    static final class BitReader {
+        private final long[] words;
+        private long pos;
+
+        BitReader(long[] words, int startWord) {
+            this.words = words;
+            this.pos = (long) startWord << 6;
+        }
+
+        /** @return the next {@code n} bits as an unsigned value, 0 &lt;= n &lt;= 64 */
+        long read(int n) {
+            if (n == 0) return 0;
+            int idx = (int) (pos >>> 6);
+            int off = (int) (pos & 63);
+            pos += n;
+            long v = (words[idx] << off) >>> (64 - n);
+            int free = 64 - off;
+            if (n > free) v |= words[idx + 1] >>> (64 - (n - free));
+            return v;
+        }
+
+        boolean readBit() {
+            int idx = (int) (pos >>> 6);
+            int off = (int) (pos & 63);
+            pos++;
+            return ((words[idx] << off) & Long.MIN_VALUE) != 0;
+        }
+    }
+
+    /**
+     * Encodes times {@code t[from + 1 .. from + n)} as delta-of-deltas; {@code t[from]} is
+     * stored by the caller.
+     *
+     * @param unit a positive divisor of every delta
+     */
+    static void encodeTimes(long[] t, int from, int n, long unit, BitWriter out) {
+        long prevDelta = 0;
+        for (int i = from + 1; i < from + n; i++) {
+            long delta = (t[i] - t[i - 1]) / unit;
+            long dod = delta - prevDelta;
+            prevDelta = delta;
+            if (dod == 0) {
+                out.write(0, 1);
+            } else if (dod >= -63 && dod <= 64) {
+                out.write(0b10, 2);
+                out.write(dod + 63, 7);
+            } else if (dod >= -255 && dod <= 256) {
+                out.write(0b110, 3);
+                out.write(dod + 255, 9);
+            } else if (dod >= -2047 && dod <= 2048) {
+                out.write(0b1110, 4);
+                out.write(dod + 2047, 12);
+            } else {
+                out.write(0b1111, 4);
+                out.write(dod, 64);
+            }
+        }
+    }
+
+    /** Decodes {@code n} times starting with {@code first} into {@code out[off ..]}. */
+    static void decodeTimes(BitReader in, long first, long unit, int n, long[] out, int off) {
+        if (n <= 0) return;
+        out[off] = first;
+        long prev = first, delta = 0;
+        for (int i = 1; i < n; i++) {
+            if (in.readBit()) {
+                long dod;
+                if (!in.readBit()) dod = in.read(7) - 63;
+                else if (!in.readBit()) dod = in.read(9) - 255;
+                else if (!in.readBit()) dod = in.read(12) - 2047;
+                else dod = in.read(64);
+                delta += dod;
+            }
+            prev += delta * unit;
+            out[off + i] = prev;
+        }
+    }
+
+    /** Encodes {@code v[from .. from + n)}: the first value raw, the rest XORed with their predecessor. */
+    static void encodeValues(double[] v, int from, int n, BitWriter out) {
+        if (n <= 0) return;
+        long prev = Double.doubleToRawLongBits(v[from]);
+        out.write(prev, 64);
+        int prevLead = -1, prevTrail = 0;
+        for (int i = from + 1; i < from + n; i++) {
+            long bits = Double.doubleToRawLongBits(v[i]);
+            long x = bits ^ prev;
+            prev = bits;
+            if (x == 0) {
+                out.write(0, 1);
+                continue;
+            }
+            // leading zero count is stored in 5 bits
+            int lead = Math.min(31, Long.numberOfLeadingZeros(x));
+            int trail = Long.numberOfTrailingZeros(x);
+            if (prevLead >= 0 && lead >= prevLead && trail >= prevTrail) {
+                out.write(0b10, 2);
+                out.write(x >>> prevTrail, 64 - prevLead - prevTrail);
+            } else {
+                int significant = 64 - lead - trail;
+                out.write(0b11, 2);
+                out.write(lead, 5);
+                out.write(significant - 1, 6);
+                out.write(x >>> trail, significant);
+                prevLead = lead;
+                prevTrail = trail;
+            }
+        }
+    }
+
+    /** Decodes {@code n} values into {@code out[off ..]}. */
+    static void decodeValues(BitReader in, int n, double[] out, int off) {
+        if (n <= 0) return;
+        long prev = in.read(64);
+        out[off] = Double.longBitsToDouble(prev);
+        int lead = 0, trail = 0;
+        for (int i = 1; i < n; i++) {
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    lead = (int) in.read(5);
+                    int significant = (int) in.read(6) + 1;
+                    trail = 64 - lead - significant;
+                }
+                prev ^= in.read(64 - lead - trail) << trail;
+            }
+            out[off + i] = Double.longBitsToDouble(prev);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+import javax.swing.JPanel;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Correlation heatmap of an {@link Analytics.Report}: one cell per symbol pair, blue for
+ * negative, red for positive correlation. Hovering a cell shows the pair's correlation
+ * and covariance and each symbol's beta against the benchmark and drawdown; clicking a
+ * cell reports its row symbol.
+ *
+ * The matrix is colored into an image with one pixel per cell once per report, so
+ * painting only scales that image; labels are drawn when the cells are large enough to
+ * hold them.
+ *
+ * All methods must be called on the EDT.
+ *
+ * @author Atharva Usturge
+ */
+public class HeatmapPanel extends JPanel {
+    private static final int PADDING = 10;
+    private static final int HEADER = 22;
+    // Smallest cell that still gets a symbol label beside its row and column
+    private static final int LABEL_CELL = 11;
+
+    private static final Color BACKGROUND = Color.BLACK;
+    private static final Color TEXT_COLOR = Color.WHITE;
+    private static final Color MUTED_COLOR = new Color(140, 140, 140);
+    private static final Color TOOLTIP_BG = new Color(40, 40, 40, 220);
+    private static final Color HOVER_COLOR = Color.WHITE;
+    // Colors at correlation -1, 0 and +1
+    private static final Color NEGATIVE = new Color(40, 110, 255);
+    private static final Color NEUTRAL = new Color(28, 28, 28);
+    private static final Color POSITIVE = new Color(255, 60, 40);
+    private static final Font LABEL_FONT = new Font("SansSerif", Font.PLAIN, 10);
+    private static final Font HEADER_FONT = new Font("SansSerif", Font.PLAIN, 12);
+
+    private Analytics.Report report;
+    private String benchmark = "";
+    private long computeMillis;
+    private String message = "No data";
+    private BufferedImage image;
+    private int hoverRow = -1;
+    private int hoverCol = -1;
+    private Consumer<String> cellListener;
+
+    // Matrix geometry of the last paint, for hit-testing
+    private int lastLeft;
+    private int lastTop;
+    private int lastSide;
+
+    /** Creates an empty heatmap. */
+    public HeatmapPanel() {
+        setBackground(BACKGROUND);
+        setOpaque(true);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                hover(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                hover(-1, -1);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = cellAt(e.getY() - lastTop);
+                if (row >= 0 && cellAt(e.getX() - lastLeft) >= 0 && cellListener != null) {
+                    cellListener.accept(report.getMatrix().getSymbols()[row]);
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    /**
+     * Shows a report.
+     *
+     * @param report        the analytics report, or null to clear
+     * @param benchmark     the symbol betas were measured against
+     * @param computeMillis how long the report took, shown in the header
+     */
+    public void setReport(Analytics.Report report, String benchmark, long computeMillis) {
+        this.report = report;
+        this.benchmark = benchmark == null ? "" : benchmark;
+        this.computeMillis = computeMillis;
+        this.image = report == null ? null : colorize(report.getMatrix().getCorrelation());
+        hoverRow = hoverCol = -1;
+        repaint();
+    }
+
+    /**
+     * Shows a message instead of a matrix while there is no report, e.g. while loading.
+     *
+     * @param message the text
+     */
+    public void setMessage(String message) {
+        this.message = message;
+        if (report == null) repaint();
+    }
+
+    /**
+     * @param listener called on the EDT with the row symbol of a clicked cell, or null
+     */
+    public void setCellListener(Consumer<String> listener) {
+        this.cellListener = listener;
+    }
+
+    private static BufferedImage colorize(double[][] corr) {
+        int n = corr.length;
+        if (n == 0) return null;
+        BufferedImage img = new BufferedImage(n, n, BufferedImage.TYPE_INT_RGB);
+        int[] rgb = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) rgb[i * n + j] = color(corr[i][j]);
+        }
+        img.setRGB(0, 0, n, n, rgb, 0, n);
+        return img;
+    }
+
+    /** @return the cell color of a correlation, interpolated from neutral towards blue or red */
+    private static int color(double c) {
+        if (Double.isNaN(c)) return MUTED_COLOR.getRGB();
+        Color to = c < 0 ? NEGATIVE : POSITIVE;
+        double f = Math.min(1, Math.abs(c));
+        int r = (int) (NEUTRAL.getRed() + (to.getRed() - NEUTRAL.getRed()) * f);
+        int g = (int) (NEUTRAL.getGreen() + (to.getGreen() - NEUTRAL.getGreen()) * f);
+        int b = (int) (NEUTRAL.getBlue() + (to.getBlue() - NEUTRAL.getBlue()) * f);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(HEADER_FONT);
+        Analytics.Report r = report;
+        if (r == null || image == null) {
+            g2.setColor(MUTED_COLOR);
+            g2.drawString(message, PADDING, PADDING + 12);
+            return;
+        }
+
+        String[] symbols = r.getMatrix().getSymbols();
+        int n = symbols.length;
+        g2.setColor(TEXT_COLOR);
+        g2.drawString(String.format(Locale.ROOT, "%d symbols, %d common returns%s, %d ms", n,
+                r.getMatrix().getObservations(), r.getBenchmark() >= 0 ? ", beta vs " + benchmark : "", computeMillis),
+                PADDING, PADDING + 12);
+
+        // Square matrix: labels on the left and on top only if the cells can hold them
+        g2.setFont(LABEL_FONT);
+        FontMetrics fm = g2.getFontMetrics();
+        int avail = Math.min(getWidth(), getHeight() - HEADER) - 2 * PADDING;
+        boolean labels = avail / n >= LABEL_CELL;
+        int labelW = 0;
+        if (labels) {
+            for (String s : symbols) labelW = Math.max(labelW, fm.stringWidth(s));
+            labelW += 4;
+        }
+        int side = Math.min(getWidth() - 2 * PADDING - labelW, getHeight() - HEADER - 2 * PADDING - (labels ? labelW : 0));
+        int cell = Math.max(1, side / n);
+        side = cell * n;
+        int left = PADDING + labelW, top = PADDING + HEADER + (labels ? labelW : 0);
+        lastLeft = left;
+        lastTop = top;
+        lastSide = side;
+        if (side <= 0) return;
+
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2.drawImage(image, left, top, side, side, null);
+
+        if (labels) {
+            g2.setColor(TEXT_COLOR);
+            int base = (cell + fm.getAscent() - fm.getDescent()) / 2;
+            for (int i = 0; i < n; i++) {
+                g2.drawString(symbols[i], left - 4 - fm.stringWidth(symbols[i]), top + i * cell + base);
+            }
+            Graphics2D v = (Graphics2D) g2.create();
+            try {
+                v.rotate(-Math.PI / 2);
+                for (int j = 0; j < n; j++) v.drawString(symbols[j], -(top - 4), left + j * cell + base);
+            } finally {
+                v.dispose();
+            }
+        }
+
+        if (hoverRow >= 0 && hoverCol >= 0 && hoverRow < n && hoverCol < n) paintHover(g2, r, cell);
+    }
+
+    private void paintHover(Graphics2D g2, Analytics.Report r, int cell) {
+        int x = lastLeft + hoverCol * cell, y = lastTop + hoverRow * cell;
+        g2.setColor(HOVER_COLOR);
+        g2.drawRect(x, y, Math.max(1, cell - 1), Math.max(1, cell - 1));
+
+        String[] symbols = r.getMatrix().getSymbols();
+        String[] lines = {
+                symbols[hoverRow] + " / " + symbols[hoverCol],
+                String.format(Locale.ROOT, "correlation %.3f, covariance %.3g",
+                        r.getMatrix().getCorrelation()[hoverRow][hoverCol], r.getMatrix().getCovariance()[hoverRow][hoverCol]),
+                describe(r, hoverRow),
+                describe(r, hoverCol)
+        };
+        g2.setFont(LABEL_FONT);
+        FontMetrics fm = g2.getFontMetrics();
+        int lineH = fm.getHeight();
+        int boxW = 0;
+        for (String s : lines) boxW = Math.max(boxW, fm.stringWidth(s));
+        boxW += 12;
+        int boxH = lines.length * lineH + 8;
+        // Next to the cell, flipped to stay inside the component
+        int bx = x + cell + 12;
+        if (bx + boxW > getWidth()) bx = x - 12 - boxW;
+        int by = Math.max(0, Math.min(y - boxH - 8, getHeight() - boxH));
+        g2.setColor(TOOLTIP_BG);
+        g2.fillRect(bx, by, boxW, boxH);
+        g2.setColor(TEXT_COLOR);
+        for (int k = 0; k < lines.length; k++) g2.drawString(lines[k], bx + 6, by + 4 + k * lineH + fm.getAscent());
+    }
+
+    private static String describe(Analytics.Report r, int i) {
+        String symbol = r.getMatrix().getSymbols()[i];
+        Analytics.Drawdown dd = r.getDrawdowns()[i];
+        String drawdown = String.format(Locale.ROOT, "max drawdown %.1f%%, now %.1f%%", dd.getMax() * 100, dd.getCurrent() * 100);
+        if (r.getBenchmark() < 0) return symbol + ": " + drawdown;
+        return String.format(Locale.ROOT, "%s: beta %.2f (recent %.2f), %s", symbol, r.getBeta()[i], r.getRollingBeta()[i], drawdown);
+    }
+
+    private void hover(int x, int y) {
+        int row = x < 0 ? -1 : cellAt(y - lastTop);
+        int col = x < 0 ? -1 : cellAt(x - lastLeft);
+        if (row < 0 || col < 0) row = col = -1;
+        if (row == hoverRow && col == hoverCol) return;
+        hoverRow = row;
+        hoverCol = col;
+        // the tooltip can land anywhere, so the whole panel is repainted; the image copy is cheap
+        repaint();
+    }
+
+    /** @return the matrix row or column at an offset from the matrix edge, or -1 outside it */
+    private int cellAt(int offset) {
+        Analytics.Report r = report;
+        if (r == null || lastSide <= 0 || offset < 0 || offset >= lastSide) return -1;
+        int n = r.getMatrix().getSymbols().length;
+        return Math.min(n - 1, offset / (lastSide / n));
+    }
+}
@@ -0,0 +1,143 @@
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free histogram of non-negative {@code long} values (nanoseconds for
+ * the latencies in {@link Metrics}), in the style of HdrHistogram.
+ *
+ * Values are counted in log-linear buckets: every power-of-two range is split into
+ * {@value #SUB_BUCKETS} equal buckets, so a percentile is off by at most about 3% of the
+ * value, at any magnitude, while the whole range of {@code long} fits in under 2,000
+ * counters. Recording is a bucket computation and two atomic increments, with no
+ * allocation, so it is cheap enough for every paint and every request.
+ *
+ * Thread-safe. Percentiles read while values are being recorded may miss the newest ones.
+ *
+ * @author Atharva Usturge
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Buckets up to the highest bit of a positive long
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Summary of a histogram in milliseconds, as exposed over JMX. */
+    public static final class Snapshot {
+        private final long count;
+        private final double mean;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double max;
+
+        @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "max"})
+        public Snapshot(long count, double mean, double p50, double p90, double p99, double max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public double getP50() { return p50; }
+        public double getP90() { return p90; }
+        public double getP99() { return p99; }
+        public double getMax() { return max; }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.ROOT, "n=%d mean=%.2f p50=%.2f p90=%.2f p99=%.2f max=%.2f ms",
+                    count, mean, p50, p90, p99, max);
+        }
+    }
+
+    /**
+     * Counts one value; negative values are counted as 0.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+            // retry
+        }
+    }
+
+    /** @return number of values recorded */
+    public long count() { return count.get(); }
+
+    /** @return the largest value recorded, or 0 */
+    public long max() { return max.get(); }
+
+    /** @return the mean of the values recorded, or 0 */
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param p the percentile, 0 to 100
+     * @return the smallest bucket bound at or below which {@code p} percent of the values
+     *         fall (the largest value for 100), or 0 if nothing was recorded
+     */
+    public long percentile(double p) {
+        long n = count.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, p)) / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * @param unit the value of one millisecond in recorded units, e.g. 1e6 for nanoseconds
+     * @return count, mean, percentiles and maximum, converted to milliseconds
+     */
+    public Snapshot snapshot(double unit) {
+        return new Snapshot(count(), mean() / unit, percentile(50) / unit, percentile(90) / unit,
+                percentile(99) / unit, max() / unit);
+    }
+
+    /** Forgets every recorded value. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Values below {@value #SUB_BUCKETS} get a bucket each; above that the top
+     * {@code SUB_BITS + 1} bits select the bucket within the value's power of two.
+     */
+    static int bucket(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int shift = msb - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (v >>> shift) - SUB_BUCKETS;
+    }
+
+    /** @return the largest value that falls into a bucket */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
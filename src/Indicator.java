@@ -0,0 +1,44 @@
+/**
+ * A technical indicator computed as a streaming state machine.
+ * {@link #update} consumes bars in order at O(1) per bar and without allocating, so a
+ * refresh that appends bars only feeds the new ones. Each indicator also remembers its
+ * state from just before the last consumed bar, so a revised last bar (the forming bar
+ * of a refresh or a live poll) is undone with {@link #rewind} and fed again, also in
+ * O(1). Outputs are NaN until the indicator has seen enough bars (its warm-up period).
+ *
+ * Bars are consumed in batches so each implementation runs its own tight loop; a
+ * per-bar interface call shared by every indicator type would not be inlined.
+ *
+ * @author Atharva Usturge
+ */
+public interface Indicator {
+    /** @return a short display name, e.g. "SMA(20)" */
+    String getName();
+
+    /** @return number of output lines (e.g. 3 for Bollinger bands) */
+    int lines();
+
+    /** @return true if the outputs share the price scale and can be drawn over the chart */
+    boolean isOverlay();
+
+    /** Forgets every consumed bar. */
+    void reset();
+
+    /**
+     * Undoes the last consumed bar, restoring the state from just before it. Only one bar
+     * can be undone: after a rewind, at least one bar must be consumed before the next.
+     */
+    void rewind();
+
+    /**
+     * Consumes bars {@code [from, to)}, continuing from the last consumed bar, and writes
+     * output line {@code j} for bar {@code i} to {@code out[firstLine + j][i]}.
+     *
+     * @param s         the series, oldest first
+     * @param from      first bar to consume (inclusive)
+     * @param to        last bar to consume (exclusive)
+     * @param out       output columns, each at least {@code to} long
+     * @param firstLine column of this indicator's first output line
+     */
+    void update(TimeSeries s, int from, int to, double[][] out, int firstLine);
+}
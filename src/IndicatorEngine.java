@@ -0,0 +1,145 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a fixed set of {@link Indicator}s over a series and keeps their outputs as
+ * primitive columns, one per output line.
+ *
+ * A series handed to {@link #update(TimeSeries)} is computed from scratch. When the
+ * caller knows the next series extends the consumed one, as a live poll does, it says
+ * from which bar on it differs through {@link #update(TimeSeries, int)} and only those
+ * bars are fed: new bars are consumed, and a revised last bar (the forming bar) is
+ * {@link Indicator#rewind rewound} and taken again, so a tick costs O(1) whatever the
+ * length of the series. Whether a series extends the consumed one is never guessed from
+ * its times: another symbol over the same dates has the same times.
+ *
+ * Not thread-safe; the chart only uses it on the EDT.
+ *
+ * @author Atharva Usturge
+ */
+public class IndicatorEngine {
+    private final Indicator[] indicators;
+    // Output line -> position of the indicator that produces it
+    private final int[] lineOwner;
+    private double[][] columns;
+    private int count = 0;
+
+    /**
+     * @param indicators the indicators to run, in drawing order
+     */
+    public IndicatorEngine(List<Indicator> indicators) {
+        this.indicators = indicators.toArray(new Indicator[0]);
+        int lines = 0;
+        for (Indicator ind : this.indicators) lines += ind.lines();
+        lineOwner = new int[lines];
+        int line = 0;
+        for (int k = 0; k < this.indicators.length; k++) {
+            for (int j = 0; j < this.indicators[k].lines(); j++) {
+                lineOwner[line++] = k;
+            }
+        }
+        columns = new double[lines][0];
+    }
+
+    /**
+     * Computes the outputs for a new series, discarding everything consumed before.
+     *
+     * @param s the series, oldest first
+     * @return number of bars fed to the indicators
+     */
+    public int update(TimeSeries s) {
+        reset();
+        return update(s, 0);
+    }
+
+    /**
+     * Brings the outputs up to date with a series that extends the consumed one.
+     *
+     * @param s            the series, oldest first
+     * @param firstChanged index of the first new or revised bar in {@code s}; the bars
+     *                     before it are the consumed ones. A revision before the last
+     *                     consumed bar is computed from scratch.
+     * @return number of bars fed to the indicators
+     */
+    public int update(TimeSeries s, int firstChanged) {
+        int n = s.size();
+        if (firstChanged < count - 1 || n < count) {
+            reset();
+        } else if (firstChanged == count - 1) {
+            for (Indicator ind : indicators) ind.rewind();
+            count--;
+        }
+        if (n == count) return 0;
+
+        int lines = lineOwner.length;
+        if (lines > 0 && columns[0].length < n) {
+            int cap = Math.max(n, columns[0].length + (columns[0].length >> 1));
+            for (int l = 0; l < lines; l++) {
+                columns[l] = Arrays.copyOf(columns[l], cap);
+            }
+        }
+
+        int start = count;
+        int line = 0;
+        for (Indicator ind : indicators) {
+            ind.update(s, start, n, columns, line);
+            line += ind.lines();
+        }
+        count = n;
+        return n - start;
+    }
+
+    /** Discards all outputs and indicator state. */
+    public void reset() {
+        for (Indicator ind : indicators) ind.reset();
+        count = 0;
+    }
+
+    /** @return number of bars with computed outputs */
+    public int size() {
+        return count;
+    }
+
+    /** @return total number of output lines across all indicators */
+    public int lineCount() {
+        return lineOwner.length;
+    }
+
+    /**
+     * @param line the output line
+     * @param i    the bar index
+     * @return the line's value at bar {@code i}, NaN during warm-up
+     */
+    public double value(int line, int i) {
+        return columns[line][i];
+    }
+
+    /**
+     * @param line the output line
+     * @return the indicator that produces it
+     */
+    public Indicator indicatorOf(int line) {
+        return indicators[lineOwner[line]];
+    }
+
+    /**
+     * @param line the output line
+     * @return position of the indicator that produces it, for per-indicator colours
+     */
+    public int indicatorIndex(int line) {
+        return lineOwner[line];
+    }
+
+    /** @return number of indicators */
+    public int indicatorCount() {
+        return indicators.length;
+    }
+
+    /**
+     * @param k the indicator position
+     * @return the indicator
+     */
+    public Indicator getIndicator(int k) {
+        return indicators[k];
+    }
+}
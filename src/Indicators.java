@@ -0,0 +1,476 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Factory for the built-in {@link Indicator}s.
+ * All of them keep O(period) state in primitive arrays: rolling sums over a ring
+ * buffer for moving averages and bands, Wilder smoothing for RSI, and a monotonic
+ * deque for rolling highs and lows. Every step saves the few values it overwrites, which
+ * is what {@link Indicator#rewind} restores.
+ *
+ * @author Atharva Usturge
+ */
+public final class Indicators {
+    private Indicators() {
+    }
+
+    /** Simple moving average of the close. */
+    public static Indicator sma(int period) {
+        return new Sma(period);
+    }
+
+    /** Exponential moving average of the close, seeded with the SMA of the first bars. */
+    public static Indicator ema(int period) {
+        return new Ema(period);
+    }
+
+    /** Bollinger bands: middle SMA plus and minus {@code k} standard deviations. */
+    public static Indicator bollinger(int period, double k) {
+        return new Bollinger(period, k);
+    }
+
+    /** Relative Strength Index with Wilder smoothing (0-100, not a price overlay). */
+    public static Indicator rsi(int period) {
+        return new Rsi(period);
+    }
+
+    /** Volume-weighted average price; resets every day for intraday bars, anchored at the start otherwise. */
+    public static Indicator vwap() {
+        return new Vwap();
+    }
+
+    /** Donchian channel: highest high and lowest low over the period. */
+    public static Indicator donchian(int period) {
+        return new Donchian(period);
+    }
+
+    /**
+     * Parses a comma-separated indicator list such as "SMA20,EMA50,BB20,RSI14,VWAP,DC20".
+     * A missing period uses the usual default (20, or 14 for RSI). Unknown entries are
+     * skipped with a warning.
+     *
+     * @param spec the list, may be null or empty
+     * @return the indicators in the order given
+     */
+    public static List<Indicator> parse(String spec) {
+        List<Indicator> out = new ArrayList<>();
+        if (spec == null) return out;
+        for (String raw : spec.split(",")) {
+            String t = raw.trim().toUpperCase();
+            if (t.isEmpty()) continue;
+            int d = 0;
+            while (d < t.length() && Character.isLetter(t.charAt(d))) d++;
+            String kind = t.substring(0, d);
+            int period = 0;
+            try {
+                if (d < t.length()) period = Integer.parseInt(t.substring(d));
+            } catch (NumberFormatException e) {
+                period = -1;
+            }
+            if (period < 0) {
+                System.err.println("Ignoring indicator '" + raw.trim() + "': bad period");
+                continue;
+            }
+            switch (kind) {
+                case "SMA": out.add(sma(period > 0 ? period : 20)); break;
+                case "EMA": out.add(ema(period > 0 ? period : 20)); break;
+                case "BB": out.add(bollinger(period > 0 ? period : 20, 2)); break;
+                case "RSI": out.add(rsi(period > 0 ? period : 14)); break;
+                case "VWAP": out.add(vwap()); break;
+                case "DC": out.add(donchian(period > 0 ? period : 20)); break;
+                default: System.err.println("Ignoring unknown indicator '" + raw.trim() + "'");
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Parses an indicator list like {@link #parse}, keeping only indicators that share the
+     * price scale. The chart draws nothing else, so the others (RSI) are skipped with a
+     * warning rather than computed for nothing.
+     *
+     * @param spec the list, may be null or empty
+     * @return the price-scale indicators in the order given
+     */
+    public static List<Indicator> parseOverlays(String spec) {
+        List<Indicator> out = parse(spec);
+        out.removeIf(ind -> {
+            if (ind.isOverlay()) return false;
+            System.err.println("Ignoring indicator '" + ind.getName() + "': the chart only draws indicators on the price scale");
+            return true;
+        });
+        return out;
+    }
+
+    // ------------------------------------------------------------------ implementations
+
+    /** Fixed-size ring of the last {@code period} values with their running sum and sum of squares. */
+    private static final class Window {
+        final double[] ring;
+        int count;
+        int head;
+        double sum;
+        double sumSq;
+        // State before the last push
+        int undoCount;
+        int undoHead;
+        double undoSum;
+        double undoSumSq;
+        double undoSlot;
+
+        Window(int period) {
+            ring = new double[Math.max(1, period)];
+        }
+
+        void push(double v) {
+            undoCount = count;
+            undoHead = head;
+            undoSum = sum;
+            undoSumSq = sumSq;
+            undoSlot = ring[head];
+            if (count == ring.length) {
+                double old = ring[head];
+                sum -= old;
+                sumSq -= old * old;
+            } else {
+                count++;
+            }
+            ring[head] = v;
+            head = head + 1 == ring.length ? 0 : head + 1;
+            sum += v;
+            sumSq += v * v;
+        }
+
+        boolean full() {
+            return count == ring.length;
+        }
+
+        double mean() {
+            return sum / count;
+        }
+
+        double stdDev() {
+            double m = sum / count;
+            double var = sumSq / count - m * m;
+            return var > 0 ? Math.sqrt(var) : 0;
+        }
+
+        /** Undoes the last push. */
+        void undo() {
+            ring[undoHead] = undoSlot;
+            count = undoCount;
+            head = undoHead;
+            sum = undoSum;
+            sumSq = undoSumSq;
+        }
+
+        void clear() {
+            count = 0;
+            head = 0;
+            sum = 0;
+            sumSq = 0;
+        }
+    }
+
+    /**
+     * Sliding-window maximum via a monotonic deque of bar positions: each value is pushed
+     * and popped at most once, so updates are amortized O(1). Rolling minimums push
+     * negated values. The ring has a power-of-two capacity so wrapping is a mask.
+     */
+    private static final class MonotonicDeque {
+        final int period;
+        final int mask;
+        final int[] pos;
+        final double[] val;
+        int head;
+        int tail;
+        int next;
+        // State before the last push, and the one slot it overwrote
+        int undoHead;
+        int undoTail;
+        int undoSlot;
+        int undoPos;
+        double undoVal;
+
+        MonotonicDeque(int period) {
+            this.period = Math.max(1, period);
+            int cap = Integer.highestOneBit(this.period) << 1;
+            this.mask = cap - 1;
+            this.pos = new int[cap];
+            this.val = new double[cap];
+        }
+
+        void push(double v) {
+            undoHead = head;
+            undoTail = tail;
+            // drop dominated values from the back
+            while (tail != head && val[(tail - 1) & mask] <= v) tail--;
+            // values popped from the back stay in the ring; only this slot is overwritten
+            undoSlot = tail & mask;
+            undoPos = pos[undoSlot];
+            undoVal = val[undoSlot];
+            pos[tail & mask] = next;
+            val[tail & mask] = v;
+            tail++;
+            // drop the value that left the window from the front
+            if (pos[head & mask] <= next - period) head++;
+            next++;
+        }
+
+        boolean full() {
+            return next >= period;
+        }
+
+        double max() {
+            return val[head & mask];
+        }
+
+        /** Undoes the last push. */
+        void undo() {
+            pos[undoSlot] = undoPos;
+            val[undoSlot] = undoVal;
+            head = undoHead;
+            tail = undoTail;
+            next--;
+        }
+
+        void clear() {
+            head = 0;
+            tail = 0;
+            next = 0;
+        }
+    }
+
+    private static final class Sma implements Indicator {
+        final int period;
+        final Window w;
+
+        Sma(int period) {
+            this.period = Math.max(1, period);
+            this.w = new Window(this.period);
+        }
+
+        public String getName() { return "SMA(" + period + ")"; }
+        public int lines() { return 1; }
+        public boolean isOverlay() { return true; }
+        public void reset() { w.clear(); }
+        public void rewind() { w.undo(); }
+
+        public void update(TimeSeries s, int from, int to, double[][] out, int firstLine) {
+            double[] col = out[firstLine];
+            for (int i = from; i < to; i++) {
+                w.push(s.close(i));
+                col[i] = w.full() ? w.mean() : Double.NaN;
+            }
+        }
+    }
+
+    private static final class Ema implements Indicator {
+        final int period;
+        final double alpha;
+        int seen;
+        double seedSum;
+        double value = Double.NaN;
+        int undoSeen;
+        double undoSeedSum;
+        double undoValue;
+
+        Ema(int period) {
+            this.period = Math.max(1, period);
+            this.alpha = 2.0 / (this.period + 1);
+        }
+
+        public String getName() { return "EMA(" + period + ")"; }
+        public int lines() { return 1; }
+        public boolean isOverlay() { return true; }
+        public void reset() { seen = 0; seedSum = 0; value = Double.NaN; }
+        public void rewind() { seen = undoSeen; seedSum = undoSeedSum; value = undoValue; }
+
+        public void update(TimeSeries s, int from, int to, double[][] out, int firstLine) {
+            double[] col = out[firstLine];
+            for (int i = from; i < to; i++) {
+                double c = s.close(i);
+                undoSeen = seen;
+                undoSeedSum = seedSum;
+                undoValue = value;
+                if (seen < period) {
+                    seedSum += c;
+                    seen++;
+                    if (seen == period) value = seedSum / period;
+                } else {
+                    value += alpha * (c - value);
+                }
+                col[i] = value;
+            }
+        }
+    }
+
+    private static final class Bollinger implements Indicator {
+        final int period;
+        final double k;
+        final Window w;
+
+        Bollinger(int period, double k) {
+            this.period = Math.max(1, period);
+            this.k = k;
+            this.w = new Window(this.period);
+        }
+
+        public String getName() { return "BB(" + period + ")"; }
+        public int lines() { return 3; }
+        public boolean isOverlay() { return true; }
+        public void reset() { w.clear(); }
+        public void rewind() { w.undo(); }
+
+        public void update(TimeSeries s, int from, int to, double[][] out, int firstLine) {
+            double[] midCol = out[firstLine], upperCol = out[firstLine + 1], lowerCol = out[firstLine + 2];
+            for (int i = from; i < to; i++) {
+                w.push(s.close(i));
+                if (w.full()) {
+                    double mid = w.mean();
+                    double band = k * w.stdDev();
+                    midCol[i] = mid;
+                    upperCol[i] = mid + band;
+                    lowerCol[i] = mid - band;
+                } else {
+                    midCol[i] = upperCol[i] = lowerCol[i] = Double.NaN;
+                }
+            }
+        }
+    }
+
+    private static final class Rsi implements Indicator {
+        final int period;
+        final double invPeriod;
+        int seen;
+        double prev = Double.NaN;
+        double avgGain, avgLoss;
+        double value = Double.NaN;
+        int undoSeen;
+        double undoPrev;
+        double undoGain, undoLoss;
+        double undoValue;
+
+        Rsi(int period) {
+            this.period = Math.max(1, period);
+            this.invPeriod = 1.0 / this.period;
+        }
+
+        public String getName() { return "RSI(" + period + ")"; }
+        public int lines() { return 1; }
+        public boolean isOverlay() { return false; }
+        public void reset() { seen = 0; prev = Double.NaN; avgGain = avgLoss = 0; value = Double.NaN; }
+
+        public void rewind() {
+            seen = undoSeen;
+            prev = undoPrev;
+            avgGain = undoGain;
+            avgLoss = undoLoss;
+            value = undoValue;
+        }
+
+        public void update(TimeSeries s, int from, int to, double[][] out, int firstLine) {
+            double[] col = out[firstLine];
+            for (int i = from; i < to; i++) {
+                col[i] = step(s.close(i));
+            }
+        }
+
+        private double step(double c) {
+            undoSeen = seen;
+            undoPrev = prev;
+            undoGain = avgGain;
+            undoLoss = avgLoss;
+            undoValue = value;
+            if (Double.isNaN(prev)) {
+                prev = c;
+                return value;
+            }
+            double change = c - prev;
+            prev = c;
+            double gain = change > 0 ? change : 0;
+            double loss = change < 0 ? -change : 0;
+            if (seen < period) {
+                // seed with the plain average of the first changes
+                avgGain += gain * invPeriod;
+                avgLoss += loss * invPeriod;
+                if (++seen < period) return value;
+            } else {
+                avgGain += (gain - avgGain) * invPeriod;
+                avgLoss += (loss - avgLoss) * invPeriod;
+            }
+            value = avgLoss == 0 ? 100 : 100 - 100 / (1 + avgGain / avgLoss);
+            return value;
+        }
+    }
+
+    private static final class Vwap implements Indicator {
+        double pv, vol;
+        long day = Long.MIN_VALUE;
+        double undoPv, undoVol;
+        long undoDay;
+
+        public String getName() { return "VWAP"; }
+        public int lines() { return 1; }
+        public boolean isOverlay() { return true; }
+        public void reset() { pv = vol = 0; day = Long.MIN_VALUE; }
+        public void rewind() { pv = undoPv; vol = undoVol; day = undoDay; }
+
+        public void update(TimeSeries s, int from, int to, double[][] out, int firstLine) {
+            double[] col = out[firstLine];
+            boolean intraday = s.isIntraday();
+            for (int i = from; i < to; i++) {
+                undoPv = pv;
+                undoVol = vol;
+                undoDay = day;
+                if (intraday) {
+                    long d = s.epochDay(i);
+                    if (d != day) {
+                        day = d;
+                        pv = vol = 0;
+                    }
+                }
+                double v = s.volume(i);
+                double c = s.close(i);
+                double h = s.high(i), l = s.low(i);
+                double typical = Double.isNaN(h) || Double.isNaN(l) ? c : (h + l + c) / 3;
+                if (v > 0) {
+                    pv += typical * v;
+                    vol += v;
+                }
+                col[i] = vol > 0 ? pv / vol : Double.NaN;
+            }
+        }
+    }
+
+    private static final class Donchian implements Indicator {
+        final int period;
+        final MonotonicDeque highs;
+        final MonotonicDeque lows;
+
+        Donchian(int period) {
+            this.period = Math.max(1, period);
+            this.highs = new MonotonicDeque(this.period);
+            this.lows = new MonotonicDeque(this.period);
+        }
+
+        public String getName() { return "DC(" + period + ")"; }
+        public int lines() { return 2; }
+        public boolean isOverlay() { return true; }
+        public void reset() { highs.clear(); lows.clear(); }
+        public void rewind() { highs.undo(); lows.undo(); }
+
+        public void update(TimeSeries s, int from, int to, double[][] out, int firstLine) {
+            double[] upperCol = out[firstLine], lowerCol = out[firstLine + 1];
+            for (int i = from; i < to; i++) {
+                double c = s.close(i);
+                double h = s.high(i), l = s.low(i);
+                highs.push(Double.isNaN(h) ? c : h);
+                lows.push(-(Double.isNaN(l) ? c : l));
+                boolean full = highs.full();
+                upperCol[i] = full ? highs.max() : Double.NaN;
+                lowerCol[i] = full ? -lows.max() : Double.NaN;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live intraday mode: polls TIME_SERIES_INTRADAY for one symbol on a fixed schedule and
+ * streams the new bars into the chart.
+ *
+ * Each poll is a background {@link FetchScheduler} job, so it stays inside the rate limit
+ * and queues behind user lookups; a poll still waiting when the next one is due is
+ * superseded. The first poll fills the live window, later ones fetch the compact window
+ * (latest 100 bars). Bars are merged into a fixed-capacity {@link LiveSeries} on the EDT
+ * and handed to {@link ChartPanel#appendBars}, which redraws only the strip they changed.
+ * Memory stays constant however long the session runs.
+ *
+ * Settings (each overridable by the matching `STOCK_*` env var):
+ * `stock.live.interval` (default "1min"), `stock.live.poll.seconds` (60),
+ * `stock.live.window` (bars on screen, 390 = one trading day of minutes) and
+ * `stock.live.capacity` (bars kept, 4096).
+ *
+ * Start and stop it from the EDT.
+ *
+ * @author Atharva Usturge
+ */
+public class LivePoller {
+    private final StockClient client;
+    private final FetchScheduler scheduler;
+    private final ChartPanel chart;
+    private final String interval;
+    private final long pollSeconds;
+    private final int window;
+    private final LiveSeries live;
+    private final ScheduledExecutorService timer;
+
+    private ScheduledFuture<?> task;
+    private String symbol;
+    // Bumped on every start/stop; results of an older session are dropped
+    private volatile long session = 0;
+    private volatile boolean filled;
+
+    /**
+     * @param client      the provider client
+     * @param scheduler   the fetch scheduler polls are submitted to
+     * @param chart       the chart the bars are streamed into
+     * @param interval    bar interval, e.g. "1min"
+     * @param pollSeconds seconds between polls
+     * @param window      bars shown across the chart
+     * @param capacity    bars kept in memory
+     */
+    public LivePoller(StockClient client, FetchScheduler scheduler, ChartPanel chart,
+                      String interval, long pollSeconds, int window, int capacity) {
+        this.client = client;
+        this.scheduler = scheduler;
+        this.chart = chart;
+        this.interval = interval;
+        this.pollSeconds = Math.max(1, pollSeconds);
+        this.window = Math.max(2, window);
+        this.live = new LiveSeries(Math.max(capacity, this.window * 2));
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "live-poller");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates a poller from the configuration.
+     *
+     * @param client    the provider client
+     * @param scheduler the fetch scheduler
+     * @param chart     the chart to stream into
+     * @return the poller
+     */
+    public static LivePoller fromConfig(StockClient client, FetchScheduler scheduler, ChartPanel chart) {
+        return new LivePoller(client, scheduler, chart,
+                Config.get("STOCK_LIVE_INTERVAL", "stock.live.interval", "1min"),
+                Config.getInt("STOCK_LIVE_POLL_SECONDS", "stock.live.poll.seconds", 60),
+                Config.getInt("STOCK_LIVE_WINDOW", "stock.live.window", 390),
+                Config.getInt("STOCK_LIVE_CAPACITY", "stock.live.capacity", 4096));
+    }
+
+    /**
+     * Starts streaming a symbol, replacing any running session. The chart switches to
+     * the live layout and is cleared until the first poll returns.
+     *
+     * @param symbol the stock symbol
+     */
+    public void start(String symbol) {
+        stop();
+        this.symbol = symbol;
+        long id = ++session;
+        filled = false;
+        live.clear();
+        chart.setLiveWindow(window);
+        chart.setSeries(TimeSeries.EMPTY);
+        task = timer.scheduleWithFixedDelay(() -> poll(symbol, id), 0, pollSeconds, TimeUnit.SECONDS);
+        System.out.println("Streaming " + interval + " bars for " + symbol + " every " + pollSeconds + "s");
+    }
+
+    /** Stops streaming; the bars received so far stay on the chart. */
+    public void stop() {
+        if (task == null) return;
+        session++;
+        task.cancel(false);
+        task = null;
+        chart.setLiveWindow(0);
+        System.out.println("Stopped streaming " + symbol);
+    }
+
+    /** @return true while a symbol is being streamed */
+    public boolean isRunning() {
+        return task != null;
+    }
+
+    /** @return the symbol being streamed, or the last one if stopped */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    // Runs on the timer thread: hands the fetch to the scheduler and returns
+    private void poll(String sym, long id) {
+        if (session != id) return;
+        boolean first = !filled;
+        scheduler.submit(FetchScheduler.Priority.BACKGROUND, "live:" + sym, () -> {
+            TimeSeries bars;
+            try {
+                bars = scheduler.callWithRetry(() -> first
+                        ? client.fetchIntraday(sym, interval, "full", window).build()
+                        : client.fetchIntraday(sym, interval, "compact", 0).build());
+            } catch (InterruptedIOException ex) {
+                return null;
+            } catch (IOException ex) {
+                System.err.println("Live update failed for " + sym + ": " + ex.getMessage());
+                return null;
+            }
+            SwingUtilities.invokeLater(() -> apply(bars, id));
+            return null;
+        });
+    }
+
+    // EDT: merges a poll result and draws what changed
+    private void apply(TimeSeries bars, long id) {
+        if (session != id || bars.isEmpty()) return;
+        filled = true;
+        int firstChanged = live.append(bars);
+        if (firstChanged >= 0) chart.appendBars(live.view(), firstChanged);
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Fixed-capacity primitive buffer for a live intraday session.
+ *
+ * Polled bars are appended in O(1) each; a bar with the same time as the newest one
+ * revises it in place (the provider updates the forming bar until its interval closes).
+ * Memory never grows: two banks of {@code capacity} bars are allocated up front, and
+ * when the active bank is full the newest half is copied into the other bank and the
+ * oldest half is dropped. That costs O(capacity) once every capacity/2 bars, so
+ * ingest stays amortized O(1), and in exchange {@link #view()} can hand out a plain
+ * contiguous {@link TimeSeries} in O(1), with bar indices that stay stable between
+ * compactions.
+ *
+ * A view shares the bank: bars appended later are not visible to it, but a revision
+ * of its newest bar is, and it becomes invalid after the second compaction following
+ * its creation. Use the buffer and its views from one thread (the chart uses the EDT).
+ *
+ * @author Atharva Usturge
+ */
+public class LiveSeries {
+    private final int capacity;
+    private final long[][] times = new long[2][];
+    private final double[][] open = new double[2][];
+    private final double[][] high = new double[2][];
+    private final double[][] low = new double[2][];
+    private final double[][] close = new double[2][];
+    private final double[][] volume = new double[2][];
+    private int bank = 0;
+    private int size = 0;
+    private long compactions = 0;
+    private TimeSeries view = TimeSeries.EMPTY;
+
+    /**
+     * @param capacity the most bars kept; at least 4
+     */
+    public LiveSeries(int capacity) {
+        this.capacity = Math.max(4, capacity);
+        for (int b = 0; b < 2; b++) {
+            times[b] = new long[this.capacity];
+            open[b] = new double[this.capacity];
+            high[b] = new double[this.capacity];
+            low[b] = new double[this.capacity];
+            close[b] = new double[this.capacity];
+            volume[b] = new double[this.capacity];
+        }
+    }
+
+    /**
+     * Merges polled bars: bars newer than the newest stored one are appended, a bar at
+     * the newest time revises it, and older bars are ignored.
+     *
+     * @param fresh polled bars, oldest first
+     * @return index (in the new {@link #view()}) of the first bar that was added or
+     *         changed, or -1 if nothing changed
+     */
+    public int append(TimeSeries fresh) {
+        int firstChanged = -1;
+        for (int i = 0; i < fresh.size(); i++) {
+            long before = compactions;
+            int changed = append(fresh.time(i), fresh.open(i), fresh.high(i), fresh.low(i), fresh.close(i), fresh.volume(i));
+            if (compactions != before && firstChanged >= 0) {
+                // the oldest half was dropped, so earlier indices moved down
+                firstChanged = Math.max(0, firstChanged - (capacity - capacity / 2));
+            }
+            if (changed >= 0 && (firstChanged < 0 || changed < firstChanged)) firstChanged = changed;
+        }
+        if (firstChanged >= 0) {
+            int b = bank;
+            view = new TimeSeries(times[b], open[b], high[b], low[b], close[b], volume[b], size, true);
+        }
+        return firstChanged;
+    }
+
+    /**
+     * Appends or revises one bar.
+     *
+     * @return the bar's index, or -1 if it was older than the newest bar or unchanged
+     */
+    public int append(long time, double o, double h, double l, double c, double v) {
+        int b = bank;
+        if (size > 0) {
+            long last = times[b][size - 1];
+            if (time < last) return -1;
+            if (time == last) {
+                int i = size - 1;
+                if (open[b][i] == o && high[b][i] == h && low[b][i] == l && close[b][i] == c && volume[b][i] == v) return -1;
+                open[b][i] = o;
+                high[b][i] = h;
+                low[b][i] = l;
+                close[b][i] = c;
+                volume[b][i] = v;
+                return i;
+            }
+        }
+        if (size == capacity) {
+            compact();
+            b = bank;
+        }
+        int i = size++;
+        times[b][i] = time;
+        open[b][i] = o;
+        high[b][i] = h;
+        low[b][i] = l;
+        close[b][i] = c;
+        volume[b][i] = v;
+        return i;
+    }
+
+    // Keeps the newest half in the other bank
+    private void compact() {
+        int keep = capacity / 2;
+        int from = size - keep;
+        int src = bank, dst = 1 - bank;
+        System.arraycopy(times[src], from, times[dst], 0, keep);
+        System.arraycopy(open[src], from, open[dst], 0, keep);
+        System.arraycopy(high[src], from, high[dst], 0, keep);
+        System.arraycopy(low[src], from, low[dst], 0, keep);
+        System.arraycopy(close[src], from, close[dst], 0, keep);
+        System.arraycopy(volume[src], from, volume[dst], 0, keep);
+        bank = dst;
+        size = keep;
+        compactions++;
+    }
+
+    /** @return the bars currently held, oldest first; O(1), no copy */
+    public TimeSeries view() {
+        return view;
+    }
+
+    /** Drops every bar. */
+    public void clear() {
+        size = 0;
+        view = TimeSeries.EMPTY;
+    }
+
+    /** @return number of bars held */
+    public int size() {
+        return size;
+    }
+
+    /** @return the most bars kept */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** @return how often the oldest half has been dropped */
+    public long getCompactions() {
+        return compactions;
+    }
+}
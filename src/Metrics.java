@@ -0,0 +1,187 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Built-in performance metrics: request latency and volume, parse time, chart paint time
+ * and frame rate, response cache hit rate and fetch queue depth.
+ *
+ * One instance per process ({@link #get()}); the instrumented code records into it
+ * directly. Latencies go into {@link Histogram}s, totals into atomic counters, so
+ * recording never blocks and costs a few atomic increments. The metrics can be read
+ * over JMX (see {@link MetricsMXBean}) and on the chart's debug overlay
+ * ({@link ChartPanel#setHudVisible}).
+ *
+ * Frame rate counts chart paints in the last second; frame intervals are only recorded
+ * while paints follow each other within {@value #INTERACTIVE_GAP_MILLIS} ms, i.e. while
+ * the user drags, zooms or hovers, so idle periods do not skew them.
+ *
+ * @author Atharva Usturge
+ */
+public final class Metrics implements MetricsMXBean {
+    /** The JMX name the metrics are registered under. */
+    public static final String OBJECT_NAME = "StockViewer:type=Metrics";
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final long INTERACTIVE_GAP_MILLIS = 250;
+    // Frame timestamps kept for the frame rate; caps the reported rate
+    private static final int FRAME_RING = 256;
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final Histogram httpLatency = new Histogram();
+    private final Histogram parseTime = new Histogram();
+    private final Histogram paintTime = new Histogram();
+    private final Histogram frameInterval = new Histogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong pointsParsed = new AtomicLong();
+
+    // End times of the latest frames, oldest overwritten first; painted on the EDT only
+    private final long[] frames = new long[FRAME_RING];
+    private volatile int frameCount = 0;
+
+    private volatile SeriesCache cache;
+    private volatile FetchScheduler scheduler;
+
+    private Metrics() {
+    }
+
+    /** @return the process-wide metrics */
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server unless disabled with env
+     * `STOCK_METRICS_JMX` / `stock.metrics.jmx` set to false. Registering twice is
+     * harmless.
+     */
+    public void register() {
+        if (!Boolean.parseBoolean(Config.get("STOCK_METRICS_JMX", "stock.metrics.jmx", "true"))) return;
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException ex) {
+            System.err.println("Warning: metrics not available over JMX: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Sets where the cache hit rate and queue depth are read from.
+     *
+     * @param cache     the response cache, or null
+     * @param scheduler the fetch scheduler, or null
+     */
+    public void bind(SeriesCache cache, FetchScheduler scheduler) {
+        this.cache = cache;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Records a provider request that received its response headers.
+     *
+     * @param nanos time from sending the request
+     */
+    public void recordRequest(long nanos) {
+        requests.incrementAndGet();
+        httpLatency.record(nanos);
+    }
+
+    /** @param bytes response bytes received */
+    public void recordBytes(long bytes) {
+        bytesReceived.addAndGet(bytes);
+    }
+
+    /**
+     * @param nanos  time to read and parse the body
+     * @param points bars parsed
+     */
+    public void recordParse(long nanos, int points) {
+        parseTime.record(nanos);
+        pointsParsed.addAndGet(points);
+    }
+
+    /**
+     * Records one chart paint. Must be called on the EDT.
+     *
+     * @param startNanos {@link System#nanoTime()} when the paint started
+     * @param endNanos   {@link System#nanoTime()} when it finished
+     */
+    public void recordPaint(long startNanos, long endNanos) {
+        paintTime.record(endNanos - startNanos);
+        if (frameCount > 0) {
+            long gap = endNanos - frames[(frameCount - 1) % FRAME_RING];
+            if (gap < INTERACTIVE_GAP_MILLIS * 1_000_000L) frameInterval.record(gap);
+        }
+        frames[frameCount % FRAME_RING] = endNanos;
+        frameCount++;
+    }
+
+    @Override
+    public Histogram.Snapshot getHttpLatency() { return httpLatency.snapshot(NANOS_PER_MILLI); }
+
+    @Override
+    public Histogram.Snapshot getParseTime() { return parseTime.snapshot(NANOS_PER_MILLI); }
+
+    @Override
+    public Histogram.Snapshot getPaintTime() { return paintTime.snapshot(NANOS_PER_MILLI); }
+
+    @Override
+    public Histogram.Snapshot getFrameInterval() { return frameInterval.snapshot(NANOS_PER_MILLI); }
+
+    /** Reads the frame ring, which belongs to the EDT; other threads may see a slightly stale rate. */
+    @Override
+    public int getFramesPerSecond() {
+        long since = System.nanoTime() - 1_000_000_000L;
+        int n = Math.min(frameCount, FRAME_RING), fps = 0;
+        for (int k = 1; k <= n; k++) {
+            if (frames[(frameCount - k) % FRAME_RING] < since) break;
+            fps++;
+        }
+        return fps;
+    }
+
+    @Override
+    public long getRequests() { return requests.get(); }
+
+    @Override
+    public long getBytesReceived() { return bytesReceived.get(); }
+
+    @Override
+    public long getPointsParsed() { return pointsParsed.get(); }
+
+    @Override
+    public double getCacheHitRate() {
+        SeriesCache c = cache;
+        if (c == null) return Double.NaN;
+        long hits = c.getHits(), total = hits + c.getMisses();
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        FetchScheduler s = scheduler;
+        return s == null ? 0 : s.getQueueDepth();
+    }
+
+    @Override
+    public void reset() {
+        httpLatency.reset();
+        parseTime.reset();
+        paintTime.reset();
+        frameInterval.reset();
+        requests.set(0);
+        bytesReceived.set(0);
+        pointsParsed.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Metrics[http " + getHttpLatency() + ", parse " + getParseTime() + ", paint " + getPaintTime()
+                + ", requests=" + requests + ", bytes=" + bytesReceived + ", points=" + pointsParsed + "]";
+    }
+}
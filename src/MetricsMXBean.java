@@ -0,0 +1,40 @@
+/**
+ * Management interface of {@link Metrics}, registered as {@code StockViewer:type=Metrics}
+ * so JConsole, VisualVM or any JMX client can read it. Latencies are in milliseconds.
+ *
+ * @author Atharva Usturge
+ */
+public interface MetricsMXBean {
+    /** @return time from sending a request to its response headers */
+    Histogram.Snapshot getHttpLatency();
+
+    /** @return time to read and parse a response body */
+    Histogram.Snapshot getParseTime();
+
+    /** @return time spent in the chart's paintComponent */
+    Histogram.Snapshot getPaintTime();
+
+    /** @return time between consecutive chart frames while the chart is being interacted with */
+    Histogram.Snapshot getFrameInterval();
+
+    /** @return chart frames painted in the last second */
+    int getFramesPerSecond();
+
+    /** @return provider requests sent */
+    long getRequests();
+
+    /** @return response bytes received, as sent on the wire (compressed) */
+    long getBytesReceived();
+
+    /** @return bars parsed from responses */
+    long getPointsParsed();
+
+    /** @return fraction of response cache lookups answered from memory, or NaN before any */
+    double getCacheHitRate();
+
+    /** @return fetch jobs waiting to start */
+    int getQueueDepth();
+
+    /** Clears the histograms and counters. */
+    void reset();
+}
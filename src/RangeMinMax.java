@@ -0,0 +1,154 @@
+/**
+ * Range minimum/maximum index over a series column.
+ *
+ * Built once in O(n) as two iterative segment trees of bar indices (2n ints each) over
+ * the column's values, then answers "lowest and highest value in bars [from, to)", and
+ * which bar holds it, in O(log n) without touching the bars themselves. Used to rescale
+ * the Y axis to the visible window on every zoom or pan step, and to decimate and merge
+ * the visible bars one pixel column at a time.
+ *
+ * @author Atharva Usturge
+ */
+public final class RangeMinMax {
+    private final int n;
+    // Values the minima and maxima are taken over; the same array unless they differ (low/high)
+    private final double[] minValues;
+    private final double[] maxValues;
+    // Node -> index of the smallest (largest) value below it, the first one on ties
+    private final int[] minTree;
+    private final int[] maxTree;
+
+    private RangeMinMax(double[] minValues, double[] maxValues) {
+        this.n = minValues.length;
+        this.minValues = minValues;
+        this.maxValues = maxValues;
+        this.minTree = new int[2 * n];
+        this.maxTree = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            minTree[n + i] = i;
+            maxTree[n + i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            minTree[i] = lower(minTree[2 * i], minTree[2 * i + 1]);
+            maxTree[i] = higher(maxTree[2 * i], maxTree[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Indexes the close column.
+     *
+     * @param s the series
+     * @return the index
+     */
+    public static RangeMinMax ofClose(TimeSeries s) {
+        int n = s.size();
+        double[] v = new double[n];
+        for (int i = 0; i < n; i++) v[i] = s.close(i);
+        return new RangeMinMax(v, v);
+    }
+
+    /**
+     * Indexes the low and high columns, falling back to the close where they are missing.
+     *
+     * @param s the series
+     * @return the index
+     */
+    public static RangeMinMax ofLowHigh(TimeSeries s) {
+        int n = s.size();
+        double[] lows = new double[n];
+        double[] highs = new double[n];
+        for (int i = 0; i < n; i++) {
+            double c = s.close(i);
+            double l = s.low(i), h = s.high(i);
+            lows[i] = l < c ? l : c;
+            highs[i] = h > c ? h : c;
+        }
+        return new RangeMinMax(lows, highs);
+    }
+
+    /**
+     * Indexes the volume column.
+     *
+     * @param s the series
+     * @return the index
+     */
+    public static RangeMinMax ofVolume(TimeSeries s) {
+        int n = s.size();
+        double[] v = new double[n];
+        for (int i = 0; i < n; i++) v[i] = s.volume(i);
+        return new RangeMinMax(v, v);
+    }
+
+    // Of two bars, the one with the smaller (larger) value, the earlier one on ties; a NaN
+    // loses to any number
+    private int lower(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        double va = minValues[a], vb = minValues[b];
+        if (va < vb || Double.isNaN(vb) && !Double.isNaN(va)) return a;
+        if (vb < va || Double.isNaN(va) && !Double.isNaN(vb)) return b;
+        return Math.min(a, b);
+    }
+
+    private int higher(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        double va = maxValues[a], vb = maxValues[b];
+        if (va > vb || Double.isNaN(vb) && !Double.isNaN(va)) return a;
+        if (vb > va || Double.isNaN(va) && !Double.isNaN(vb)) return b;
+        return Math.min(a, b);
+    }
+
+    /** @return number of indexed bars */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * @param from first bar (inclusive)
+     * @param to   last bar (exclusive)
+     * @return the first bar holding the smallest value in the range, or -1 if the range is empty
+     */
+    public int argMin(int from, int to) {
+        int res = -1;
+        for (int l = Math.max(from, 0) + n, r = Math.min(to, n) + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) res = lower(res, minTree[l++]);
+            if ((r & 1) == 1) res = lower(res, minTree[--r]);
+        }
+        return res;
+    }
+
+    /**
+     * @param from first bar (inclusive)
+     * @param to   last bar (exclusive)
+     * @return the first bar holding the largest value in the range, or -1 if the range is empty
+     */
+    public int argMax(int from, int to) {
+        int res = -1;
+        for (int l = Math.max(from, 0) + n, r = Math.min(to, n) + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) res = higher(res, maxTree[l++]);
+            if ((r & 1) == 1) res = higher(res, maxTree[--r]);
+        }
+        return res;
+    }
+
+    /**
+     * @param from first bar (inclusive)
+     * @param to   last bar (exclusive)
+     * @return the smallest value in the range, or +Infinity if the range is empty
+     */
+    public double min(int from, int to) {
+        int i = argMin(from, to);
+        return i < 0 ? Double.POSITIVE_INFINITY : minValues[i];
+    }
+
+    /**
+     * @param from first bar (inclusive)
+     * @param to   last bar (exclusive)
+     * @return the largest value in the range, or -Infinity if the range is empty
+     */
+    public double max(int from, int to) {
+        int i = argMax(from, to);
+        return i < 0 ? Double.NEGATIVE_INFINITY : maxValues[i];
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Token-bucket limiter for provider calls.
+ *
+ * The bucket holds up to {@code burst} tokens and refills continuously at
+ * {@code callsPerMinute / 60} tokens per second; every provider call takes one token.
+ * Urgent (user-initiated) callers are served before non-urgent ones: while any urgent
+ * caller is waiting, non-urgent callers do not take tokens. When the provider reports
+ * throttling anyway, {@link #pause(long)} empties the bucket and holds every caller
+ * back for the given time.
+ *
+ * @author Atharva Usturge
+ */
+public class RateLimiter {
+    private final double tokensPerMilli;
+    private final double burst;
+
+    // All fields below are guarded by "this"
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    private int urgentWaiting;
+
+    /**
+     * @param callsPerMinute sustained call rate
+     * @param burst          how many calls may go out back to back after an idle period
+     */
+    public RateLimiter(double callsPerMinute, int burst) {
+        this.tokensPerMilli = Math.max(callsPerMinute, 0.001) / 60_000.0;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates a limiter from the configuration: env `STOCK_API_CALLS_PER_MINUTE` /
+     * `stock.api.calls.per.minute` (default 5, the Alpha Vantage free tier) and
+     * `STOCK_API_BURST` / `stock.api.burst` (default 1).
+     *
+     * @return the limiter
+     */
+    public static RateLimiter fromConfig() {
+        int perMinute = Config.getInt("STOCK_API_CALLS_PER_MINUTE", "stock.api.calls.per.minute", 5);
+        int burst = Config.getInt("STOCK_API_BURST", "stock.api.burst", 1);
+        return new RateLimiter(perMinute, burst);
+    }
+
+    /**
+     * Blocks until a token is available and takes it.
+     *
+     * @param urgent true for user-initiated calls, which are served first
+     * @throws InterruptedException if the waiting thread is interrupted (e.g. its request was cancelled)
+     */
+    public synchronized void acquire(boolean urgent) throws InterruptedException {
+        if (urgent) urgentWaiting++;
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                refill(now);
+                if (now >= pausedUntil && tokens >= 1 && (urgent || urgentWaiting == 0)) {
+                    tokens -= 1;
+                    return;
+                }
+                long wait;
+                if (now < pausedUntil) {
+                    wait = pausedUntil - now;
+                } else if (tokens < 1) {
+                    wait = (long) Math.ceil((1 - tokens) / tokensPerMilli);
+                } else {
+                    wait = 0; // a token is free but reserved for an urgent caller; wait for notify
+                }
+                if (wait > 0) wait(wait);
+                else wait();
+            }
+        } finally {
+            if (urgent) {
+                urgentWaiting--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Empties the bucket and blocks every caller for the given time. Used when the
+     * provider reports throttling despite the local limit (other clients sharing the
+     * key, or a daily quota).
+     *
+     * @param millis how long to hold callers back
+     */
+    public synchronized void pause(long millis) {
+        long until = System.currentTimeMillis() + millis;
+        if (until > pausedUntil) pausedUntil = until;
+        tokens = 0;
+        lastRefill = until;
+        notifyAll();
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerMilli);
+            lastRefill = now;
+        }
+    }
+
+    /** @return number of urgent callers currently waiting */
+    public synchronized int getUrgentWaiting() {
+        return urgentWaiting;
+    }
+}
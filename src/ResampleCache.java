@@ -0,0 +1,157 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resampled series by (symbol, {@link Timeframe}), so switching timeframes never
+ * re-fetches and switching back is free.
+ *
+ * The cache also remembers the latest source series of every symbol. When a symbol's
+ * source is replaced by one that extends it (same first bar, the bars up to the last
+ * resampled bucket unchanged), each cached timeframe is brought up to date by
+ * re-aggregating only from the start of its last bucket instead of the whole history.
+ * Symbols are evicted least-recently-used once the cache is full.
+ *
+ * Thread-safe.
+ *
+ * @author Atharva Usturge
+ */
+public class ResampleCache {
+    /** One resampled series and where in its source the last bucket started. */
+    private static final class Entry {
+        final TimeSeries source;
+        final TimeSeries result;
+        final int lastStart;
+
+        Entry(TimeSeries source, TimeSeries result, int lastStart) {
+            this.source = source;
+            this.result = result;
+            this.lastStart = lastStart;
+        }
+    }
+
+    private static final class Symbol {
+        TimeSeries source = TimeSeries.EMPTY;
+        final Map<Timeframe, Entry> frames = new HashMap<>();
+    }
+
+    private final int maxSymbols;
+    // Access-ordered, so iteration starts at the least recently used symbol; guarded by "this"
+    private final LinkedHashMap<String, Symbol> symbols = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong extended = new AtomicLong();
+    private final AtomicLong rebuilt = new AtomicLong();
+
+    /**
+     * @param maxSymbols the most symbols kept before the least recently used is evicted
+     */
+    public ResampleCache(int maxSymbols) {
+        this.maxSymbols = Math.max(1, maxSymbols);
+    }
+
+    /**
+     * Creates a cache sized from the configuration: env `STOCK_RESAMPLE_CACHE_SYMBOLS` /
+     * `stock.resample.cache.symbols` (default 32).
+     *
+     * @return the cache
+     */
+    public static ResampleCache fromConfig() {
+        return new ResampleCache(Config.getInt("STOCK_RESAMPLE_CACHE_SYMBOLS", "stock.resample.cache.symbols", 32));
+    }
+
+    /**
+     * Records {@code source} as the symbol's latest bars and returns them resampled.
+     *
+     * @param symbol the stock symbol
+     * @param source its bars, oldest first
+     * @param tf     the timeframe
+     * @return the resampled bars, or {@code source} if {@code tf} does not apply to it
+     */
+    public synchronized TimeSeries get(String symbol, TimeSeries source, Timeframe tf) {
+        Symbol sym = symbols.get(symbol);
+        if (sym == null) {
+            sym = new Symbol();
+            symbols.put(symbol, sym);
+            Iterator<Symbol> it = symbols.values().iterator();
+            while (symbols.size() > maxSymbols && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        sym.source = source;
+        return resampled(sym, tf);
+    }
+
+    /**
+     * Resamples the symbol's latest recorded bars.
+     *
+     * @param symbol the stock symbol
+     * @param tf     the timeframe
+     * @return the resampled bars, or null if no bars were recorded for the symbol
+     */
+    public synchronized TimeSeries get(String symbol, Timeframe tf) {
+        Symbol sym = symbols.get(symbol);
+        return sym == null ? null : resampled(sym, tf);
+    }
+
+    private TimeSeries resampled(Symbol sym, Timeframe tf) {
+        TimeSeries source = sym.source;
+        if (!Resampler.applies(source, tf)) return source;
+        Entry e = sym.frames.get(tf);
+        if (e != null && e.source == source) {
+            hits.incrementAndGet();
+            return e.result;
+        }
+        int[] lastStart = new int[1];
+        TimeSeries result;
+        if (e != null && extendsSource(e, source)) {
+            result = Resampler.resample(source, tf, e.result, e.lastStart, lastStart);
+            extended.incrementAndGet();
+        } else {
+            result = Resampler.resample(source, tf, TimeSeries.EMPTY, 0, lastStart);
+            rebuilt.incrementAndGet();
+        }
+        sym.frames.put(tf, new Entry(source, result, lastStart[0]));
+        return result;
+    }
+
+    /**
+     * True if {@code next} keeps every bar the entry's finished buckets were built from:
+     * same first bar and the same bar just before the last bucket. Like the indicator
+     * engine, this relies on history before the newest bars never being revised.
+     */
+    private static boolean extendsSource(Entry e, TimeSeries next) {
+        TimeSeries prev = e.source;
+        if (prev.isEmpty() || next.size() < prev.size() || next.isIntraday() != prev.isIntraday()
+                || next.time(0) != prev.time(0)) {
+            return false;
+        }
+        int i = e.lastStart - 1;
+        return i < 0 || (next.time(i) == prev.time(i) && Double.compare(next.close(i), prev.close(i)) == 0);
+    }
+
+    /** Drops everything cached for a symbol. */
+    public synchronized void invalidate(String symbol) {
+        symbols.remove(symbol);
+    }
+
+    /** @return number of symbols currently cached */
+    public synchronized int size() { return symbols.size(); }
+
+    /** @return lookups answered from a cached result */
+    public long getHits() { return hits.get(); }
+
+    /** @return lookups that re-aggregated only the tail of a grown source */
+    public long getExtended() { return extended.get(); }
+
+    /** @return lookups that resampled a whole source */
+    public long getRebuilt() { return rebuilt.get(); }
+
+    @Override
+    public String toString() {
+        return "ResampleCache[size=" + size() + ", hits=" + hits + ", extended=" + extended + ", rebuilt=" + rebuilt + "]";
+    }
+}
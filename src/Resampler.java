@@ -0,0 +1,150 @@
+import java.util.Arrays;
+
+/**
+ * Aggregates bars into coarser OHLCV bars: the first open, highest high, lowest low,
+ * last close and summed volume of every {@link Timeframe} bucket.
+ *
+ * One pass over the primitive columns; a bar's bucket is computed from its time with
+ * integer arithmetic (no calendar objects), and the output arrays are sized up front
+ * from the number of buckets the time span can hold, so they rarely need trimming.
+ * Resampled bars are stamped with the bucket start for minute buckets and with the
+ * date of their first bar otherwise.
+ *
+ * @author Atharva Usturge
+ */
+public final class Resampler {
+    private Resampler() {
+    }
+
+    /**
+     * @param s  the series
+     * @param tf the timeframe
+     * @return true if resampling {@code s} to {@code tf} changes it: minute and daily
+     *         buckets only apply to intraday bars, {@link Timeframe#NATIVE} never does
+     */
+    public static boolean applies(TimeSeries s, Timeframe tf) {
+        switch (tf.getUnit()) {
+            case NATIVE: return false;
+            case MINUTES: case DAY: return s.isIntraday();
+            default: return true;
+        }
+    }
+
+    /**
+     * Resamples a whole series.
+     *
+     * @param s  the bars, oldest first
+     * @param tf the timeframe
+     * @return the resampled bars, or {@code s} itself if {@code tf} does not apply
+     */
+    public static TimeSeries resample(TimeSeries s, Timeframe tf) {
+        if (!applies(s, tf)) return s;
+        return resample(s, tf, TimeSeries.EMPTY, 0, new int[1]);
+    }
+
+    /**
+     * Resamples the tail of a series onto an earlier result. The bars of {@code prev}
+     * except its last one are kept; bars of {@code s} from {@code from} on (where the
+     * last bucket of {@code prev} started) are aggregated after them, so the last bucket
+     * is rebuilt and new buckets are appended.
+     *
+     * @param s         the bars, oldest first
+     * @param tf        the timeframe; must apply to {@code s}
+     * @param prev      an earlier result for a prefix of {@code s}, or {@link TimeSeries#EMPTY}
+     * @param from      index in {@code s} where the last bucket of {@code prev} starts (0 if empty)
+     * @param lastStart receives the index in {@code s} where the last new bucket starts
+     * @return the resampled bars
+     */
+    static TimeSeries resample(TimeSeries s, Timeframe tf, TimeSeries prev, int from, int[] lastStart) {
+        int n = s.size();
+        int kept = Math.max(0, prev.size() - 1);
+        if (from >= n) {
+            lastStart[0] = from;
+            return prev;
+        }
+        long span = bucket(s.time(n - 1), tf) - bucket(s.time(from), tf) + 1;
+        int cap = kept + (int) Math.min(span, n - from);
+
+        long[] times = new long[cap];
+        double[] open = new double[cap], high = new double[cap], low = new double[cap];
+        double[] close = new double[cap], volume = new double[cap];
+        for (int i = 0; i < kept; i++) {
+            times[i] = prev.time(i);
+            open[i] = prev.open(i);
+            high[i] = prev.high(i);
+            low[i] = prev.low(i);
+            close[i] = prev.close(i);
+            volume[i] = prev.volume(i);
+        }
+
+        int k = kept - 1;
+        long current = Long.MIN_VALUE;
+        int start = from;
+        boolean minutes = tf.getUnit() == Timeframe.Unit.MINUTES;
+        long seconds = 60L * tf.getMinutes();
+        for (int i = from; i < n; i++) {
+            long t = s.time(i);
+            long b = bucket(t, tf);
+            if (b != current) {
+                current = b;
+                start = i;
+                k++;
+                times[k] = minutes ? b * seconds : Math.floorDiv(t, 86400L) * 86400L;
+                open[k] = s.open(i);
+                high[k] = s.high(i);
+                low[k] = s.low(i);
+                close[k] = s.close(i);
+                volume[k] = s.volume(i);
+            } else {
+                double h = s.high(i), l = s.low(i);
+                if (h > high[k]) high[k] = h;
+                if (l < low[k]) low[k] = l;
+                close[k] = s.close(i);
+                volume[k] += s.volume(i);
+            }
+        }
+        lastStart[0] = start;
+        int size = k + 1;
+        if (size != cap) {
+            times = Arrays.copyOf(times, size);
+            open = Arrays.copyOf(open, size);
+            high = Arrays.copyOf(high, size);
+            low = Arrays.copyOf(low, size);
+            close = Arrays.copyOf(close, size);
+            volume = Arrays.copyOf(volume, size);
+        }
+        return new TimeSeries(times, open, high, low, close, volume, minutes);
+    }
+
+    /**
+     * @return a number identifying the bucket a bar time falls into; consecutive buckets
+     *         get consecutive numbers
+     */
+    static long bucket(long time, Timeframe tf) {
+        switch (tf.getUnit()) {
+            case MINUTES: return Math.floorDiv(time, 60L * tf.getMinutes());
+            case DAY: return Math.floorDiv(time, 86400L);
+            // 1970-01-01 was a Thursday; shifting by 3 days starts weeks on Monday
+            case WEEK: return Math.floorDiv(Math.floorDiv(time, 86400L) + 3, 7);
+            case MONTH: return monthIndex(Math.floorDiv(time, 86400L));
+            case QUARTER: return Math.floorDiv(monthIndex(Math.floorDiv(time, 86400L)), 3);
+            default: return time;
+        }
+    }
+
+    /**
+     * Months since year 0 for a day number, using the proleptic Gregorian calendar
+     * (H. Hinnant's civil_from_days, reduced to year and month).
+     */
+    private static long monthIndex(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+}
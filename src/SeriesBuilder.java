@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+/**
+ * Growable, column-oriented accumulator for OHLCV bars.
+ * Keeps one primitive array per field so that appending a bar never boxes a value
+ * or allocates per-bar objects. Arrays grow geometrically, so filling the builder
+ * costs amortized O(1) per bar.
+ *
+ * Times are stored as epoch seconds (UTC, no zone conversion). Daily bars sit at
+ * midnight, so {@code time / 86400} gives the epoch day.
+ *
+ * @author Atharva Usturge
+ */
+public class SeriesBuilder {
+    private long[] times;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private int size;
+    private boolean intraday;
+
+    /**
+     * Creates an empty builder with a small default capacity.
+     */
+    public SeriesBuilder() {
+        this(128);
+    }
+
+    /**
+     * Creates an empty builder sized for roughly {@code capacity} bars.
+     *
+     * @param capacity the initial number of bars the builder can hold without growing
+     */
+    public SeriesBuilder(int capacity) {
+        int c = Math.max(capacity, 8);
+        times = new long[c];
+        open = new double[c];
+        high = new double[c];
+        low = new double[c];
+        close = new double[c];
+        volume = new double[c];
+    }
+
+    /**
+     * Appends one bar. Missing fields may be passed as {@code Double.NaN}.
+     *
+     * @param time   bar time in epoch seconds
+     * @param o      open price
+     * @param h      high price
+     * @param l      low price
+     * @param c      close price
+     * @param v      traded volume
+     */
+    public void add(long time, double o, double h, double l, double c, double v) {
+        if (size == times.length) grow();
+        times[size] = time;
+        open[size] = o;
+        high[size] = h;
+        low[size] = l;
+        close[size] = c;
+        volume[size] = v;
+        size++;
+    }
+
+    private void grow() {
+        int n = times.length + (times.length >> 1) + 1;
+        times = Arrays.copyOf(times, n);
+        open = Arrays.copyOf(open, n);
+        high = Arrays.copyOf(high, n);
+        low = Arrays.copyOf(low, n);
+        close = Arrays.copyOf(close, n);
+        volume = Arrays.copyOf(volume, n);
+    }
+
+    /**
+     * Reverses the bar order in place. Alpha Vantage lists bars newest first,
+     * while charts want them oldest first.
+     */
+    public void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long t = times[i]; times[i] = times[j]; times[j] = t;
+            swap(open, i, j);
+            swap(high, i, j);
+            swap(low, i, j);
+            swap(close, i, j);
+            swap(volume, i, j);
+        }
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    /**
+     * Freezes the bars into an immutable {@link TimeSeries}, ordered oldest first.
+     * Bars added newest first (as Alpha Vantage lists them) are reversed. The builder
+     * can be reused afterwards; the returned series does not share its arrays.
+     *
+     * @return the built series
+     */
+    public TimeSeries build() {
+        if (size == 0) return TimeSeries.EMPTY;
+        if (size > 1 && times[0] > times[size - 1]) reverse();
+        return new TimeSeries(Arrays.copyOf(times, size), Arrays.copyOf(open, size), Arrays.copyOf(high, size),
+                Arrays.copyOf(low, size), Arrays.copyOf(close, size), Arrays.copyOf(volume, size), intraday);
+    }
+
+    /** Discards all bars but keeps the allocated arrays for reuse. */
+    public void clear() {
+        size = 0;
+        intraday = false;
+    }
+
+    /** @return the number of bars appended so far */
+    public int size() { return size; }
+
+    /** @return true if no bars have been appended */
+    public boolean isEmpty() { return size == 0; }
+
+    /** @return true if at least one bar carried a time of day (intraday data) */
+    public boolean isIntraday() { return intraday; }
+
+    /** @param intraday whether the bars carry a time of day */
+    public void setIntraday(boolean intraday) { this.intraday = intraday; }
+
+    public long time(int i) { return times[i]; }
+    public double open(int i) { return open[i]; }
+    public double high(int i) { return high[i]; }
+    public double low(int i) { return low[i]; }
+    public double close(int i) { return close[i]; }
+    public double volume(int i) { return volume[i]; }
+}
@@ -0,0 +1,241 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of parsed series in front of the provider.
+ *
+ * Entries are keyed by {@link FetchKey}, expire after a fixed time-to-live and are
+ * evicted least-recently-used once the cache is full. Concurrent requests for the
+ * same key share one load, so normally one provider request per key is in flight;
+ * callers that arrive while it runs are counted as coalesced. Failed loads are not
+ * cached.
+ *
+ * @author Atharva Usturge
+ */
+public class SeriesCache {
+    /**
+     * Loads a series from the provider on a cache miss.
+     */
+    public interface Loader {
+        TimeSeries load(FetchKey key) throws IOException;
+    }
+
+    private static final class Entry {
+        final TimeSeries value;
+        final long loadedAt;
+
+        Entry(TimeSeries value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    // A load in flight, completed for the callers waiting on it
+    private static final class Load {
+        final CompletableFuture<TimeSeries> future = new CompletableFuture<>();
+        final boolean urgent;
+
+        Load(boolean urgent) {
+            this.urgent = urgent;
+        }
+    }
+
+    private final Loader loader;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by "this"
+    private final LinkedHashMap<FetchKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<FetchKey, Load> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * @param loader     fetches a series on a miss
+     * @param maxEntries the most entries kept before the least recently used is evicted
+     * @param ttlMillis  how long an entry stays valid after it was loaded
+     */
+    public SeriesCache(Loader loader, int maxEntries, long ttlMillis) {
+        this.loader = loader;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Creates a cache sized from the configuration: env `STOCK_CACHE_SIZE` /
+     * `stock.cache.size` (default 64 entries) and `STOCK_CACHE_TTL_SECONDS` /
+     * `stock.cache.ttl.seconds` (default 300).
+     *
+     * @param loader fetches a series on a miss
+     * @return the cache
+     */
+    public static SeriesCache fromConfig(Loader loader) {
+        int size = Config.getInt("STOCK_CACHE_SIZE", "stock.cache.size", 64);
+        int ttl = Config.getInt("STOCK_CACHE_TTL_SECONDS", "stock.cache.ttl.seconds", 300);
+        return new SeriesCache(loader, size, ttl * 1000L);
+    }
+
+    /**
+     * Returns the series for a key, loading it at most once across concurrent callers.
+     * A fresh cached entry is returned at once; otherwise the caller either waits for the
+     * load already in flight or runs the load itself, on the calling thread.
+     *
+     * A load belongs to the caller that started it: if that caller is cancelled, the
+     * callers waiting on its load do not fail with it but start over, and one of them
+     * loads the key again. An urgent caller does not wait behind a load started by a
+     * non-urgent one, which the rate limiter serves last; it loads the key itself and
+     * later callers wait on its load instead.
+     *
+     * @param key    what to fetch
+     * @param urgent true for user-initiated lookups
+     * @return the series
+     * @throws IOException if the load fails
+     * @throws InterruptedIOException if the calling thread is interrupted while it loads or waits
+     */
+    public TimeSeries get(FetchKey key, boolean urgent) throws IOException {
+        while (true) {
+            TimeSeries cached = lookup(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+
+            Load created = new Load(urgent);
+            Load existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                if (existing.urgent || !urgent) {
+                    coalesced.incrementAndGet();
+                    TimeSeries value = await(existing);
+                    if (value != null) return value;
+                    continue; // its caller was cancelled
+                }
+                if (!inFlight.replace(key, existing, created)) continue;
+            }
+
+            // A load may have finished between the lookup and registering ours
+            cached = lookup(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                inFlight.remove(key, created);
+                created.future.complete(cached);
+                return cached;
+            }
+
+            misses.incrementAndGet();
+            return load(key, created);
+        }
+    }
+
+    private TimeSeries load(FetchKey key, Load load) throws IOException {
+        try {
+            TimeSeries value = loader.load(key);
+            put(key, value);
+            inFlight.remove(key, load);
+            load.future.complete(value);
+            return value;
+        } catch (InterruptedIOException ex) {
+            // This caller was cancelled, not the others: let them load the key themselves
+            inFlight.remove(key, load);
+            load.future.cancel(false);
+            throw ex;
+        } catch (IOException | RuntimeException | Error ex) {
+            inFlight.remove(key, load);
+            load.future.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    /** Waits for another caller's load; returns null if that caller was cancelled. */
+    private static TimeSeries await(Load load) throws IOException {
+        try {
+            return load.future.get();
+        } catch (CancellationException ex) {
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request cancelled");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Stores a value directly, e.g. after a merge produced a newer series for the key.
+     *
+     * @param key   the key
+     * @param value the series
+     */
+    public synchronized void put(FetchKey key, TimeSeries value) {
+        entries.put(key, new Entry(value, System.currentTimeMillis()));
+        Iterator<Map.Entry<FetchKey, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /** Drops the entry for a key, if any. In-flight loads are not affected. */
+    public synchronized void invalidate(FetchKey key) {
+        entries.remove(key);
+    }
+
+    /** Drops every entry. */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private synchronized TimeSeries lookup(FetchKey key) {
+        Entry e = entries.get(key);
+        if (e == null) return null;
+        if (System.currentTimeMillis() - e.loadedAt >= ttlMillis) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            return null;
+        }
+        return e.value;
+    }
+
+    /** @return number of entries currently cached */
+    public synchronized int size() { return entries.size(); }
+
+    /** @return number of requests currently in flight */
+    public int inFlightCount() { return inFlight.size(); }
+
+    /** @return lookups answered from a fresh entry */
+    public long getHits() { return hits.get(); }
+
+    /** @return lookups that started a provider request */
+    public long getMisses() { return misses.get(); }
+
+    /** @return lookups that joined a request already in flight */
+    public long getCoalesced() { return coalesced.get(); }
+
+    /** @return entries evicted because the cache was full */
+    public long getEvictions() { return evictions.get(); }
+
+    /** @return entries dropped because their time-to-live ran out */
+    public long getExpirations() { return expirations.get(); }
+
+    @Override
+    public String toString() {
+        return "SeriesCache[size=" + size() + ", hits=" + hits + ", misses=" + misses + ", coalesced=" + coalesced
+                + ", evictions=" + evictions + ", expirations=" + expirations + "]";
+    }
+}
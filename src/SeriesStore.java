@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent on-disk store of daily bars, one file per symbol.
+ *
+ * Files are written in the compressed block format of {@link CompressedSeries}: a fixed
+ * 32-byte header followed by blocks of {@value CompressedSeries#BLOCK_SIZE} bars, each
+ * with its own min/max/first/last summary, so a long history takes a fraction of the
+ * flat record size.
+ *
+ * Only the last block of a file ever changes. A merge that brings no new or revised bars
+ * just stamps the refresh time in the header; otherwise the last block is re-encoded
+ * with the new bars and written over the old one in place, and the file is cut to the
+ * new end, so a refresh costs I/O in proportion to one block rather than the history.
+ * The header records where that write started and a CRC-32 of everything from there to
+ * the end of the file; a load that finds them disagreeing (a crash in the middle of a
+ * merge) drops that tail, the history then no longer reaches the fresh bars and is
+ * fetched in full again. A full rewrite ({@link #replace}, or converting a version 1
+ * file) goes to a file beside the old one that is then moved into place.
+ *
+ * <pre>
+ * header: int magic 'SVB1' | int version (2) | int flags | int blockSize | long lastRefreshMillis
+ *         int tailOffset | int tailCrc    (0 | 0 in files written before the tail was checked)
+ * blocks: see {@link CompressedSeries}
+ * </pre>
+ *
+ * Files of the earlier uncompressed version 1 are still read: the same header with
+ * version 1, followed by fixed-size 48-byte records (long epochSeconds, then open,
+ * high, low, close and volume as doubles), oldest first. They are converted the first
+ * time new bars are merged into them.
+ *
+ * @author Atharva Usturge
+ */
+public class SeriesStore {
+    private static final int MAGIC = 0x53564231; // "SVB1"
+    private static final int VERSION_FLAT = 1;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 48;
+    private static final int REFRESH_OFFSET = 16;
+    private static final int TAIL_OFFSET = 24;
+    private static final int TAIL_CRC_OFFSET = 28;
+    private static final int FLAG_INTRADAY = 1;
+    private static final String SUFFIX = ".daily.bars";
+
+    private final Path dir;
+
+    /**
+     * Creates a store rooted at the given directory, creating it if needed.
+     *
+     * @param dir the data directory
+     * @throws IOException if the directory cannot be created
+     */
+    public SeriesStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Opens the store in the configured data directory (env `STOCK_DATA_DIR` or
+     * `stock.data.dir` in `config.properties`, default "data").
+     *
+     * @return the store
+     * @throws IOException if the directory cannot be created
+     */
+    public static SeriesStore open() throws IOException {
+        return new SeriesStore(Paths.get(Config.get("STOCK_DATA_DIR", "stock.data.dir", "data")));
+    }
+
+    /**
+     * Loads every stored bar for a symbol.
+     *
+     * @param symbol the stock symbol
+     * @return the stored series, or null if nothing is stored for the symbol
+     * @throws IOException if the file exists but cannot be read or is not a store file
+     */
+    public synchronized TimeSeries load(String symbol) throws IOException {
+        Path file = fileFor(symbol);
+        if (!Files.exists(file)) return null;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE) return null;
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            checkHeader(map, file);
+            if (map.getInt(4) == VERSION_FLAT) return readFlat(map);
+            return readBlocks(map, file).decode();
+        }
+    }
+
+    /**
+     * Loads a symbol's bars without decompressing them, e.g. to answer range and min/max
+     * queries over a long history.
+     *
+     * @param symbol the stock symbol
+     * @return the stored series, or null if nothing is stored for the symbol
+     * @throws IOException if the file exists but cannot be read or is not a store file
+     */
+    public synchronized CompressedSeries loadCompressed(String symbol) throws IOException {
+        Path file = fileFor(symbol);
+        if (!Files.exists(file)) return null;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE) return null;
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            checkHeader(map, file);
+            if (map.getInt(4) == VERSION_FLAT) return CompressedSeries.encode(readFlat(map));
+            return readBlocks(map, file);
+        }
+    }
+
+    /** Reads the records of a version 1 file. */
+    private static TimeSeries readFlat(ByteBuffer map) {
+        boolean intraday = (map.getInt(8) & FLAG_INTRADAY) != 0;
+        // a record torn by a crash mid-append is ignored because the count comes from the length
+        int n = (map.limit() - HEADER_SIZE) / RECORD_SIZE;
+        SeriesBuilder b = new SeriesBuilder(n);
+        b.setIntraday(intraday);
+        int p = HEADER_SIZE;
+        for (int i = 0; i < n; i++, p += RECORD_SIZE) {
+            b.add(map.getLong(p), map.getDouble(p + 8), map.getDouble(p + 16),
+                    map.getDouble(p + 24), map.getDouble(p + 32), map.getDouble(p + 40));
+        }
+        return b.build();
+    }
+
+    /** Reads the blocks of a version 2 file, without a tail torn by an interrupted merge. */
+    private static CompressedSeries readBlocks(ByteBuffer map, Path file) throws IOException {
+        if (map.getInt(12) != CompressedSeries.BLOCK_SIZE) {
+            throw new IOException("Unsupported block size " + map.getInt(12) + ": " + file);
+        }
+        boolean intraday = (map.getInt(8) & FLAG_INTRADAY) != 0;
+        ByteBuffer body = map.duplicate();
+        if (!isTailIntact(map)) {
+            System.err.println("Dropping the incompletely written end of " + file);
+            body.limit(Math.max(HEADER_SIZE, Math.min(map.getInt(TAIL_OFFSET), map.limit())));
+        }
+        body.position(HEADER_SIZE);
+        try {
+            return CompressedSeries.read(body.slice(), intraday);
+        } catch (IOException e) {
+            throw new IOException(e.getMessage() + ": " + file, e);
+        }
+    }
+
+    /**
+     * @param symbol the stock symbol
+     * @return when the symbol was last refreshed from the provider (epoch millis), or 0 if never
+     */
+    public synchronized long lastRefresh(String symbol) throws IOException {
+        Path file = fileFor(symbol);
+        if (!Files.exists(file)) return 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_SIZE) return 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(ch, header, 0);
+            checkHeader(header, file);
+            return header.getLong(REFRESH_OFFSET);
+        }
+    }
+
+    /**
+     * Tells whether a symbol is due for a refresh, i.e. it was never fetched or its last
+     * refresh is older than the configured interval (env `STOCK_REFRESH_HOURS` or
+     * `stock.refresh.hours`, default 24).
+     *
+     * @param symbol the stock symbol
+     * @return true if the provider should be asked for newer bars
+     */
+    public boolean isStale(String symbol) throws IOException {
+        long hours = Config.getInt("STOCK_REFRESH_HOURS", "stock.refresh.hours", 24);
+        return System.currentTimeMillis() - lastRefresh(symbol) >= hours * 3600_000L;
+    }
+
+    /**
+     * Checks whether a freshly fetched window can be merged without leaving a gap,
+     * i.e. whether it reaches back at least to the newest stored bar.
+     *
+     * @param stored the stored series (may be null or empty)
+     * @param fresh  the newly fetched bars
+     * @return true if {@link #merge} would produce a contiguous history
+     */
+    public static boolean overlaps(TimeSeries stored, TimeSeries fresh) {
+        if (stored == null || stored.isEmpty() || fresh.isEmpty()) return true;
+        return fresh.time(0) <= stored.lastTime();
+    }
+
+    /**
+     * Merges newly fetched bars into the symbol's file and stamps the refresh time.
+     * Bars newer than the last stored bar are appended; a revised copy of the last
+     * stored bar replaces it. Older bars are never touched: only the last block is read
+     * and re-encoded, and written back over itself. If nothing changed only the refresh
+     * time is written.
+     *
+     * @param symbol the stock symbol
+     * @param fresh  the fetched bars, oldest first
+     * @return the number of bars appended
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized int merge(String symbol, TimeSeries fresh) throws IOException {
+        Path file = fileFor(symbol);
+        if (Files.exists(file)) {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                int appended = mergeTail(ch, file, fresh);
+                if (appended >= 0) return appended;
+            }
+        }
+        // no file yet, a version 1 file to convert, or a torn tail that load drops: rewrite it whole
+        CompressedSeries stored = loadCompressed(symbol);
+        if (stored == null || stored.size() == 0) {
+            replace(symbol, fresh);
+            return fresh.size();
+        }
+        int appended = newerThan(stored.lastTime(), fresh);
+        write(file, stored.merge(fresh));
+        return appended;
+    }
+
+    /**
+     * Merges into the last block of a version 2 file in place: reads the tail the last
+     * merge wrote (the whole file if that was not recorded), re-encodes its last block
+     * with the new bars over itself and records the new tail in the header.
+     *
+     * @return the number of bars appended, or -1 if the file has to be rewritten whole
+     */
+    private static int mergeTail(FileChannel ch, Path file, TimeSeries fresh) throws IOException {
+        long size = ch.size();
+        if (size <= HEADER_SIZE || size > Integer.MAX_VALUE) return -1;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(ch, header, 0);
+        checkHeader(header, file);
+        if (header.getInt(4) != VERSION || header.getInt(12) != CompressedSeries.BLOCK_SIZE) return -1;
+        int from = Math.max(HEADER_SIZE, header.getInt(TAIL_OFFSET));
+        if (from >= size) return -1;
+        ByteBuffer tail = ByteBuffer.allocate((int) size - from);
+        readFully(ch, tail, from);
+        if (header.getInt(TAIL_OFFSET) > 0 && crc(tail, 0, tail.capacity()) != header.getInt(TAIL_CRC_OFFSET)) return -1;
+
+        // Find the last block; from a recorded tail that is a step or two
+        int last = 0, at = 0;
+        while (at < tail.capacity()) {
+            last = at;
+            at += CompressedSeries.blockLength(tail, at);
+        }
+        if (at != tail.capacity()) throw new IOException("Truncated compressed block: " + file);
+        tail.clear().position(last);
+        CompressedSeries stored = CompressedSeries.read(tail.slice(), (header.getInt(8) & FLAG_INTRADAY) != 0);
+        CompressedSeries merged = stored.merge(fresh);
+
+        ByteBuffer stamp = ByteBuffer.allocate(16);
+        stamp.putLong(0, System.currentTimeMillis());
+        if (merged == stored) {
+            stamp.limit(8);
+            writeFully(ch, stamp, REFRESH_OFFSET);
+            return 0;
+        }
+        long start = from + last;
+        ByteBuffer out = ByteBuffer.allocate(merged.sizeInBytes());
+        merged.write(out);
+        out.flip();
+        writeFully(ch, out, start);
+        ch.truncate(start + out.limit());
+        // the header last: until it is written the old CRC no longer matches, so a crash drops the tail
+        stamp.putInt(8, (int) start).putInt(12, crc(out, 0, out.limit()));
+        writeFully(ch, stamp, REFRESH_OFFSET);
+        return newerThan(stored.lastTime(), fresh);
+    }
+
+    /** @return the number of bars in {@code fresh} after {@code time} */
+    private static int newerThan(long time, TimeSeries fresh) {
+        int n = 0;
+        for (int i = fresh.size() - 1; i >= 0 && fresh.time(i) > time; i--) n++;
+        return n;
+    }
+
+    /**
+     * Replaces everything stored for a symbol with the given series, e.g. after a
+     * full-history fetch. The new file is written beside the old one and moved into
+     * place, so readers never see a half-written file.
+     *
+     * @param symbol the stock symbol
+     * @param series the complete history, oldest first
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void replace(String symbol, TimeSeries series) throws IOException {
+        write(fileFor(symbol), CompressedSeries.encode(series));
+    }
+
+    private static void write(Path file, CompressedSeries series) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + series.sizeInBytes());
+        int tail = series.blockCount() == 0 ? 0 : HEADER_SIZE + series.blockOffset(series.blockCount() - 1);
+        out.putInt(MAGIC).putInt(VERSION).putInt(series.isIntraday() ? FLAG_INTRADAY : 0).putInt(CompressedSeries.BLOCK_SIZE);
+        out.putLong(System.currentTimeMillis()).putInt(tail).putInt(0);
+        series.write(out);
+        out.flip();
+        if (tail > 0) out.putInt(TAIL_CRC_OFFSET, crc(out, tail, out.limit()));
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(ch, out, 0);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** True unless the header records a tail whose CRC does not match the bytes after it. */
+    private static boolean isTailIntact(ByteBuffer map) {
+        int tail = map.getInt(TAIL_OFFSET);
+        if (tail <= 0) return true;
+        return tail <= map.limit() && crc(map, tail, map.limit()) == map.getInt(TAIL_CRC_OFFSET);
+    }
+
+    private static int crc(ByteBuffer buf, int from, int to) {
+        ByteBuffer range = buf.duplicate();
+        range.limit(to).position(from);
+        CRC32 crc = new CRC32();
+        crc.update(range);
+        return (int) crc.getValue();
+    }
+
+    private static void checkHeader(ByteBuffer header, Path file) throws IOException {
+        if (header.getInt(0) != MAGIC || (header.getInt(4) != VERSION && header.getInt(4) != VERSION_FLAT)) {
+            throw new IOException("Not a series store file: " + file);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int r = ch.read(buf, position + buf.position());
+            if (r < 0) throw new IOException("Unexpected end of store file");
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf, position + buf.position());
+        }
+    }
+
+    /** Maps a symbol to a safe file name (e.g. "BRK.B" stays, "../x" does not escape). */
+    private Path fileFor(String symbol) {
+        StringBuilder sb = new StringBuilder(symbol.length());
+        for (int i = 0; i < symbol.length(); i++) {
+            char c = Character.toUpperCase(symbol.charAt(i));
+            boolean ok = (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_'
+                    || (c == '.' && i > 0);
+            sb.append(ok ? c : '_');
+        }
+        return dir.resolve(sb + SUFFIX);
+    }
+}
@@ -0,0 +1,392 @@
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Alpha Vantage client: builds requests, checks the HTTP status and parses the body
+ * with {@link TimeSeriesParser}. Shared by the GUI and the headless batch mode.
+ *
+ * Requests go through one {@link HttpClient}, which keeps connections alive and reuses
+ * them across requests, and are sent asynchronously; the blocking methods wait
+ * interruptibly, so cancelling a scheduler job aborts its request. Responses are
+ * requested gzip-compressed and the decompressed stream is handed straight to the
+ * parser, without buffering the body. A body that stops arriving for longer than the
+ * read timeout is closed by a watchdog, so a stalled server fails the request instead
+ * of hanging it. Request latency, bytes received and parse time are recorded in
+ * {@link Metrics}.
+ *
+ * Thread-safe; one instance serves the whole application.
+ *
+ * @author Atharva Usturge
+ */
+public class StockClient {
+    /** The provider's query endpoint. */
+    public static final String DEFAULT_BASE_URL = "https://www.alphavantage.co/query";
+
+    // Provider messages ("Note", "Error Message", ...) are a few hundred bytes; real series are larger
+    private static final int MESSAGE_SNIFF_BYTES = 4096;
+
+    private final String apiKey;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final long readTimeoutNanos;
+    private final HttpClient http;
+
+    /**
+     * @param apiKey         the Alpha Vantage API key
+     * @param baseUrl        the query endpoint, e.g. {@link #DEFAULT_BASE_URL} or a local stub server
+     * @param connectTimeout how long to wait for a connection
+     * @param requestTimeout how long to wait for the response headers
+     * @param readTimeout    how long the body may go without new bytes before the request fails
+     */
+    public StockClient(String apiKey, String baseUrl, Duration connectTimeout, Duration requestTimeout, Duration readTimeout) {
+        this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.readTimeoutNanos = readTimeout.toNanos();
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Creates a client from the configuration: the API key from {@link Config#getApiKey()},
+     * `stock.api.base.url` (default {@link #DEFAULT_BASE_URL}),
+     * `stock.http.connect.timeout.seconds` (default 10),
+     * `stock.http.request.timeout.seconds` (default 30) and
+     * `stock.http.read.timeout.seconds` (default 10), each overridable by the matching
+     * `STOCK_*` env var.
+     *
+     * @return the client
+     */
+    public static StockClient fromConfig() {
+        String base = Config.get("STOCK_API_BASE_URL", "stock.api.base.url", DEFAULT_BASE_URL);
+        int connect = Config.getInt("STOCK_HTTP_CONNECT_TIMEOUT_SECONDS", "stock.http.connect.timeout.seconds", 10);
+        int request = Config.getInt("STOCK_HTTP_REQUEST_TIMEOUT_SECONDS", "stock.http.request.timeout.seconds", 30);
+        int read = Config.getInt("STOCK_HTTP_READ_TIMEOUT_SECONDS", "stock.http.read.timeout.seconds", 10);
+        return new StockClient(Config.getApiKey(), base, Duration.ofSeconds(Math.max(1, connect)),
+                Duration.ofSeconds(Math.max(1, request)), Duration.ofSeconds(Math.max(1, read)));
+    }
+
+    /** @return true if an API key is configured */
+    public boolean hasApiKey() {
+        return apiKey != null && !apiKey.isEmpty();
+    }
+
+    /** @return the query endpoint requests are sent to */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Fetches stock time series data from the Alpha Vantage API.
+     * Retrieves daily stock prices for a given symbol using the TIME_SERIES_DAILY function.
+     * The response includes up to 100 data points in compact format, or the whole
+     * history in full format, and is parsed
+     * directly from the decompressed response stream, without buffering the body as text.
+     *
+     * @param symbol The stock symbol to fetch data for (e.g., "AAPL", "GOOGL")
+     * @param outputSize "compact" (latest 100 bars) or "full" (whole history)
+     * @param maxPoints The maximum number of bars to keep (newest first), or 0 for all
+     * @return The parsed bars in response order (newest first)
+     * @throws ApiException If the provider answered with an error or rate-limit message
+     * @throws InterruptedIOException If the calling thread is interrupted; the request is aborted
+     * @throws IOException If the request fails or the response is not a time series
+     */
+    public SeriesBuilder fetchDaily(String symbol, String outputSize, int maxPoints) throws IOException {
+        return await(fetchDailyAsync(symbol, outputSize, maxPoints));
+    }
+
+    /**
+     * Asynchronous variant of {@link #fetchDaily}: the request is sent without blocking
+     * and the body is parsed as it arrives on one of the HTTP client's threads.
+     *
+     * @param symbol     the stock symbol
+     * @param outputSize "compact" or "full"
+     * @param maxPoints  the maximum number of bars to keep, or 0 for all
+     * @return a future completed with the parsed bars (newest first), or exceptionally
+     *         with an {@link IOException}; cancelling it aborts the request
+     */
+    public CompletableFuture<SeriesBuilder> fetchDailyAsync(String symbol, String outputSize, int maxPoints) {
+        return send(queryUri("TIME_SERIES_DAILY", symbol, null, outputSize), in -> parse(in, maxPoints));
+    }
+
+    /**
+     * Fetches intraday bars using the TIME_SERIES_INTRADAY function. The compact format
+     * holds the latest 100 bars of the interval, the full format the last month.
+     *
+     * @param symbol     the stock symbol
+     * @param interval   bar interval: "1min", "5min", "15min", "30min" or "60min"
+     * @param outputSize "compact" or "full"
+     * @param maxPoints  the maximum number of bars to keep (newest first), or 0 for all
+     * @return the parsed bars in response order (newest first)
+     * @throws ApiException If the provider answered with an error or rate-limit message
+     * @throws InterruptedIOException If the calling thread is interrupted; the request is aborted
+     * @throws IOException If the request fails or the response is not a time series
+     */
+    public SeriesBuilder fetchIntraday(String symbol, String interval, String outputSize, int maxPoints) throws IOException {
+        return await(fetchIntradayAsync(symbol, interval, outputSize, maxPoints));
+    }
+
+    /**
+     * Asynchronous variant of {@link #fetchIntraday}.
+     *
+     * @param symbol     the stock symbol
+     * @param interval   bar interval, e.g. "1min"
+     * @param outputSize "compact" or "full"
+     * @param maxPoints  the maximum number of bars to keep, or 0 for all
+     * @return a future completed with the parsed bars (newest first); cancelling it aborts the request
+     */
+    public CompletableFuture<SeriesBuilder> fetchIntradayAsync(String symbol, String interval, String outputSize, int maxPoints) {
+        return send(queryUri("TIME_SERIES_INTRADAY", symbol, interval, outputSize), in -> parse(in, maxPoints));
+    }
+
+    /**
+     * Downloads a daily series response without parsing it, so the CPU work can run on
+     * another thread. Short bodies are parsed right away: they are provider messages,
+     * and surfacing those here lets a throttled call be retried.
+     *
+     * @param symbol     the stock symbol
+     * @param outputSize "compact" or "full"
+     * @return the raw (decompressed) JSON body
+     * @throws ApiException if the provider answered with an error or rate-limit message
+     * @throws IOException  if the request fails
+     */
+    public byte[] fetchDailyBody(String symbol, String outputSize) throws IOException {
+        byte[] body = await(send(queryUri("TIME_SERIES_DAILY", symbol, null, outputSize), InputStream::readAllBytes));
+        if (body.length < MESSAGE_SNIFF_BYTES) {
+            parse(new ByteArrayInputStream(body), 1);
+        }
+        return body;
+    }
+
+    /**
+     * Parses an Alpha Vantage JSON response into primitive OHLCV columns.
+     * Finds the "Time Series (Daily)" or similar block in the stream and reads open, high,
+     * low, close and volume for each date key in a single pass. Works on pretty-printed
+     * and minified JSON alike.
+     *
+     * @param in The response body stream
+     * @param maxPoints The maximum number of bars to read, or 0 for all
+     * @return The parsed bars in document order
+     * @throws IOException If the stream fails, is malformed, or contains a provider message
+     */
+    public static SeriesBuilder parse(InputStream in, int maxPoints) throws IOException {
+        long start = System.nanoTime();
+        SeriesBuilder b = new TimeSeriesParser(in).parse(new SeriesBuilder(maxPoints > 0 ? maxPoints : 256), maxPoints);
+        Metrics.get().recordParse(System.nanoTime() - start, b.size());
+        return b;
+    }
+
+    private URI queryUri(String function, String symbol, String interval, String outputSize) {
+        String sep = baseUrl.indexOf('?') >= 0 ? "&" : "?";
+        return URI.create(baseUrl + sep + "function=" + function + "&symbol=" + URLEncoder.encode(symbol, StandardCharsets.UTF_8)
+                + (interval != null ? "&interval=" + URLEncoder.encode(interval, StandardCharsets.UTF_8) : "")
+                + "&outputsize=" + outputSize + "&apikey=" + URLEncoder.encode(apiKey == null ? "" : apiKey, StandardCharsets.UTF_8));
+    }
+
+    /** Consumes a response body. */
+    private interface BodyReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    /**
+     * Sends a GET, checks the status and reads the decompressed body with {@code reader}
+     * on one of the HTTP client's threads. The headers must arrive within the request
+     * timeout, and after that each read within the read timeout of the previous one, or
+     * the future fails with an {@link HttpTimeoutException}: an ordinary failure, unlike
+     * the {@link InterruptedIOException} callers take for a cancel. Cancelling the
+     * returned future aborts the exchange, or closes the body if it is already being read.
+     */
+    private <T> CompletableFuture<T> send(URI uri, BodyReader<T> reader) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        long sent = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> exchange =
+                http.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        // The body being read, so a cancel can close it
+        AtomicReference<BodyStream> reading = new AtomicReference<>();
+        CompletableFuture<T> result = exchange.thenApply(response -> {
+            Metrics.get().recordRequest(System.nanoTime() - sent);
+            BodyStream body = new BodyStream(response.body(), readTimeoutNanos);
+            // A cancel that came in before the body was published aborts it here
+            if (!reading.compareAndSet(null, body)) body.abort(false);
+            try (InputStream in = body) {
+                int status = response.statusCode();
+                if (status == 429) throw new ApiException("HTTP", "Too many requests (HTTP 429)");
+                if (status < 200 || status >= 400) throw new IOException("HTTP " + status + " from data provider");
+                boolean gzip = response.headers().firstValue("Content-Encoding")
+                        .map(v -> v.equalsIgnoreCase("gzip")).orElse(false);
+                return reader.read(gzip ? new GZIPInputStream(in, 16 * 1024) : in);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        result.whenComplete((v, t) -> {
+            if (!result.isCancelled()) return;
+            exchange.cancel(true);
+            BodyStream body = reading.getAndSet(BodyStream.CANCELLED);
+            if (body != null) body.abort(false);
+        });
+        return result;
+    }
+
+    /** Closes stalled response bodies; one daemon thread for all requests. */
+    private static final class Watchdog {
+        static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "http-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * A response body that adds the bytes read from the wire to {@link Metrics} when it is
+     * closed, and is closed by the {@link Watchdog} once no bytes have arrived for the read
+     * timeout. A read blocked on a body closed that way, or by a cancel, fails instead of
+     * returning what was read so far as if the body were complete.
+     */
+    private static final class BodyStream extends FilterInputStream {
+        // Placeholder published by a cancel that finds no body yet
+        static final BodyStream CANCELLED = new BodyStream(InputStream.nullInputStream(), 0);
+
+        private final long timeoutNanos;
+        private volatile long lastRead = System.nanoTime();
+        private volatile boolean closed;
+        // Why the body was closed under the reader: null, or true for a timeout and false for a cancel
+        private volatile Boolean aborted;
+        private long bytes;
+
+        BodyStream(InputStream in, long timeoutNanos) {
+            super(in);
+            this.timeoutNanos = timeoutNanos;
+            if (timeoutNanos > 0) watch(timeoutNanos);
+        }
+
+        private void watch(long delayNanos) {
+            Watchdog.TIMER.schedule(this::check, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void check() {
+            if (closed) return;
+            long idle = System.nanoTime() - lastRead;
+            if (idle >= timeoutNanos) abort(true);
+            else watch(timeoutNanos - idle);
+        }
+
+        /** Closes the body under a blocked reader, whose read then fails. */
+        void abort(boolean timeout) {
+            if (closed || this == CANCELLED) return;
+            aborted = timeout;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // the reader fails either way
+            }
+        }
+
+        private int counted(int n) throws IOException {
+            Boolean why = aborted;
+            if (why != null) {
+                if (why) throw new HttpTimeoutException("No data from provider for " + timeoutNanos / 1_000_000_000L + " s");
+                throw new InterruptedIOException("Request cancelled");
+            }
+            if (n > 0) bytes += n;
+            lastRead = System.nanoTime();
+            return n;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            try {
+                b = in.read();
+            } catch (IOException ex) {
+                counted(0);
+                throw ex;
+            }
+            counted(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n;
+            try {
+                n = in.read(buf, off, len);
+            } catch (IOException ex) {
+                counted(0);
+                throw ex;
+            }
+            return counted(n);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            counted(0);
+            bytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            Metrics.get().recordBytes(bytes);
+            bytes = 0;
+            super.close();
+        }
+    }
+
+    /**
+     * Waits for a request, translating its failure back into the IOException it
+     * carries. An interrupt cancels the request.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request cancelled");
+        } catch (CancellationException ex) {
+            throw new InterruptedIOException("Request cancelled");
+        } catch (ExecutionException ex) {
+            throw unwrap(ex.getCause());
+        }
+    }
+
+    private static IOException unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof UncheckedIOException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof IOException) return (IOException) t;
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        return new IOException(t);
+    }
+}
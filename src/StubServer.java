@@ -0,0 +1,285 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the Alpha Vantage endpoint, for offline runs, tests and latency or
+ * throughput measurements without the network or the API quota.
+ *
+ * <ul>
+ *   <li><b>Replay</b> serves captured responses from a directory, one file per request
+ *       ({@code <function>-<SYMBOL>[-<interval>]-<outputsize>.json}). A request without a
+ *       recording gets a provider-style "Error Message" body.</li>
+ *   <li><b>Record</b> additionally forwards unknown requests (API key included) to an
+ *       upstream endpoint and saves time series responses for later replays. The key is
+ *       never written to disk.</li>
+ * </ul>
+ *
+ * Bodies are kept in memory after the first read and sent gzip-compressed to clients
+ * that accept it. An optional fixed delay per response simulates network latency.
+ * Point the app at it with {@code STOCK_API_BASE_URL=http://localhost:<port>/query}.
+ *
+ * @author Atharva Usturge
+ */
+public class StubServer {
+    /** A response body in plain and compressed form. */
+    private static final class Body {
+        final byte[] plain;
+        final byte[] gzip;
+
+        Body(byte[] plain) throws IOException {
+            this.plain = plain;
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(plain.length / 4 + 64);
+            try (GZIPOutputStream gz = new GZIPOutputStream(buf)) {
+                gz.write(plain);
+            }
+            this.gzip = buf.toByteArray();
+        }
+    }
+
+    private final Path dir;
+    private final String upstream;
+    private final long latencyMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HttpClient http;
+    private final ConcurrentHashMap<String, Body> bodies = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /**
+     * @param dir           the recordings directory; created if missing
+     * @param port          the port to listen on, or 0 for any free port
+     * @param upstream      the endpoint to record from, or null to replay only
+     * @param latencyMillis delay added before every response
+     * @throws IOException if the directory cannot be created or the port is taken
+     */
+    public StubServer(Path dir, int port, String upstream, long latencyMillis) throws IOException {
+        this.dir = dir;
+        this.upstream = upstream;
+        this.latencyMillis = Math.max(0, latencyMillis);
+        Files.createDirectories(dir);
+        this.http = upstream == null ? null : HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.executor = Executors.newFixedThreadPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "stub-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/query", this::handle);
+    }
+
+    /**
+     * Command-line entry point, reached through {@code App --stub-server}.
+     * <pre>
+     * --stub-server [--port N] [--dir DIR] [--record [UPSTREAM_URL]] [--latency-ms N]
+     * </pre>
+     * Runs until the process is stopped and prints request counts on exit.
+     *
+     * @param args the arguments after {@code --stub-server}
+     * @return the process exit code when startup fails
+     */
+    public static int run(String[] args) {
+        int port = 8089;
+        Path dir = Paths.get("recordings");
+        String upstream = null;
+        long latency = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port": port = Integer.parseInt(args[++i]); break;
+                    case "--dir": dir = Paths.get(args[++i]); break;
+                    case "--latency-ms": latency = Long.parseLong(args[++i]); break;
+                    case "--record":
+                        upstream = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : StockClient.DEFAULT_BASE_URL;
+                        break;
+                    default: throw new IllegalArgumentException("unexpected argument '" + args[i] + "'");
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException ex) {
+            String msg = ex instanceof ArrayIndexOutOfBoundsException ? "missing option value" : ex.getMessage();
+            System.err.println("Error: " + msg);
+            System.err.println("Usage: App --stub-server [--port N] [--dir DIR] [--record [UPSTREAM_URL]] [--latency-ms N]");
+            return 1;
+        }
+        try {
+            StubServer stub = new StubServer(dir, port, upstream, latency);
+            stub.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(stub.stats())));
+            System.out.println("Stub server on " + stub.getUrl() + (upstream != null ? ", recording from " + upstream : ", replaying")
+                    + " " + dir.toAbsolutePath());
+            System.out.println("Point the app at it with STOCK_API_BASE_URL=" + stub.getUrl());
+            return 0;
+        } catch (IOException ex) {
+            System.err.println("Error: cannot start stub server: " + ex.getMessage());
+            return 1;
+        }
+    }
+
+    /** Starts serving. */
+    public void start() {
+        server.start();
+    }
+
+    /** Stops serving and releases the port. */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /** @return the port the server listens on */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** @return the query endpoint to use as the client's base URL */
+    public String getUrl() {
+        return "http://localhost:" + getPort() + "/query";
+    }
+
+    /** @return a one-line summary of the requests served so far */
+    public String stats() {
+        return String.format(Locale.ROOT, "Stub server: %d requests (%d replayed, %d recorded, %d without recording), %.2f MB sent",
+                requests.get(), replayed.get(), recorded.get(), missing.get(), bytesSent.get() / 1e6);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            requests.incrementAndGet();
+            String rawQuery = ex.getRequestURI().getRawQuery();
+            Map<String, String> query = parseQuery(rawQuery);
+            String name = recordingName(query);
+            Body body = bodies.get(name);
+            if (body == null) body = loadRecording(name);
+            if (body != null) {
+                replayed.incrementAndGet();
+            } else if (upstream != null) {
+                body = record(name, rawQuery);
+            }
+            if (body == null) {
+                missing.incrementAndGet();
+                body = new Body(("{\n    \"Error Message\": \"No recording for " + name + "\"\n}")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            send(ex, body);
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void send(HttpExchange ex, Body body) throws IOException {
+        String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = accept != null && accept.toLowerCase(Locale.ROOT).contains("gzip");
+        byte[] bytes = gzip ? body.gzip : body.plain;
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        if (gzip) ex.getResponseHeaders().set("Content-Encoding", "gzip");
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+        bytesSent.addAndGet(bytes.length);
+    }
+
+    private Body loadRecording(String name) throws IOException {
+        Path file = dir.resolve(name);
+        if (!Files.isRegularFile(file)) return null;
+        Body body = new Body(Files.readAllBytes(file));
+        Body raced = bodies.putIfAbsent(name, body);
+        return raced != null ? raced : body;
+    }
+
+    /**
+     * Forwards the request upstream and saves the response if it is a time series;
+     * provider messages (throttling, bad symbol) are passed through but not recorded.
+     */
+    private Body record(String name, String rawQuery) throws IOException {
+        String sep = upstream.indexOf('?') >= 0 ? "&" : "?";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(upstream + sep + rawQuery))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        HttpResponse<byte[]> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Upstream request interrupted");
+        }
+        byte[] plain = response.body();
+        Body body = new Body(plain);
+        if (response.statusCode() == 200 && new String(plain, 0, Math.min(plain.length, 4096), StandardCharsets.UTF_8).contains("\"Time Series")) {
+            Path tmp = dir.resolve(name + ".tmp");
+            Files.write(tmp, plain);
+            Files.move(tmp, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            bodies.put(name, body);
+            recorded.incrementAndGet();
+        }
+        return body;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8).toLowerCase(Locale.ROOT),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * File name for a request: function, symbol, interval and output size; the API key
+     * and any other parameter are ignored.
+     */
+    static String recordingName(Map<String, String> query) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(query.getOrDefault("function", "UNKNOWN").toUpperCase(Locale.ROOT));
+        sb.append('-').append(query.getOrDefault("symbol", "").toUpperCase(Locale.ROOT));
+        String interval = query.get("interval");
+        if (interval != null) sb.append('-').append(interval);
+        sb.append('-').append(query.getOrDefault("outputsize", "compact").toLowerCase(Locale.ROOT));
+        for (int i = 0; i < sb.length(); i++) {
+            char c = sb.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.')) sb.setCharAt(i, '_');
+        }
+        return sb.append(".json").toString();
+    }
+}
@@ -0,0 +1,182 @@
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * As-you-type symbol suggestions for a text field, from a {@link SymbolIndex}.
+ *
+ * Typing restarts a short timer; when it fires the index is searched (which takes
+ * microseconds, so it runs on the EDT) and the matches are shown in a dropdown under the
+ * field. Up and Down pick a suggestion, Enter takes it and then submits the field as
+ * usual, Escape closes the dropdown, and clicking a suggestion takes and submits it. The
+ * dropdown never takes the focus away from the field.
+ *
+ * Must be used on the EDT.
+ *
+ * @author Atharva Usturge
+ */
+public class SymbolAutocomplete {
+    private final JTextField field;
+    private final SymbolIndex index;
+    private final int limit;
+    private final Timer debounce;
+    private final DefaultListModel<SymbolIndex.Entry> model = new DefaultListModel<>();
+    private final JList<SymbolIndex.Entry> list = new JList<>(model);
+    private final JPopupMenu popup = new JPopupMenu();
+    // set while the field text is replaced by a suggestion, so it does not search again
+    private boolean adjusting = false;
+    // text of the last submit; no suggestions are shown for it, e.g. after a watchlist click
+    private String submitted = "";
+
+    /**
+     * Attaches suggestions to a field.
+     *
+     * @param field       the symbol field
+     * @param index       the symbols to suggest
+     * @param delayMillis how long typing must pause before searching
+     * @param limit       the most suggestions shown
+     */
+    public SymbolAutocomplete(JTextField field, SymbolIndex index, int delayMillis, int limit) {
+        this.field = field;
+        this.index = index;
+        this.limit = Math.max(1, limit);
+        this.debounce = new Timer(Math.max(0, delayMillis), e -> search());
+        debounce.setRepeats(false);
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        JScrollPane scroll = new JScrollPane(list);
+        scroll.setBorder(null);
+        popup.add(scroll);
+        popup.setFocusable(false);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { changed(); }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) { changed(); }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) { changed(); }
+        });
+        field.addActionListener(e -> {
+            submitted = field.getText();
+            debounce.stop();
+            hide();
+        });
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                hide();
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int i = list.locationToIndex(e.getPoint());
+                if (i < 0) return;
+                take(model.get(i));
+                field.postActionEvent();
+            }
+        });
+
+        field.getInputMap().put(KeyStroke.getKeyStroke("DOWN"), "suggestNext");
+        field.getInputMap().put(KeyStroke.getKeyStroke("UP"), "suggestPrevious");
+        field.getInputMap().put(KeyStroke.getKeyStroke("ESCAPE"), "suggestClose");
+        field.getActionMap().put("suggestNext", action(e -> move(1)));
+        field.getActionMap().put("suggestPrevious", action(e -> move(-1)));
+        field.getActionMap().put("suggestClose", action(e -> hide()));
+        // Enter takes the highlighted suggestion before the field's own action runs
+        Action accept = field.getActionMap().get(JTextField.notifyAction);
+        field.getActionMap().put(JTextField.notifyAction, action(e -> {
+            if (popup.isVisible() && list.getSelectedIndex() >= 0) take(list.getSelectedValue());
+            hide();
+            if (accept != null) accept.actionPerformed(e);
+        }));
+    }
+
+    /**
+     * Attaches suggestions with the configured delay: env `STOCK_AUTOCOMPLETE_DELAY_MS` /
+     * `stock.autocomplete.delay.ms` (default 120).
+     *
+     * @param field the symbol field
+     * @param index the symbols to suggest
+     * @return the installed autocomplete
+     */
+    public static SymbolAutocomplete install(JTextField field, SymbolIndex index) {
+        return new SymbolAutocomplete(field, index,
+                Config.getInt("STOCK_AUTOCOMPLETE_DELAY_MS", "stock.autocomplete.delay.ms", 120), 10);
+    }
+
+    private static Action action(java.util.function.Consumer<ActionEvent> body) {
+        return new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                body.accept(e);
+            }
+        };
+    }
+
+    private void changed() {
+        if (adjusting) return;
+        debounce.restart();
+    }
+
+    private void search() {
+        String text = field.getText();
+        List<SymbolIndex.Entry> matches = index.complete(text, limit);
+        // nothing to add when the field already holds the only match
+        if (matches.isEmpty() || (matches.size() == 1 && matches.get(0).getSymbol().equalsIgnoreCase(text.trim()))
+                || text.equals(submitted) || !field.isShowing() || !field.hasFocus()) {
+            hide();
+            return;
+        }
+        model.clear();
+        for (SymbolIndex.Entry e : matches) model.addElement(e);
+        list.setVisibleRowCount(matches.size());
+        list.clearSelection();
+        Dimension size = list.getPreferredScrollableViewportSize();
+        popup.setPopupSize(Math.max(field.getWidth(), size.width + 8), size.height + 4);
+        popup.show(field, 0, field.getHeight());
+    }
+
+    private void move(int delta) {
+        if (!popup.isVisible() || model.isEmpty()) return;
+        int i = list.getSelectedIndex() + delta;
+        i = Math.max(0, Math.min(model.size() - 1, i));
+        list.setSelectedIndex(i);
+        list.ensureIndexIsVisible(i);
+    }
+
+    private void take(SymbolIndex.Entry e) {
+        adjusting = true;
+        try {
+            field.setText(e.getSymbol());
+        } finally {
+            adjusting = false;
+        }
+        debounce.stop();
+        hide();
+    }
+
+    private void hide() {
+        if (popup.isVisible()) popup.setVisible(false);
+    }
+}
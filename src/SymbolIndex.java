@@ -0,0 +1,470 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Local index of listed symbols for autocomplete and for rejecting unknown symbols
+ * before a request is made.
+ *
+ * Built from a listings CSV in the format of the provider's {@code LISTING_STATUS}
+ * function ({@code symbol,name,exchange,assetType,ipoDate,delistingDate,status}) and
+ * kept as a binary index file beside the bar store. The file is memory-mapped and
+ * searched in place: one table of record offsets sorted by symbol, binary-searched for
+ * exact and prefix lookups, and one table of the words of every name, sorted
+ * case-insensitively, binary-searched for name prefixes. Lookups touch a few dozen
+ * bytes and take microseconds. The file is rebuilt when the CSV changes.
+ *
+ * <pre>
+ * header:  int magic 'SVSI' | int version | int count | int words | long csvSize | long csvModifiedMillis
+ * symbols: int[count]  record offsets, sorted by symbol
+ * words:   words x (int record | int wordOffset | int wordLength), sorted by lower-cased word
+ * record:  byte symbolLength | symbol | short nameLength | name | byte exchangeLength | exchange
+ *          | byte typeLength | assetType   (UTF-8)
+ * </pre>
+ *
+ * Thread-safe once opened; the mapping is only read.
+ *
+ * @author Atharva Usturge
+ */
+public final class SymbolIndex {
+    private static final int MAGIC = 0x53565349; // "SVSI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int WORD_SIZE = 12;
+    private static final String INDEX_FILE = "symbols.idx";
+
+    /** One listed symbol. */
+    public static final class Entry {
+        private final String symbol;
+        private final String name;
+        private final String exchange;
+        private final String assetType;
+
+        Entry(String symbol, String name, String exchange, String assetType) {
+            this.symbol = symbol;
+            this.name = name;
+            this.exchange = exchange;
+            this.assetType = assetType;
+        }
+
+        public String getSymbol() { return symbol; }
+        public String getName() { return name; }
+        public String getExchange() { return exchange; }
+
+        /** @return "Stock" or "ETF" */
+        public String getAssetType() { return assetType; }
+
+        /** @return e.g. "IBM  International Business Machines Corp (NYSE)" */
+        @Override
+        public String toString() {
+            return symbol + "  " + name + (exchange.isEmpty() ? "" : " (" + exchange + ")");
+        }
+    }
+
+    private final ByteBuffer map;
+    private final int count;
+    private final int words;
+    private final int wordsStart;
+
+    private SymbolIndex(ByteBuffer map) throws IOException {
+        if (map.limit() < HEADER_SIZE || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Not a symbol index file");
+        }
+        this.map = map;
+        this.count = map.getInt(8);
+        this.words = map.getInt(12);
+        this.wordsStart = HEADER_SIZE + 4 * count;
+        if (count < 0 || words < 0 || (long) wordsStart + (long) WORD_SIZE * words > map.limit()) {
+            throw new IOException("Truncated symbol index file");
+        }
+    }
+
+    /**
+     * Opens the index configured by env `STOCK_SYMBOLS_FILE` / `stock.symbols.file`
+     * (the listings CSV, default "listing_status.csv"), kept as "symbols.idx" in the data
+     * directory (`stock.data.dir`).
+     *
+     * @return the index, or null if neither the CSV nor a built index exists
+     * @throws IOException if the CSV or the index cannot be read, or the index cannot be written
+     */
+    public static SymbolIndex fromConfig() throws IOException {
+        Path csv = Paths.get(Config.get("STOCK_SYMBOLS_FILE", "stock.symbols.file", "listing_status.csv"));
+        Path dir = Paths.get(Config.get("STOCK_DATA_DIR", "stock.data.dir", "data"));
+        Path index = dir.resolve(INDEX_FILE);
+        if (!Files.exists(csv) && !Files.exists(index)) return null;
+        Files.createDirectories(dir);
+        return open(csv, index);
+    }
+
+    /**
+     * Maps an index file, first (re)building it from the CSV if it is missing or was built
+     * from a different version of the CSV. A missing CSV leaves an existing index as is.
+     *
+     * @param csv   the listings CSV
+     * @param index the index file
+     * @return the index
+     * @throws IOException if a file cannot be read or written
+     */
+    public static SymbolIndex open(Path csv, Path index) throws IOException {
+        if (Files.exists(csv) && !isCurrent(csv, index)) build(csv, index);
+        try (FileChannel ch = FileChannel.open(index, StandardOpenOption.READ)) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new SymbolIndex(map);
+        }
+    }
+
+    private static boolean isCurrent(Path csv, Path index) throws IOException {
+        if (!Files.exists(index) || Files.size(index) < HEADER_SIZE) return false;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel ch = FileChannel.open(index, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && ch.read(header) >= 0) {
+                // fill the header
+            }
+        }
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                && header.getLong(16) == Files.size(csv)
+                && header.getLong(24) == Files.getLastModifiedTime(csv).toMillis();
+    }
+
+    /**
+     * Builds an index file from a listings CSV. Only active listings are kept; the file is
+     * written beside the target and moved into place.
+     *
+     * @param csv   the listings CSV
+     * @param index the index file to write
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void build(Path csv, Path index) throws IOException {
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            while ((line = in.readLine()) != null) {
+                String[] f = parseRow(line);
+                if (f == null || !f[4].equalsIgnoreCase("Active")) continue;
+                rows.putIfAbsent(f[0], f);
+            }
+        }
+        String[] symbols = rows.keySet().toArray(new String[0]);
+        Arrays.sort(symbols);
+
+        // Records in symbol order, so the symbol table is ascending offsets
+        byte[][] records = new byte[symbols.length][];
+        int[] offsets = new int[symbols.length];
+        List<int[]> wordList = new ArrayList<>();
+        int recordsSize = 0;
+        for (int i = 0; i < symbols.length; i++) {
+            String[] f = rows.get(symbols[i]);
+            byte[] sym = clip(f[0].getBytes(StandardCharsets.UTF_8), 255);
+            byte[] name = clip(f[1].getBytes(StandardCharsets.UTF_8), Short.MAX_VALUE);
+            byte[] exch = clip(f[2].getBytes(StandardCharsets.UTF_8), 255);
+            byte[] type = clip(f[3].getBytes(StandardCharsets.UTF_8), 255);
+            ByteBuffer r = ByteBuffer.allocate(1 + sym.length + 2 + name.length + 1 + exch.length + 1 + type.length);
+            r.put((byte) sym.length).put(sym).putShort((short) name.length).put(name)
+                    .put((byte) exch.length).put(exch).put((byte) type.length).put(type);
+            records[i] = r.array();
+            offsets[i] = recordsSize;
+            // words of the name, as offsets relative to the record for now
+            int nameAt = 1 + sym.length + 2;
+            for (int k = 0; k < name.length; ) {
+                if (!isWordByte(name[k])) {
+                    k++;
+                    continue;
+                }
+                int start = k;
+                while (k < name.length && isWordByte(name[k])) k++;
+                wordList.add(new int[] {i, recordsSize + nameAt + start, k - start});
+            }
+            recordsSize += records[i].length;
+        }
+
+        int n = symbols.length, w = wordList.size();
+        int recordsStart = HEADER_SIZE + 4 * n + WORD_SIZE * w;
+        ByteBuffer out = ByteBuffer.allocate(recordsStart + recordsSize);
+        out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(w);
+        out.putLong(Files.size(csv)).putLong(Files.getLastModifiedTime(csv).toMillis());
+        for (int off : offsets) out.putInt(recordsStart + off);
+        int wordsAt = out.position();
+        out.position(recordsStart);
+        for (byte[] r : records) out.put(r);
+
+        // Sort the words against the record bytes just written
+        int[][] sorted = wordList.toArray(new int[0][]);
+        for (int[] word : sorted) word[1] += recordsStart;
+        byte[] all = out.array();
+        Arrays.sort(sorted, (a, b) -> compareWords(all, a, b));
+        out.position(wordsAt);
+        for (int[] word : sorted) out.putInt(word[0]).putInt(word[1]).putInt(word[2]);
+
+        Path tmp = index.resolveSibling(index.getFileName() + ".tmp");
+        Files.write(tmp, all);
+        Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Splits a listings row. Names may contain unquoted commas, so the fields are taken
+     * from both ends: the first is the symbol, the last five follow the name.
+     *
+     * @return symbol, name, exchange, asset type and status, or null for a malformed row
+     */
+    private static String[] parseRow(String line) {
+        List<String> f = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cur.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                f.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        f.add(cur.toString());
+        int n = f.size();
+        if (n < 7) return null;
+        String symbol = f.get(0).trim().toUpperCase(Locale.ROOT);
+        if (symbol.isEmpty()) return null;
+        String name = String.join(",", f.subList(1, n - 5)).trim();
+        return new String[] {symbol, name, f.get(n - 5).trim(), f.get(n - 4).trim(), f.get(n - 1).trim()};
+    }
+
+    private static byte[] clip(byte[] b, int max) {
+        return b.length <= max ? b : Arrays.copyOf(b, max);
+    }
+
+    private static boolean isWordByte(byte b) {
+        return (b >= '0' && b <= '9') || (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || b < 0;
+    }
+
+    private static int lower(int b) {
+        return b >= 'A' && b <= 'Z' ? b + 32 : b & 0xff;
+    }
+
+    private static int compareWords(byte[] buf, int[] a, int[] b) {
+        int n = Math.min(a[2], b[2]);
+        for (int k = 0; k < n; k++) {
+            int d = lower(buf[a[1] + k]) - lower(buf[b[1] + k]);
+            if (d != 0) return d;
+        }
+        return a[2] - b[2];
+    }
+
+    /** @return the number of symbols */
+    public int size() { return count; }
+
+    /**
+     * @param symbol a symbol, in any case
+     * @return true if the symbol is listed
+     */
+    public boolean contains(String symbol) {
+        byte[] q = symbol.trim().toUpperCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        int i = lowerBound(q);
+        return i < count && compareSymbol(i, q, false) == 0;
+    }
+
+    /**
+     * Tells whether a symbol is of a form the listings cover. The provider lists US
+     * exchanges only; symbols elsewhere carry their exchange after a dot ({@code TSCO.LON},
+     * {@code RELIANCE.BSE}) and are never in the listings. A single letter after the dot
+     * is a share class ({@code BRK.B}), not an exchange.
+     *
+     * @param symbol a symbol, in any case
+     * @return false if the symbol has an exchange suffix
+     */
+    public static boolean covers(String symbol) {
+        String s = symbol.trim();
+        int dot = s.lastIndexOf('.');
+        return dot < 0 || s.length() - dot - 1 < 2;
+    }
+
+    /**
+     * @param symbol a symbol, in any case
+     * @return its entry, or null if it is not listed
+     */
+    public Entry get(String symbol) {
+        byte[] q = symbol.trim().toUpperCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        int i = lowerBound(q);
+        return i < count && compareSymbol(i, q, false) == 0 ? entry(i) : null;
+    }
+
+    /**
+     * Suggests symbols for what has been typed so far, best matches first: the exact
+     * symbol, symbols starting with the query, names with a word starting with the query
+     * (every further query word must appear in the name too), and, if no symbol starts
+     * with the query, symbols one typo away (a wrong, missing, extra or swapped character).
+     *
+     * @param query the text typed, in any case
+     * @param limit the most suggestions returned
+     * @return the suggestions
+     */
+    public List<Entry> complete(String query, int limit) {
+        List<Entry> out = new ArrayList<>();
+        String q = query.trim();
+        if (q.isEmpty() || limit <= 0) return out;
+        BitSet seen = new BitSet();
+
+        // Symbols starting with the query; the exact match sorts first
+        byte[] sym = q.toUpperCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        for (int i = lowerBound(sym); i < count && out.size() < limit && compareSymbol(i, sym, true) == 0; i++) {
+            seen.set(i);
+            out.add(entry(i));
+        }
+        boolean prefixed = !out.isEmpty();
+
+        // Names with a word starting with the first query word
+        String[] terms = q.toLowerCase(Locale.ROOT).split("[^\\p{Alnum}]+");
+        String first = terms.length > 0 && !terms[0].isEmpty() ? terms[0] : terms.length > 1 ? terms[1] : "";
+        if (out.size() < limit && !first.isEmpty()) {
+            byte[] word = first.getBytes(StandardCharsets.UTF_8);
+            for (int k = wordLowerBound(word); k < words && out.size() < limit && compareWord(k, word, true) == 0; k++) {
+                int i = map.getInt(wordsStart + k * WORD_SIZE);
+                if (seen.get(i)) continue;
+                Entry e = entry(i);
+                if (!containsAll(e.getName().toLowerCase(Locale.ROOT), terms)) continue;
+                seen.set(i);
+                out.add(e);
+            }
+        }
+
+        // One typo away, for symbol-like queries that no symbol starts with; this is the
+        // only pass that reads every record
+        if (!prefixed && out.size() < limit && sym.length >= 2 && sym.length <= 8 && q.indexOf(' ') < 0) {
+            byte[] s = new byte[256];
+            for (int i = 0; i < count && out.size() < limit; i++) {
+                if (seen.get(i)) continue;
+                int p = map.getInt(HEADER_SIZE + 4 * i);
+                int len = map.get(p) & 0xff;
+                if (Math.abs(len - sym.length) > 1) continue;
+                for (int k = 0; k < len; k++) s[k] = map.get(p + 1 + k);
+                if (withinOneEdit(s, len, sym)) {
+                    seen.set(i);
+                    out.add(entry(i));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static boolean containsAll(String name, String[] terms) {
+        for (String t : terms) {
+            if (!t.isEmpty() && !name.contains(t)) return false;
+        }
+        return true;
+    }
+
+    /** True if {@code a[0..len)} and {@code b} differ by at most one edit or one adjacent swap. */
+    private static boolean withinOneEdit(byte[] a, int len, byte[] b) {
+        int n = b.length;
+        int i = 0;
+        while (i < len && i < n && a[i] == b[i]) i++;
+        if (i == len && i == n) return true;
+        if (len == n) {
+            // substitution, or a swap of neighbours
+            if (equalTail(a, i + 1, b, i + 1, len)) return true;
+            return i + 1 < n && a[i] == b[i + 1] && a[i + 1] == b[i] && equalTail(a, i + 2, b, i + 2, len);
+        }
+        // one extra character on either side
+        if (len == n + 1) return equalTail(a, i + 1, b, i, len);
+        return equalTail(a, i, b, i + 1, len);
+    }
+
+    private static boolean equalTail(byte[] a, int ai, byte[] b, int bi, int aLen) {
+        if (aLen - ai != b.length - bi) return false;
+        for (; ai < aLen; ai++, bi++) {
+            if (a[ai] != b[bi]) return false;
+        }
+        return true;
+    }
+
+    private Entry entry(int i) {
+        int p = map.getInt(HEADER_SIZE + 4 * i);
+        int symLen = map.get(p) & 0xff;
+        String symbol = string(p + 1, symLen);
+        p += 1 + symLen;
+        int nameLen = map.getShort(p) & 0xffff;
+        String name = string(p + 2, nameLen);
+        p += 2 + nameLen;
+        int exLen = map.get(p) & 0xff;
+        String exchange = string(p + 1, exLen);
+        p += 1 + exLen;
+        return new Entry(symbol, name, exchange, string(p + 1, map.get(p) & 0xff));
+    }
+
+    private String string(int at, int len) {
+        byte[] b = new byte[len];
+        for (int k = 0; k < len; k++) b[k] = map.get(at + k);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** @return the first symbol index whose symbol is not less than {@code q} */
+    private int lowerBound(byte[] q) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareSymbol(mid, q, false) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Compares symbol {@code i} with {@code q} byte-wise; with {@code prefix}, a symbol
+     * that starts with {@code q} compares equal.
+     */
+    private int compareSymbol(int i, byte[] q, boolean prefix) {
+        int p = map.getInt(HEADER_SIZE + 4 * i);
+        int len = map.get(p) & 0xff;
+        int n = Math.min(len, q.length);
+        for (int k = 0; k < n; k++) {
+            int d = (map.get(p + 1 + k) & 0xff) - (q[k] & 0xff);
+            if (d != 0) return d;
+        }
+        if (prefix && len >= q.length) return 0;
+        return len - q.length;
+    }
+
+    private int wordLowerBound(byte[] q) {
+        int lo = 0, hi = words;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareWord(mid, q, false) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Case-insensitive counterpart of {@link #compareSymbol} for the word table; {@code q} is lower case. */
+    private int compareWord(int k, byte[] q, boolean prefix) {
+        int at = wordsStart + k * WORD_SIZE;
+        int p = map.getInt(at + 4), len = map.getInt(at + 8);
+        int n = Math.min(len, q.length);
+        for (int j = 0; j < n; j++) {
+            int d = lower(map.get(p + j)) - (q[j] & 0xff);
+            if (d != 0) return d;
+        }
+        if (prefix && len >= q.length) return 0;
+        return len - q.length;
+    }
+}
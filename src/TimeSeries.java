@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/**
+ * Immutable, columnar OHLCV time series.
+ * Each field lives in its own primitive array, so a bar costs 48 bytes (one long
+ * time plus five doubles) with no object headers, boxing or per-bar strings.
+ * Bars are ordered oldest first. The close range and the low/high range are
+ * computed on first use and cached, so renderers never rescan the data for scaling
+ * and live views can be created without a scan.
+ *
+ * Times are epoch seconds in UTC; daily bars sit at midnight.
+ *
+ * @author Atharva Usturge
+ */
+public final class TimeSeries {
+    /** A series with no bars. */
+    public static final TimeSeries EMPTY = new TimeSeries(new long[0], new double[0], new double[0],
+            new double[0], new double[0], new double[0], false);
+
+    private final long[] times;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+    private final int size;
+    private final boolean intraday;
+
+    // Computed on first use; the volatile flag publishes the four values
+    private double minClose;
+    private double maxClose;
+    private double lowest;
+    private double highest;
+    private volatile boolean statsReady;
+
+    /**
+     * Wraps the given columns without copying them. Callers hand over ownership:
+     * the arrays must not be modified afterwards. All arrays must have equal length
+     * and times must be ascending.
+     */
+    TimeSeries(long[] times, double[] open, double[] high, double[] low, double[] close,
+               double[] volume, boolean intraday) {
+        this(times, open, high, low, close, volume, times.length, intraday);
+    }
+
+    /**
+     * Wraps the first {@code size} entries of the given columns without copying them.
+     * Used for O(1) views over a {@link LiveSeries}; entries below {@code size} must not
+     * change except as documented there.
+     */
+    TimeSeries(long[] times, double[] open, double[] high, double[] low, double[] close,
+               double[] volume, int size, boolean intraday) {
+        this.times = times;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.size = size;
+        this.intraday = intraday;
+    }
+
+    private void computeStats() {
+        double mn = Double.POSITIVE_INFINITY, mx = Double.NEGATIVE_INFINITY;
+        double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double c = close[i];
+            if (c < mn) mn = c;
+            if (c > mx) mx = c;
+            // missing high/low (NaN) fall back to the close
+            double l = low[i] < c ? low[i] : c;
+            double h = high[i] > c ? high[i] : c;
+            if (l < lo) lo = l;
+            if (h > hi) hi = h;
+        }
+        minClose = mn;
+        maxClose = mx;
+        lowest = lo;
+        highest = hi;
+        statsReady = true;
+    }
+
+    /** @return the number of bars */
+    public int size() { return size; }
+
+    /** @return true if the series has no bars */
+    public boolean isEmpty() { return size == 0; }
+
+    /** @return true if bar times carry a time of day */
+    public boolean isIntraday() { return intraday; }
+
+    /** @return bar time in epoch seconds */
+    public long time(int i) { return times[i]; }
+
+    /** @return bar date as days since 1970-01-01 */
+    public long epochDay(int i) { return Math.floorDiv(times[i], 86400L); }
+
+    public double open(int i) { return open[i]; }
+    public double high(int i) { return high[i]; }
+    public double low(int i) { return low[i]; }
+    public double close(int i) { return close[i]; }
+    public double volume(int i) { return volume[i]; }
+
+    /** @return the smallest close, or +Infinity if empty */
+    public double minClose() {
+        if (!statsReady) computeStats();
+        return minClose;
+    }
+
+    /** @return the largest close, or -Infinity if empty */
+    public double maxClose() {
+        if (!statsReady) computeStats();
+        return maxClose;
+    }
+
+    /** @return the smallest low (falling back to close where low is missing) */
+    public double lowest() {
+        if (!statsReady) computeStats();
+        return lowest;
+    }
+
+    /** @return the largest high (falling back to close where high is missing) */
+    public double highest() {
+        if (!statsReady) computeStats();
+        return highest;
+    }
+
+    /**
+     * @param n the number of bars to keep
+     * @return a copy of the newest {@code n} bars, or this series if it has no more than that
+     */
+    public TimeSeries tail(int n) {
+        if (n >= size) return this;
+        int from = size - Math.max(0, n);
+        return new TimeSeries(Arrays.copyOfRange(times, from, size), Arrays.copyOfRange(open, from, size),
+                Arrays.copyOfRange(high, from, size), Arrays.copyOfRange(low, from, size),
+                Arrays.copyOfRange(close, from, size), Arrays.copyOfRange(volume, from, size), intraday);
+    }
+
+    /** @return the time of the newest bar, or Long.MIN_VALUE if empty */
+    public long lastTime() {
+        return size == 0 ? Long.MIN_VALUE : times[size - 1];
+    }
+}
@@ -0,0 +1,435 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming, single-pass parser for Alpha Vantage time series responses.
+ * Reads the HTTP body straight from an {@link InputStream} through a fixed byte buffer
+ * and writes every bar into a {@link SeriesBuilder}. Keys, dates and numbers are
+ * decoded directly from the bytes, so no intermediate String, regex or boxed value
+ * is created per bar. Whitespace is insignificant, so both pretty-printed and
+ * minified JSON are accepted.
+ *
+ * Only the parts of the document needed for charting are interpreted: the
+ * "Time Series (...)" object and the provider message fields ("Error Message",
+ * "Note", "Information"). Everything else is skipped without being materialized.
+ *
+ * @author Atharva Usturge
+ */
+public class TimeSeriesParser {
+    private static final int OPEN = 0, HIGH = 1, LOW = 2, CLOSE = 3, VOLUME = 4, OTHER = -1;
+
+    // Exact powers of ten; a long mantissa below 2^53 divided by one of these is correctly rounded
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final byte[] buf = new byte[16 * 1024];
+    private int pos;
+    private int limit;
+
+    // Scratch buffer for the most recently read string or number token
+    private byte[] tok = new byte[64];
+    private int tokLen;
+
+    private String messageField;
+    private String message;
+    private boolean sawSeries;
+
+    /**
+     * Creates a parser over the given stream. The stream is not closed by the parser.
+     *
+     * @param in the response body
+     */
+    public TimeSeriesParser(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Parses the response and returns its bars in document order (newest first for
+     * Alpha Vantage). Parsing stops as soon as {@code maxPoints} bars have been read,
+     * without consuming the rest of the stream.
+     *
+     * @param out       the builder that receives the bars
+     * @param maxPoints the maximum number of bars to read, or a value &lt;= 0 for no limit
+     * @return the builder passed in
+     * @throws ApiException if the response contains a provider message and no series
+     * @throws IOException  if the stream fails or the JSON is malformed
+     */
+    public SeriesBuilder parse(SeriesBuilder out, int maxPoints) throws IOException {
+        int limitBars = maxPoints <= 0 ? Integer.MAX_VALUE : maxPoints;
+        int c = nextNonWs();
+        if (c != '{') throw malformed("expected '{'");
+        while (true) {
+            c = nextNonWs();
+            if (c == '}') break;
+            // a body cut off mid-document must not pass for a shorter series
+            if (c == -1) throw malformed("unexpected end of input");
+            if (c == ',') continue;
+            if (c != '"') throw malformed("expected object key");
+            readString();
+            expect(':');
+            if (startsWith("Time Series")) {
+                sawSeries = true;
+                if (parseSeries(out, limitBars)) break;
+            } else if (equalsTok("Error Message") || equalsTok("Note") || equalsTok("Information")) {
+                String field = tokString();
+                c = nextNonWs();
+                if (c == '"') {
+                    readString();
+                    messageField = field;
+                    message = tokString();
+                } else {
+                    skipValue(c);
+                }
+            } else {
+                skipValue(nextNonWs());
+            }
+        }
+        if (!sawSeries && message != null) throw new ApiException(messageField, message);
+        return out;
+    }
+
+    /** @return the provider message found in the response, or null if none */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Parses the object of date keys. Returns true if the bar limit was reached and
+     * the rest of the document should be left unread.
+     */
+    private boolean parseSeries(SeriesBuilder out, int limitBars) throws IOException {
+        expect('{');
+        while (true) {
+            int c = nextNonWs();
+            if (c == '}') return false;
+            if (c == ',') continue;
+            if (c != '"') throw malformed("expected date key");
+            readString();
+            long time = parseTime(out);
+            expect(':');
+            if (time == Long.MIN_VALUE) {
+                skipValue(nextNonWs());
+                continue;
+            }
+            parseBar(out, time);
+            if (out.size() >= limitBars) return true;
+        }
+    }
+
+    private void parseBar(SeriesBuilder out, long time) throws IOException {
+        expect('{');
+        double o = Double.NaN, h = Double.NaN, l = Double.NaN, cl = Double.NaN, v = Double.NaN;
+        while (true) {
+            int c = nextNonWs();
+            if (c == '}') break;
+            if (c == ',') continue;
+            if (c != '"') throw malformed("expected field key");
+            readString();
+            int field = fieldOf();
+            expect(':');
+            c = nextNonWs();
+            double d;
+            if (c == '"') {
+                readString();
+                d = parseNumber();
+            } else if (c == '-' || (c >= '0' && c <= '9')) {
+                readLiteral(c);
+                d = parseNumber();
+            } else {
+                skipValue(c);
+                continue;
+            }
+            switch (field) {
+                case OPEN: o = d; break;
+                case HIGH: h = d; break;
+                case LOW: l = d; break;
+                case CLOSE: cl = d; break;
+                case VOLUME: v = d; break;
+                default: break;
+            }
+        }
+        if (!Double.isNaN(cl)) out.add(time, o, h, l, cl, v);
+    }
+
+    /**
+     * Maps a key such as "1. open" or "5. volume" to a field constant by looking at
+     * the text after the ". " prefix. Keys such as "5. adjusted close" map to OTHER.
+     */
+    private int fieldOf() {
+        int start = 0;
+        for (int i = 0; i + 1 < tokLen; i++) {
+            if (tok[i] == '.' && tok[i + 1] == ' ') {
+                start = i + 2;
+                break;
+            }
+        }
+        if (regionEquals(start, "open")) return OPEN;
+        if (regionEquals(start, "high")) return HIGH;
+        if (regionEquals(start, "low")) return LOW;
+        if (regionEquals(start, "close")) return CLOSE;
+        if (regionEquals(start, "volume")) return VOLUME;
+        return OTHER;
+    }
+
+    /**
+     * Parses the current token as "yyyy-MM-dd" or "yyyy-MM-dd HH:mm[:ss]" into epoch
+     * seconds. Returns Long.MIN_VALUE if the token is not a date.
+     */
+    private long parseTime(SeriesBuilder out) {
+        if (tokLen < 10 || tok[4] != '-' || tok[7] != '-') return Long.MIN_VALUE;
+        int y = digits(0, 4), m = digits(5, 2), d = digits(8, 2);
+        if (y < 0 || m < 1 || m > 12 || d < 1 || d > 31) return Long.MIN_VALUE;
+        long seconds = epochDay(y, m, d) * 86400L;
+        if (tokLen >= 16 && tok[10] == ' ' && tok[13] == ':') {
+            int hh = digits(11, 2), mm = digits(14, 2);
+            int ss = tokLen >= 19 && tok[16] == ':' ? digits(17, 2) : 0;
+            if (hh < 0 || mm < 0 || ss < 0) return Long.MIN_VALUE;
+            seconds += hh * 3600L + mm * 60L + ss;
+            out.setIntraday(true);
+        }
+        return seconds;
+    }
+
+    private int digits(int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            int b = tok[i] - '0';
+            if (b < 0 || b > 9) return -1;
+            v = v * 10 + b;
+        }
+        return v;
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date (civil-from-days inverse).
+     */
+    static long epochDay(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153L * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Parses the current token as a decimal number. Plain decimals with up to 18
+     * significant digits take an exact fast path; anything else falls back to
+     * {@link Double#parseDouble}.
+     */
+    private double parseNumber() {
+        int i = 0;
+        boolean neg = false;
+        if (i < tokLen && (tok[i] == '-' || tok[i] == '+')) {
+            neg = tok[i] == '-';
+            i++;
+        }
+        long mant = 0;
+        int digitCount = 0;
+        int fracDigits = 0;
+        boolean seenDot = false;
+        boolean any = false;
+        for (; i < tokLen; i++) {
+            byte b = tok[i];
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (mant == 0 && b == '0') {
+                    if (seenDot) fracDigits++;
+                    continue;
+                }
+                if (++digitCount > 18) return slowNumber();
+                mant = mant * 10 + (b - '0');
+                if (seenDot) fracDigits++;
+            } else if (b == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                return slowNumber();
+            }
+        }
+        if (!any) return Double.NaN;
+        if (mant >= (1L << 53) || fracDigits >= POW10.length) return slowNumber();
+        double v = fracDigits == 0 ? mant : mant / POW10[fracDigits];
+        return neg ? -v : v;
+    }
+
+    private double slowNumber() {
+        try {
+            return Double.parseDouble(tokString().trim());
+        } catch (NumberFormatException nfe) {
+            return Double.NaN;
+        }
+    }
+
+    // ---------------------------------------------------------------- lexing
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private int nextNonWs() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private void expect(char ch) throws IOException {
+        int c = nextNonWs();
+        if (c != ch) throw malformed("expected '" + ch + "'");
+    }
+
+    /** Reads a string body (opening quote already consumed) into the token buffer. */
+    private void readString() throws IOException {
+        tokLen = 0;
+        while (true) {
+            int c = read();
+            if (c == -1) throw malformed("unterminated string");
+            if (c == '"') return;
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'n': c = '\n'; break;
+                    case 't': c = '\t'; break;
+                    case 'r': c = '\r'; break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'u': appendCodePoint(readHex4()); continue;
+                    case -1: throw malformed("unterminated string");
+                    default: break; // '"', '\\', '/' map to themselves
+                }
+            }
+            append(c);
+        }
+    }
+
+    private int readHex4() throws IOException {
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int c = read();
+            int d = Character.digit(c, 16);
+            if (d < 0) throw malformed("bad \\u escape");
+            v = (v << 4) | d;
+        }
+        return v;
+    }
+
+    private void appendCodePoint(int cp) {
+        if (cp < 0x80) {
+            append(cp);
+        } else if (cp < 0x800) {
+            append(0xC0 | (cp >> 6));
+            append(0x80 | (cp & 0x3F));
+        } else {
+            append(0xE0 | (cp >> 12));
+            append(0x80 | ((cp >> 6) & 0x3F));
+            append(0x80 | (cp & 0x3F));
+        }
+    }
+
+    /** Reads an unquoted number whose first byte has already been consumed. */
+    private void readLiteral(int first) throws IOException {
+        tokLen = 0;
+        append(first);
+        while (true) {
+            if (pos == limit && peekFill() == -1) return;
+            int c = buf[pos] & 0xFF;
+            if ((c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E') {
+                append(c);
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int peekFill() throws IOException {
+        limit = in.read(buf, 0, buf.length);
+        pos = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return -1;
+        }
+        return buf[0] & 0xFF;
+    }
+
+    private void append(int b) {
+        if (tokLen == tok.length) tok = java.util.Arrays.copyOf(tok, tok.length * 2);
+        tok[tokLen++] = (byte) b;
+    }
+
+    /** Skips one JSON value whose first non-whitespace byte is {@code c}. */
+    private void skipValue(int c) throws IOException {
+        if (c == '"') {
+            skipString();
+            return;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                int b = read();
+                if (b == -1) throw malformed("unexpected end of input");
+                if (b == '"') skipString();
+                else if (b == '{' || b == '[') depth++;
+                else if (b == '}' || b == ']') depth--;
+            }
+            return;
+        }
+        // number, true, false, null: consume until a structural byte
+        while (true) {
+            if (pos == limit && peekFill() == -1) return;
+            int b = buf[pos] & 0xFF;
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t') return;
+            pos++;
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int b = read();
+            if (b == -1) throw malformed("unterminated string");
+            if (b == '"') return;
+            if (b == '\\') read();
+        }
+    }
+
+    private boolean startsWith(String s) {
+        if (tokLen < s.length()) return false;
+        return regionMatches(0, s);
+    }
+
+    private boolean equalsTok(String s) {
+        return tokLen == s.length() && regionMatches(0, s);
+    }
+
+    private boolean regionEquals(int start, String s) {
+        return tokLen - start == s.length() && regionMatches(start, s);
+    }
+
+    private boolean regionMatches(int start, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (tok[start + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String tokString() {
+        return new String(tok, 0, tokLen, StandardCharsets.UTF_8);
+    }
+
+    private IOException malformed(String what) {
+        return new IOException("Malformed time series response: " + what);
+    }
+}
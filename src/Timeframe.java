@@ -0,0 +1,100 @@
+import java.util.Locale;
+
+/**
+ * A bar size to resample a series to: N minutes, daily, weekly (Monday to Sunday),
+ * monthly or quarterly, or {@link #NATIVE} for the bars as fetched. Calendar buckets
+ * follow UTC dates, which is how bar times are stored. Used with {@link Resampler}
+ * and as part of the {@link ResampleCache} key.
+ *
+ * @author Atharva Usturge
+ */
+public final class Timeframe {
+    /** Bucket kinds, finest first. */
+    public enum Unit { NATIVE, MINUTES, DAY, WEEK, MONTH, QUARTER }
+
+    /** The bars as fetched, not resampled. */
+    public static final Timeframe NATIVE = new Timeframe(Unit.NATIVE, 0);
+    public static final Timeframe DAILY = new Timeframe(Unit.DAY, 1);
+    public static final Timeframe WEEKLY = new Timeframe(Unit.WEEK, 1);
+    public static final Timeframe MONTHLY = new Timeframe(Unit.MONTH, 1);
+    public static final Timeframe QUARTERLY = new Timeframe(Unit.QUARTER, 1);
+
+    private final Unit unit;
+    private final int minutes;
+
+    private Timeframe(Unit unit, int minutes) {
+        this.unit = unit;
+        this.minutes = minutes;
+    }
+
+    /**
+     * @param n bar size in minutes; at least 1
+     * @return an N-minute timeframe
+     */
+    public static Timeframe minutes(int n) {
+        if (n < 1) throw new IllegalArgumentException("minutes must be positive: " + n);
+        return new Timeframe(Unit.MINUTES, n);
+    }
+
+    /**
+     * Parses a timeframe name: "native", "daily"/"1d", "weekly"/"1w", "monthly"/"1m",
+     * "quarterly"/"1q", or "Nmin" (e.g. "15min"), case-insensitively.
+     *
+     * @param text the name
+     * @return the timeframe
+     * @throws IllegalArgumentException if the name is not recognized
+     */
+    public static Timeframe parse(String text) {
+        String t = text.trim().toLowerCase(Locale.ROOT).replace(" ", "");
+        switch (t) {
+            case "native": return NATIVE;
+            case "daily": case "1d": case "d": return DAILY;
+            case "weekly": case "1w": case "w": return WEEKLY;
+            case "monthly": case "1m": case "m": return MONTHLY;
+            case "quarterly": case "1q": case "q": return QUARTERLY;
+            default:
+                if (t.endsWith("min")) {
+                    try {
+                        return minutes(Integer.parseInt(t.substring(0, t.length() - 3)));
+                    } catch (NumberFormatException ex) {
+                        // fall through
+                    }
+                }
+                throw new IllegalArgumentException("unknown timeframe '" + text + "'");
+        }
+    }
+
+    public Unit getUnit() { return unit; }
+
+    /** @return the bar size in minutes for {@link Unit#MINUTES}, otherwise 0 or 1 */
+    public int getMinutes() { return minutes; }
+
+    /** @return true for {@link Unit#MINUTES}, which only applies to intraday bars */
+    public boolean isIntraday() { return unit == Unit.MINUTES; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Timeframe)) return false;
+        Timeframe t = (Timeframe) o;
+        return unit == t.unit && minutes == t.minutes;
+    }
+
+    @Override
+    public int hashCode() {
+        return unit.hashCode() * 31 + minutes;
+    }
+
+    /** @return the display name, e.g. "15min" or "Weekly" */
+    @Override
+    public String toString() {
+        switch (unit) {
+            case NATIVE: return "Native";
+            case MINUTES: return minutes + "min";
+            case DAY: return "Daily";
+            case WEEK: return "Weekly";
+            case MONTH: return "Monthly";
+            default: return "Quarterly";
+        }
+    }
+}
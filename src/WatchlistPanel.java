@@ -0,0 +1,378 @@
+import javax.swing.JPanel;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Watchlist view: a grid of fixed-size tiles, one per symbol, each showing the symbol,
+ * the last close, the change against the previous close and a sparkline of the recent
+ * bars.
+ *
+ * Tiles are rasterized into their own images on a small worker pool, never on the EDT;
+ * painting the grid only copies the images of the tiles inside the clip. Updating a
+ * symbol re-rasterizes that one tile and repaints its rectangle, and updates arriving
+ * while a tile is queued or being drawn are coalesced into one more pass with the newest
+ * series, so the queue never holds more than one job per tile. Resizing the window only
+ * reflows the grid: tiles have a fixed size and keep their images.
+ *
+ * {@link #update} may be called from any thread; everything else from the EDT.
+ *
+ * @author Atharva Usturge
+ */
+public class WatchlistPanel extends JPanel implements Scrollable {
+    private static final int TILE_WIDTH = 180;
+    private static final int TILE_HEIGHT = 72;
+    private static final int GAP = 6;
+    // Bars shown in a sparkline (about five months of daily bars)
+    private static final int SPARK_BARS = 100;
+
+    private static final Color BACKGROUND = Color.BLACK;
+    private static final Color TILE_COLOR = new Color(28, 28, 28);
+    private static final Color TEXT_COLOR = Color.WHITE;
+    private static final Color MUTED_COLOR = new Color(140, 140, 140);
+    private static final Color UP_COLOR = new Color(0, 200, 0);
+    private static final Color DOWN_COLOR = new Color(255, 50, 50);
+    private static final BasicStroke SPARK_STROKE = new BasicStroke(1.25f);
+    private static final Font SYMBOL_FONT = new Font("SansSerif", Font.BOLD, 12);
+    private static final Font VALUE_FONT = new Font("SansSerif", Font.PLAIN, 11);
+
+    /** One symbol's tile. The series is written by any thread, the image only on the EDT. */
+    private static final class Tile {
+        final String symbol;
+        volatile TimeSeries series = TimeSeries.EMPTY;
+        // set while the series changed since the last rasterization started
+        final AtomicBoolean dirty = new AtomicBoolean();
+        // set while a render job for this tile is queued or running
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        BufferedImage image;
+        // the image replaced by the last swap, reused by the next render if it still fits
+        final AtomicReference<BufferedImage> spare = new AtomicReference<>();
+        int index;
+
+        Tile(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    private final ExecutorService pool;
+    private final Map<String, Tile> bySymbol = new ConcurrentHashMap<>();
+    private List<Tile> tiles = Collections.emptyList();
+    private int columns = 1;
+    // device scale the tile images are rasterized at; changes re-render every tile
+    private volatile double scale = 1;
+    private Consumer<String> tileListener;
+
+    /** Creates an empty watchlist rendered on up to four worker threads. */
+    public WatchlistPanel() {
+        this(Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    /**
+     * @param renderThreads the number of threads tiles are rasterized on
+     */
+    public WatchlistPanel(int renderThreads) {
+        setBackground(BACKGROUND);
+        setOpaque(true);
+        pool = Executors.newFixedThreadPool(Math.max(1, renderThreads), r -> {
+            Thread t = new Thread(r, "watchlist-render");
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int i = tileAt(e.getX(), e.getY());
+                if (i >= 0 && tileListener != null) tileListener.accept(tiles.get(i).symbol);
+            }
+        });
+    }
+
+    /**
+     * Sets the symbols shown, in grid order. Tiles of symbols already on the list keep
+     * their series and images.
+     *
+     * @param symbols the symbols; duplicates are shown once
+     */
+    public void setSymbols(List<String> symbols) {
+        List<Tile> next = new ArrayList<>(symbols.size());
+        Map<String, Tile> keep = new ConcurrentHashMap<>();
+        for (String symbol : symbols) {
+            if (keep.containsKey(symbol)) continue;
+            Tile t = bySymbol.get(symbol);
+            if (t == null) {
+                t = new Tile(symbol);
+                t.dirty.set(true);
+                schedule(t);
+            }
+            t.index = next.size();
+            next.add(t);
+            keep.put(symbol, t);
+        }
+        bySymbol.keySet().retainAll(keep.keySet());
+        bySymbol.putAll(keep);
+        tiles = next;
+        revalidate();
+        repaint();
+    }
+
+    /** @return the symbols shown, in grid order */
+    public List<String> getSymbols() {
+        List<String> out = new ArrayList<>(tiles.size());
+        for (Tile t : tiles) out.add(t.symbol);
+        return out;
+    }
+
+    /**
+     * Shows new bars for a symbol, re-rasterizing only its tile. Symbols not on the
+     * watchlist are ignored. Safe to call from any thread.
+     *
+     * @param symbol the stock symbol
+     * @param series its bars, oldest first
+     */
+    public void update(String symbol, TimeSeries series) {
+        Tile t = bySymbol.get(symbol);
+        if (t == null) return;
+        t.series = series == null ? TimeSeries.EMPTY : series;
+        t.dirty.set(true);
+        schedule(t);
+    }
+
+    /**
+     * @param listener called on the EDT with the symbol of a clicked tile, or null
+     */
+    public void setTileListener(Consumer<String> listener) {
+        this.tileListener = listener;
+    }
+
+    /** Stops the render threads; the panel cannot be updated afterwards. */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void schedule(Tile t) {
+        if (t.scheduled.compareAndSet(false, true)) pool.execute(() -> render(t));
+    }
+
+    // Worker thread: rasterizes until the tile is clean, then hands the image to the EDT
+    private void render(Tile t) {
+        while (t.dirty.getAndSet(false)) {
+            double sc = scale;
+            int iw = (int) Math.ceil(TILE_WIDTH * sc), ih = (int) Math.ceil(TILE_HEIGHT * sc);
+            BufferedImage img = t.spare.getAndSet(null);
+            if (img == null || img.getWidth() != iw || img.getHeight() != ih) {
+                img = new BufferedImage(iw, ih, BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D g2 = img.createGraphics();
+            try {
+                g2.scale(sc, sc);
+                paintTile(g2, t.symbol, t.series);
+            } finally {
+                g2.dispose();
+            }
+            BufferedImage done = img;
+            SwingUtilities.invokeLater(() -> swap(t, done));
+        }
+        t.scheduled.set(false);
+        // an update that slipped in after the loop's last check would otherwise be lost
+        if (t.dirty.get()) schedule(t);
+    }
+
+    // EDT: shows a freshly rasterized image and recycles the previous one
+    private void swap(Tile t, BufferedImage img) {
+        BufferedImage old = t.image;
+        t.image = img;
+        if (old != null) t.spare.set(old);
+        if (t.index < tiles.size() && tiles.get(t.index) == t) repaint(tileBounds(t.index));
+    }
+
+    /**
+     * Draws one tile: symbol and last close on the first line, the change against the
+     * previous close on the second, and a sparkline of the last {@value #SPARK_BARS} bars
+     * (reduced with {@link Decimator#lttb}) coloured by its overall direction.
+     */
+    private static void paintTile(Graphics2D g2, String symbol, TimeSeries s) {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setColor(TILE_COLOR);
+        g2.fillRect(0, 0, TILE_WIDTH, TILE_HEIGHT);
+
+        int pad = 6;
+        g2.setFont(SYMBOL_FONT);
+        g2.setColor(TEXT_COLOR);
+        g2.drawString(symbol, pad, pad + 11);
+
+        int n = s.size();
+        g2.setFont(VALUE_FONT);
+        FontMetrics fm = g2.getFontMetrics();
+        if (n == 0) {
+            g2.setColor(MUTED_COLOR);
+            g2.drawString("Loading...", pad, pad + 26);
+            return;
+        }
+
+        double last = s.close(n - 1);
+        String price = String.format(Locale.ROOT, "%.2f", last);
+        g2.drawString(price, TILE_WIDTH - pad - fm.stringWidth(price), pad + 11);
+        if (n > 1) {
+            double prev = s.close(n - 2);
+            double change = last - prev;
+            String text = String.format(Locale.ROOT, "%+.2f (%+.2f%%)", change, prev != 0 ? change / prev * 100 : 0);
+            g2.setColor(change >= 0 ? UP_COLOR : DOWN_COLOR);
+            g2.drawString(text, TILE_WIDTH - pad - fm.stringWidth(text), pad + 25);
+        }
+
+        // Sparkline in the lower part of the tile
+        int from = Math.max(0, n - SPARK_BARS);
+        if (n - from < 2) return;
+        int left = pad, top = pad + 32, width = TILE_WIDTH - 2 * pad, height = TILE_HEIGHT - top - pad;
+        int[] pts = new int[Math.min(width, n - from)];
+        int m = Decimator.lttb(s, from, n, pts.length, pts);
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < m; k++) {
+            double c = s.close(pts[k]);
+            if (c < min) min = c;
+            if (c > max) max = c;
+        }
+        double range = max - min;
+        if (range == 0) range = 1;
+        int[] xs = new int[m];
+        int[] ys = new int[m];
+        for (int k = 0; k < m; k++) {
+            xs[k] = left + (int) ((double) (pts[k] - from) / (n - 1 - from) * width);
+            ys[k] = top + (int) ((max - s.close(pts[k])) / range * height);
+        }
+        g2.setColor(last >= s.close(from) ? UP_COLOR : DOWN_COLOR);
+        g2.setStroke(SPARK_STROKE);
+        g2.drawPolyline(xs, ys, m);
+    }
+
+    /**
+     * Copies the images of the tiles inside the clip; a tile still being rasterized for
+     * the first time is drawn as an empty tile.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+
+        // Rasterize at device resolution so HiDPI screens stay sharp
+        AffineTransform tx = g2.getTransform();
+        double sc = Math.max(tx.getScaleX(), tx.getScaleY());
+        if (sc != scale) {
+            scale = sc;
+            for (Tile t : tiles) {
+                t.dirty.set(true);
+                schedule(t);
+            }
+        }
+
+        int cols = columnsFor(getWidth());
+        if (cols != columns) columns = cols;
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        int rowHeight = TILE_HEIGHT + GAP;
+        int firstRow = Math.max(0, (clip.y - GAP) / rowHeight);
+        int lastRow = (clip.y + clip.height) / rowHeight;
+        List<Tile> list = tiles;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = 0; col < cols; col++) {
+                int i = row * cols + col;
+                if (i >= list.size()) return;
+                Rectangle r = tileBounds(i);
+                if (!r.intersects(clip)) continue;
+                BufferedImage img = list.get(i).image;
+                if (img != null) {
+                    g2.drawImage(img, r.x, r.y, r.width, r.height, null);
+                } else {
+                    g2.setColor(TILE_COLOR);
+                    g2.fillRect(r.x, r.y, r.width, r.height);
+                }
+            }
+        }
+    }
+
+    private static int columnsFor(int width) {
+        return Math.max(1, (width - GAP) / (TILE_WIDTH + GAP));
+    }
+
+    private Rectangle tileBounds(int i) {
+        int cols = columns;
+        return new Rectangle(GAP + (i % cols) * (TILE_WIDTH + GAP), GAP + (i / cols) * (TILE_HEIGHT + GAP),
+                TILE_WIDTH, TILE_HEIGHT);
+    }
+
+    private int tileAt(int x, int y) {
+        int cols = columns;
+        int col = (x - GAP) / (TILE_WIDTH + GAP), row = (y - GAP) / (TILE_HEIGHT + GAP);
+        if (x < GAP || y < GAP || col >= cols) return -1;
+        int i = row * cols + col;
+        if (i >= tiles.size() || !tileBounds(i).contains(x, y)) return -1;
+        return i;
+    }
+
+    /** Reflows the grid to the width it is given; the height follows the row count. */
+    @Override
+    public Dimension getPreferredSize() {
+        int width = getParent() != null ? getParent().getWidth() : 0;
+        if (width <= 0) width = 5 * (TILE_WIDTH + GAP) + GAP;
+        int cols = columnsFor(width);
+        int rows = (tiles.size() + cols - 1) / cols;
+        return new Dimension(cols * (TILE_WIDTH + GAP) + GAP, Math.max(1, rows) * (TILE_HEIGHT + GAP) + GAP);
+    }
+
+    @Override
+    public void doLayout() {
+        columns = columnsFor(getWidth());
+        super.doLayout();
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? TILE_HEIGHT + GAP : TILE_WIDTH + GAP;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visible.height : visible.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,246 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round trips through {@link CompressedSeries} and the {@link Gorilla} bit streams under
+ * it: every decoded value must have exactly the bits that were encoded.
+ *
+ * @author Atharva Usturge
+ */
+class CompressedSeriesTest {
+    private static final long DAY = 86400L;
+
+    /** Weekday closes in exact cents, the common case. */
+    static TimeSeries daily(int n, long seed) {
+        Random r = new Random(seed);
+        SeriesBuilder b = new SeriesBuilder(Math.max(1, n));
+        long t = 10_000 * DAY;
+        double p = 100;
+        for (int i = 0; i < n; i++) {
+            double o = p;
+            p = Math.max(0.01, Math.round((p + r.nextGaussian()) * 100) / 100.0);
+            b.add(t, o, Math.max(o, p) + 0.5, Math.min(o, p) - 0.25, p, 1_000_000 + r.nextInt(500_000));
+            t += DAY * (t / DAY % 7 == 1 ? 3 : 1);
+        }
+        return b.build();
+    }
+
+    static void assertSameBars(TimeSeries expected, TimeSeries actual) {
+        assertEquals(expected.size(), actual.size(), "size");
+        assertEquals(expected.isIntraday(), actual.isIntraday(), "intraday");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.time(i), actual.time(i), "time of bar " + i);
+            assertBits(expected.open(i), actual.open(i), "open", i);
+            assertBits(expected.high(i), actual.high(i), "high", i);
+            assertBits(expected.low(i), actual.low(i), "low", i);
+            assertBits(expected.close(i), actual.close(i), "close", i);
+            assertBits(expected.volume(i), actual.volume(i), "volume", i);
+        }
+    }
+
+    private static void assertBits(double expected, double actual, String column, int i) {
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual),
+                column + " of bar " + i + ": " + expected + " vs " + actual);
+    }
+
+    private static CompressedSeries writeAndRead(CompressedSeries c) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(c.sizeInBytes());
+        c.write(buf);
+        assertEquals(0, buf.remaining());
+        buf.flip();
+        return CompressedSeries.read(buf, c.isIntraday());
+    }
+
+    @Test
+    void roundTripsAcrossBlockBoundaries() throws IOException {
+        int block = CompressedSeries.BLOCK_SIZE;
+        for (int n : new int[]{0, 1, 2, block - 1, block, block + 1, 2 * block, 3 * block + 17}) {
+            TimeSeries s = daily(n, n);
+            CompressedSeries c = CompressedSeries.encode(s);
+            assertEquals(n, c.size());
+            assertEquals((n + block - 1) / block, c.blockCount());
+            assertSameBars(s, c.decode());
+            assertSameBars(s, writeAndRead(c).decode());
+        }
+    }
+
+    @Test
+    void decodesRangesThatCrossBlocks() {
+        int block = CompressedSeries.BLOCK_SIZE;
+        TimeSeries s = daily(3 * block + 100, 7);
+        CompressedSeries c = CompressedSeries.encode(s);
+        int[][] ranges = {{0, 1}, {block - 1, block + 1}, {block, 2 * block}, {10, 3 * block + 50}, {3 * block, s.size()}};
+        for (int[] r : ranges) {
+            assertSameBars(slice(s, r[0], r[1]), c.decode(r[0], r[1]));
+        }
+        assertEquals(0, c.decode(5, 5).size());
+    }
+
+    static TimeSeries slice(TimeSeries s, int from, int to) {
+        SeriesBuilder b = new SeriesBuilder(Math.max(1, to - from));
+        b.setIntraday(s.isIntraday());
+        for (int i = from; i < to; i++) b.add(s.time(i), s.open(i), s.high(i), s.low(i), s.close(i), s.volume(i));
+        return b.build();
+    }
+
+    @Test
+    void keepsSpecialAndNonDecimalValues() throws IOException {
+        double[] specials = {Double.NaN, 0.0, -0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, Double.MAX_VALUE, Math.PI, 1.0 / 3, 0.1 + 0.2, 123.45675, -42.5, 1e300, 9.007199254740993e15};
+        Random r = new Random(11);
+        SeriesBuilder b = new SeriesBuilder(1500);
+        long t = 20_000 * DAY;
+        for (int i = 0; i < 1500; i++) {
+            double x = specials[r.nextInt(specials.length)];
+            // one column of cents with an odd special value, one raw, one constant, one NaN payload
+            b.add(t, i % 97 == 0 ? specials[r.nextInt(specials.length)] : Math.round(r.nextDouble() * 1e4) / 100.0,
+                    x, r.nextDouble(), i % 3 == 0 ? -0.0 : 0.0, Double.longBitsToDouble(0x7ff8_0000_0000_0000L | r.nextInt(1 << 20)));
+            t += DAY * (1 + r.nextInt(4));
+        }
+        TimeSeries s = b.build();
+        CompressedSeries c = CompressedSeries.encode(s);
+        assertSameBars(s, c.decode());
+        assertSameBars(s, writeAndRead(c).decode());
+    }
+
+    @Test
+    void keepsIrregularIntradayTimes() {
+        Random r = new Random(5);
+        SeriesBuilder b = new SeriesBuilder(2000);
+        b.setIntraday(true);
+        long t = 1_700_000_000L;
+        for (int i = 0; i < 2000; i++) {
+            b.add(t, 10, 11, 9, 10.5 + i % 7, i);
+            // minutes, an overnight gap now and then, and an odd number of seconds once
+            t += i % 390 == 389 ? 17 * 3600 + 60 : i == 1000 ? 7 : 60 * (1 + r.nextInt(3));
+        }
+        TimeSeries s = b.build();
+        assertSameBars(s, CompressedSeries.encode(s).decode());
+    }
+
+    @Test
+    void answersTimeAndMinMaxQueriesLikeAScan() {
+        TimeSeries s = daily(2000, 3);
+        CompressedSeries c = CompressedSeries.encode(s);
+        Random r = new Random(9);
+        for (int k = 0; k < 200; k++) {
+            int from = r.nextInt(s.size()), to = from + r.nextInt(s.size() - from + 1);
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, s.low(i));
+                max = Math.max(max, s.high(i));
+            }
+            assertEquals(min, c.min(CompressedSeries.Column.LOW, from, to));
+            assertEquals(max, c.max(CompressedSeries.Column.HIGH, from, to));
+
+            long time = s.time(from) - (k % 2) * DAY;
+            int expected = 0;
+            while (expected < s.size() && s.time(expected) < time) expected++;
+            assertEquals(expected, c.indexOf(time));
+        }
+        assertEquals(s.size(), c.indexOf(s.lastTime() + 1));
+    }
+
+    @Test
+    void mergeReplacesARevisedLastBarAndAppendsNewOnes() {
+        int block = CompressedSeries.BLOCK_SIZE;
+        for (int n : new int[]{1, block - 1, block, block + 5}) {
+            TimeSeries all = daily(n + 3, 21);
+            TimeSeries stored = slice(all, 0, n);
+            CompressedSeries c = CompressedSeries.encode(stored);
+
+            // a window that revises the last stored bar and brings three new ones
+            SeriesBuilder w = new SeriesBuilder(5);
+            for (int i = Math.max(0, n - 2); i < n + 3; i++) {
+                double close = i == n - 1 ? all.close(i) + 1.25 : all.close(i);
+                w.add(all.time(i), all.open(i), all.high(i), all.low(i), close, all.volume(i));
+            }
+            TimeSeries window = w.build();
+            SeriesBuilder e = new SeriesBuilder(n + 3);
+            for (int i = 0; i < n + 3; i++) {
+                double close = i == n - 1 ? all.close(i) + 1.25 : all.close(i);
+                e.add(all.time(i), all.open(i), all.high(i), all.low(i), close, all.volume(i));
+            }
+            CompressedSeries merged = c.merge(window);
+            assertSameBars(e.build(), merged.decode());
+            assertEquals((n + 3 + block - 1) / block, merged.blockCount());
+        }
+    }
+
+    @Test
+    void mergeOfNothingNewReturnsTheSameSeries() {
+        TimeSeries s = daily(700, 4);
+        CompressedSeries c = CompressedSeries.encode(s);
+        assertSame(c, c.merge(slice(s, 600, 700)), "unchanged window");
+        assertSame(c, c.merge(slice(s, 100, 200)), "only older bars");
+
+        SeriesBuilder revised = new SeriesBuilder(1);
+        int last = s.size() - 1;
+        revised.add(s.time(last), s.open(last), s.high(last), s.low(last), s.close(last), s.volume(last) + 1);
+        CompressedSeries merged = c.merge(revised.build());
+        assertEquals(s.volume(last) + 1, merged.decode(last, last + 1).volume(0));
+    }
+
+    @Test
+    void measuresBlocksFromTheirFixedPart() throws IOException {
+        CompressedSeries c = CompressedSeries.encode(daily(1300, 8));
+        ByteBuffer buf = ByteBuffer.allocate(c.sizeInBytes());
+        c.write(buf);
+        int at = 0;
+        for (int b = 0; b < c.blockCount(); b++) {
+            assertEquals(c.blockOffset(b), at);
+            at += CompressedSeries.blockLength(buf, at);
+        }
+        assertEquals(c.sizeInBytes(), at);
+    }
+
+    @Test
+    void rejectsTruncatedBlocks() {
+        CompressedSeries c = CompressedSeries.encode(daily(600, 2));
+        ByteBuffer buf = ByteBuffer.allocate(c.sizeInBytes());
+        c.write(buf);
+        for (int cut : new int[]{10, CompressedSeries.BLOCK_HEADER_BYTES + 8, c.sizeInBytes() - 8}) {
+            ByteBuffer part = ByteBuffer.wrap(buf.array(), 0, cut).slice();
+            assertThrows(IOException.class, () -> CompressedSeries.read(part, false), "cut at " + cut);
+        }
+    }
+
+    @Test
+    void gorillaStreamsRoundTripRawBits() {
+        Random r = new Random(13);
+        int n = 5000;
+        long[] t = new long[n];
+        double[] v = new double[n];
+        t[0] = -86400L * 365;
+        for (int i = 1; i < n; i++) {
+            // every delta-of-delta bucket, including the 64-bit escape and shrinking deltas
+            long[] steps = {60, 60, 120, 60 * 70, 60 * 300, 60 * 3000, 60L * 1_000_000};
+            t[i] = t[i - 1] + steps[r.nextInt(steps.length)];
+        }
+        for (int i = 0; i < n; i++) {
+            v[i] = i % 5 == 0 ? v[Math.max(0, i - 1)] : Double.longBitsToDouble(r.nextLong());
+        }
+        Gorilla.BitWriter out = new Gorilla.BitWriter();
+        Gorilla.encodeTimes(t, 0, n, 60, out);
+        out.alignToWord();
+        int valuesAt = out.wordCount();
+        Gorilla.encodeValues(v, 0, n, out);
+        long[] words = out.toWords();
+
+        long[] tt = new long[n];
+        double[] vv = new double[n];
+        Gorilla.decodeTimes(new Gorilla.BitReader(words, 0), t[0], 60, n, tt, 0);
+        Gorilla.decodeValues(new Gorilla.BitReader(words, valuesAt), n, vv, 0);
+        for (int i = 0; i < n; i++) {
+            assertEquals(t[i], tt[i], "time " + i);
+            assertEquals(Double.doubleToRawLongBits(v[i]), Double.doubleToRawLongBits(vv[i]), "value " + i);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the min/max decimation through a {@link RangeMinMax} picks the same bars as
+ * the scan over every bar, and that the index's arg queries agree with a scan.
+ *
+ * @author Atharva Usturge
+ */
+class DecimatorTest {
+    /** Closes in whole dollars over a narrow band, so most columns hold ties. */
+    private static TimeSeries flat(int n, long seed) {
+        Random r = new Random(seed);
+        SeriesBuilder b = new SeriesBuilder(n);
+        for (int i = 0; i < n; i++) {
+            double c = 100 + r.nextInt(4);
+            b.add(86400L * (10_000 + i), c, c + 1, c - 1, c, 1000 * (1 + r.nextInt(3)));
+        }
+        return b.build();
+    }
+
+    @Test
+    void indexedMinMaxMatchesTheScan() {
+        for (TimeSeries s : new TimeSeries[]{CompressedSeriesTest.daily(5000, 6), flat(5000, 7)}) {
+            RangeMinMax closes = RangeMinMax.ofClose(s);
+            Random r = new Random(8);
+            for (int k = 0; k < 300; k++) {
+                int from = r.nextInt(s.size()), to = from + 1 + r.nextInt(s.size() - from);
+                int columns = 1 + r.nextInt(900);
+                int[] expected = new int[2 * columns + 2], actual = new int[2 * columns + 2];
+                int m = Decimator.minMax(s, from, to, columns, expected);
+                assertEquals(m, Decimator.minMax(closes, from, to, columns, actual), "points in [" + from + ", " + to + ")");
+                assertArrayEquals(Arrays.copyOf(expected, m), Arrays.copyOf(actual, m), "[" + from + ", " + to + ") in " + columns);
+            }
+        }
+    }
+
+    @Test
+    void argQueriesReturnTheFirstExtremeBar() {
+        TimeSeries s = flat(1000, 9);
+        RangeMinMax volumes = RangeMinMax.ofVolume(s);
+        Random r = new Random(10);
+        for (int k = 0; k < 500; k++) {
+            int from = r.nextInt(s.size()), to = from + 1 + r.nextInt(s.size() - from);
+            int lo = from, hi = from;
+            for (int i = from + 1; i < to; i++) {
+                if (s.volume(i) < s.volume(lo)) lo = i;
+                if (s.volume(i) > s.volume(hi)) hi = i;
+            }
+            assertEquals(lo, volumes.argMin(from, to));
+            assertEquals(hi, volumes.argMax(from, to));
+            assertEquals(s.volume(hi), volumes.max(from, to));
+        }
+        assertEquals(-1, volumes.argMax(5, 5));
+        assertEquals(Double.POSITIVE_INFINITY, volumes.min(5, 5));
+    }
+}
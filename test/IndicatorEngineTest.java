@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link IndicatorEngine}'s incremental paths give the same outputs, bit for
+ * bit, as an engine computing the series from scratch.
+ *
+ * @author Atharva Usturge
+ */
+class IndicatorEngineTest {
+    private static final String ALL = "SMA20,EMA50,BB20,RSI14,VWAP,DC20";
+
+    private static void assertSameOutputs(TimeSeries s, IndicatorEngine actual) {
+        IndicatorEngine fresh = new IndicatorEngine(Indicators.parse(ALL));
+        fresh.update(s);
+        assertEquals(s.size(), actual.size(), "bars computed");
+        for (int line = 0; line < fresh.lineCount(); line++) {
+            for (int i = 0; i < s.size(); i++) {
+                assertEquals(Double.doubleToLongBits(fresh.value(line, i)), Double.doubleToLongBits(actual.value(line, i)),
+                        fresh.indicatorOf(line).getName() + " line " + line + " at bar " + i);
+            }
+        }
+    }
+
+    /** The same trading dates, the prices of another symbol. */
+    private static TimeSeries reprice(TimeSeries s, double offset) {
+        SeriesBuilder b = new SeriesBuilder(s.size());
+        for (int i = 0; i < s.size(); i++) {
+            b.add(s.time(i), s.open(i) + offset, s.high(i) + offset, s.low(i) + offset, s.close(i) + offset, s.volume(i) * 2);
+        }
+        return b.build();
+    }
+
+    @Test
+    void anotherSymbolOverTheSameDatesStartsOver() {
+        TimeSeries aapl = CompressedSeriesTest.daily(100, 1);
+        TimeSeries msft = reprice(aapl, 300);
+
+        IndicatorEngine engine = new IndicatorEngine(Indicators.parse(ALL));
+        engine.update(aapl);
+        assertEquals(100, engine.update(msft));
+        assertSameOutputs(msft, engine);
+
+        // the path the GUI takes when the user looks up the next symbol
+        ChartPanel chart = new ChartPanel();
+        IndicatorEngine shown = new IndicatorEngine(Indicators.parseOverlays("SMA20,EMA50,BB20"));
+        chart.setIndicators(shown);
+        chart.setSeries(aapl);
+        chart.setSeries(msft);
+        IndicatorEngine fresh = new IndicatorEngine(Indicators.parseOverlays("SMA20,EMA50,BB20"));
+        fresh.update(msft);
+        for (int line = 0; line < fresh.lineCount(); line++) {
+            assertEquals(fresh.value(line, msft.size() - 1), shown.value(line, msft.size() - 1), "line " + line);
+        }
+    }
+
+    @Test
+    void liveRevisionsMatchARecomputation() {
+        Random r = new Random(17);
+        IndicatorEngine engine = new IndicatorEngine(Indicators.parse(ALL));
+        SeriesBuilder live = new SeriesBuilder();
+        live.setIntraday(true);
+        long t = 1_700_000_000L;
+        double p = 50;
+        for (int step = 0; step < 3000; step++) {
+            int firstChanged;
+            p += r.nextGaussian() * 0.1;
+            if (live.isEmpty() || r.nextInt(4) == 0) {
+                // a new bar
+                firstChanged = live.size();
+                live.add(t += 60, p, p + 0.2, p - 0.2, p, 100 + r.nextInt(100));
+            } else {
+                // the forming bar revised
+                firstChanged = live.size() - 1;
+                TimeSeries s = live.build();
+                live.clear();
+                live.setIntraday(true);
+                for (int i = 0; i < s.size() - 1; i++) live.add(s.time(i), s.open(i), s.high(i), s.low(i), s.close(i), s.volume(i));
+                live.add(t, s.open(firstChanged), Math.max(p, s.high(firstChanged)), Math.min(p, s.low(firstChanged)), p,
+                        s.volume(firstChanged) + r.nextInt(50));
+            }
+            TimeSeries s = live.build();
+            assertEquals(s.size() - firstChanged, engine.update(s, firstChanged));
+            if (step % 97 == 0) assertSameOutputs(s, engine);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link Resampler}'s calendar arithmetic against {@code java.time}, around the
+ * boundaries where weeks, months and quarters turn over.
+ *
+ * @author Atharva Usturge
+ */
+class ResamplerTest {
+    private static long seconds(LocalDate d) {
+        return d.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    }
+
+    /** One bar per calendar day from {@code first} to {@code last}, prices rising by the day. */
+    private static TimeSeries days(LocalDate first, LocalDate last) {
+        SeriesBuilder b = new SeriesBuilder();
+        int i = 0;
+        for (LocalDate d = first; !d.isAfter(last); d = d.plusDays(1), i++) {
+            b.add(seconds(d), 100 + i, 101 + i + i % 3, 99 + i - i % 5, 100.5 + i, 1000 + i);
+        }
+        return b.build();
+    }
+
+    @Test
+    void weeksStartOnMonday() {
+        assertNotEquals(Resampler.bucket(seconds(LocalDate.of(2023, 12, 31)), Timeframe.WEEKLY),
+                Resampler.bucket(seconds(LocalDate.of(2024, 1, 1)), Timeframe.WEEKLY), "Sunday to Monday");
+        assertEquals(Resampler.bucket(seconds(LocalDate.of(2020, 12, 31)), Timeframe.WEEKLY),
+                Resampler.bucket(seconds(LocalDate.of(2021, 1, 3)), Timeframe.WEEKLY), "week across new year");
+        assertEquals(Resampler.bucket(seconds(LocalDate.of(1969, 12, 29)), Timeframe.WEEKLY),
+                Resampler.bucket(seconds(LocalDate.of(1970, 1, 1)), Timeframe.WEEKLY), "week across the epoch");
+        assertReference(Timeframe.WEEKLY, d -> d.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+    }
+
+    @Test
+    void monthsFollowTheCalendar() {
+        assertEquals(Resampler.bucket(seconds(LocalDate.of(2024, 2, 1)), Timeframe.MONTHLY),
+                Resampler.bucket(seconds(LocalDate.of(2024, 2, 29)), Timeframe.MONTHLY), "leap day");
+        assertNotEquals(Resampler.bucket(seconds(LocalDate.of(2024, 2, 29)), Timeframe.MONTHLY),
+                Resampler.bucket(seconds(LocalDate.of(2024, 3, 1)), Timeframe.MONTHLY));
+        assertEquals(Resampler.bucket(seconds(LocalDate.of(1999, 12, 31)), Timeframe.MONTHLY) + 1,
+                Resampler.bucket(seconds(LocalDate.of(2000, 1, 1)), Timeframe.MONTHLY));
+        assertReference(Timeframe.MONTHLY, d -> d.withDayOfMonth(1));
+    }
+
+    @Test
+    void quartersFollowTheCalendar() {
+        assertNotEquals(Resampler.bucket(seconds(LocalDate.of(2023, 3, 31)), Timeframe.QUARTERLY),
+                Resampler.bucket(seconds(LocalDate.of(2023, 4, 1)), Timeframe.QUARTERLY));
+        assertEquals(Resampler.bucket(seconds(LocalDate.of(2023, 1, 1)), Timeframe.QUARTERLY),
+                Resampler.bucket(seconds(LocalDate.of(2023, 3, 31)), Timeframe.QUARTERLY));
+        assertReference(Timeframe.QUARTERLY, d -> LocalDate.of(d.getYear(), (d.getMonthValue() - 1) / 3 * 3 + 1, 1));
+    }
+
+    /**
+     * Resamples daily bars over 1899..1901, 1968..1971 and 2019..2025 and compares every
+     * bucket with one aggregated by hand from {@code start}, the first day of a date's bucket.
+     */
+    private static void assertReference(Timeframe tf, Function<LocalDate, LocalDate> start) {
+        LocalDate[][] spans = {
+                {LocalDate.of(1899, 12, 1), LocalDate.of(1901, 3, 15)},
+                {LocalDate.of(1968, 11, 20), LocalDate.of(1971, 2, 2)},
+                {LocalDate.of(2019, 12, 30), LocalDate.of(2025, 1, 5)},
+        };
+        for (LocalDate[] span : spans) {
+            TimeSeries s = days(span[0], span[1]);
+            TimeSeries r = Resampler.resample(s, tf);
+            assertTrue(!r.isIntraday());
+            int k = -1;
+            LocalDate current = null;
+            for (int i = 0; i < s.size(); i++) {
+                LocalDate d = LocalDate.ofEpochDay(s.epochDay(i));
+                LocalDate b = start.apply(d);
+                if (!b.equals(current)) {
+                    if (k >= 0) assertEquals(s.close(i - 1), r.close(k), "close of " + current);
+                    current = b;
+                    k++;
+                    assertEquals(s.time(i), r.time(k), "bucket of " + d + " is stamped with its first bar");
+                    assertEquals(s.open(i), r.open(k), "open of " + b);
+                }
+            }
+            assertEquals(k + 1, r.size(), tf + " buckets from " + span[0]);
+            assertEquals(s.close(s.size() - 1), r.close(k));
+
+            double volume = 0;
+            for (int i = 0; i < s.size(); i++) volume += s.volume(i);
+            double total = 0;
+            for (int i = 0; i < r.size(); i++) total += r.volume(i);
+            assertEquals(volume, total);
+        }
+    }
+
+    @Test
+    void minuteBucketsAreStampedWithTheirStart() {
+        SeriesBuilder b = new SeriesBuilder();
+        b.setIntraday(true);
+        long open = seconds(LocalDate.of(2024, 3, 8)) + 14 * 3600 + 30 * 60;
+        for (int m = 0; m < 390; m++) b.add(open + 60L * m, 10 + m, 11 + m, 9 + m, 10.5 + m, 100);
+        TimeSeries s = b.build();
+
+        TimeSeries r = Resampler.resample(s, Timeframe.minutes(15));
+        assertTrue(r.isIntraday());
+        assertEquals(26, r.size());
+        for (int k = 0; k < r.size(); k++) {
+            assertEquals(open + 900L * k, r.time(k));
+            assertEquals(10 + 15 * k, r.open(k));
+            assertEquals(11 + 15 * k + 14, r.high(k));
+            assertEquals(9 + 15 * k, r.low(k));
+            assertEquals(10.5 + 15 * k + 14, r.close(k));
+            assertEquals(1500, r.volume(k));
+        }
+        TimeSeries daily = days(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 9));
+        assertSame(daily, Resampler.resample(daily, Timeframe.DAILY), "daily bars are left alone");
+    }
+
+    @Test
+    void incrementalResampleMatchesAFullOne() {
+        TimeSeries all = days(LocalDate.of(2023, 11, 20), LocalDate.of(2024, 7, 10));
+        for (Timeframe tf : new Timeframe[]{Timeframe.WEEKLY, Timeframe.MONTHLY, Timeframe.QUARTERLY}) {
+            int[] lastStart = new int[1];
+            TimeSeries prev = TimeSeries.EMPTY;
+            int from = 0;
+            // grow the history a few bars at a time, as live refreshes do
+            for (int n = 1; n <= all.size(); n += 1 + n % 9) {
+                TimeSeries s = CompressedSeriesTest.slice(all, 0, n);
+                prev = Resampler.resample(s, tf, prev, from, lastStart);
+                from = lastStart[0];
+                CompressedSeriesTest.assertSameBars(Resampler.resample(s, tf), prev);
+            }
+        }
+    }
+}
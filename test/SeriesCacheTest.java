@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how {@link SeriesCache} shares a load between callers when one of them is
+ * cancelled or is more urgent than the one loading.
+ *
+ * @author Atharva Usturge
+ */
+class SeriesCacheTest {
+    private static final FetchKey KEY = FetchKey.daily("IBM", "compact");
+
+    /** Runs {@code get} on a thread of its own. */
+    private static CompletableFuture<TimeSeries> getAsync(SeriesCache cache, boolean urgent, Thread[] thread) {
+        CompletableFuture<TimeSeries> result = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+            try {
+                result.complete(cache.get(KEY, urgent));
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        if (thread != null) thread[0] = t;
+        t.start();
+        return result;
+    }
+
+    @Test
+    void waitersLoadAgainWhenTheLoadingCallerIsCancelled() throws Exception {
+        TimeSeries s = CompressedSeriesTest.daily(10, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        SeriesCache cache = new SeriesCache(key -> {
+            if (loads.incrementAndGet() > 1) return s;
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException("Request cancelled");
+            }
+            return s;
+        }, 8, 60_000);
+
+        Thread[] loader = new Thread[1];
+        CompletableFuture<TimeSeries> cancelled = getAsync(cache, false, loader);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<TimeSeries> waiter = getAsync(cache, false, null);
+        while (cache.getCoalesced() == 0) Thread.sleep(1);
+
+        loader[0].interrupt();
+        assertSame(s, waiter.get(10, TimeUnit.SECONDS));
+        assertTrue(cancelled.handle((v, ex) -> ex).get(10, TimeUnit.SECONDS) instanceof InterruptedIOException);
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.inFlightCount());
+    }
+
+    @Test
+    void waitingIsInterruptible() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SeriesCache cache = new SeriesCache(key -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException("Request cancelled");
+            }
+            return CompressedSeriesTest.daily(10, 2);
+        }, 8, 60_000);
+
+        CompletableFuture<TimeSeries> loading = getAsync(cache, false, null);
+        while (cache.inFlightCount() == 0) Thread.sleep(1);
+        Thread[] waiter = new Thread[1];
+        CompletableFuture<TimeSeries> waiting = getAsync(cache, false, waiter);
+        while (cache.getCoalesced() == 0) Thread.sleep(1);
+
+        waiter[0].interrupt();
+        assertTrue(waiting.handle((v, ex) -> ex).get(10, TimeUnit.SECONDS) instanceof InterruptedIOException);
+        release.countDown();
+        assertEquals(10, loading.get(10, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    void urgentCallerDoesNotWaitBehindABackgroundLoad() throws Exception {
+        TimeSeries s = CompressedSeriesTest.daily(10, 3);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        SeriesCache cache = new SeriesCache(key -> {
+            if (loads.incrementAndGet() > 1) return s;
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException("Request cancelled");
+            }
+            return s;
+        }, 8, 60_000);
+
+        CompletableFuture<TimeSeries> background = getAsync(cache, false, null);
+        while (cache.inFlightCount() == 0) Thread.sleep(1);
+        assertSame(s, cache.get(KEY, true));
+        assertEquals(0, cache.getCoalesced());
+        assertEquals(2, loads.get());
+
+        release.countDown();
+        assertSame(s, background.get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,126 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips through the files of {@link SeriesStore}: full writes, in-place merges into
+ * the last block, version 1 files and a merge torn by a crash.
+ *
+ * @author Atharva Usturge
+ */
+class SeriesStoreTest {
+    @TempDir
+    Path dir;
+
+    private Path file(String symbol) {
+        return dir.resolve(symbol + ".daily.bars");
+    }
+
+    @Test
+    void replaceAndLoadRoundTrip() throws IOException {
+        SeriesStore store = new SeriesStore(dir);
+        assertNull(store.load("IBM"));
+        TimeSeries s = CompressedSeriesTest.daily(1200, 1);
+        store.replace("IBM", s);
+        CompressedSeriesTest.assertSameBars(s, store.load("IBM"));
+        CompressedSeriesTest.assertSameBars(s, store.loadCompressed("ibm").decode());
+        assertTrue(store.lastRefresh("IBM") > 0);
+    }
+
+    @Test
+    void mergesRevisedLastBarAndNewBarsInPlace() throws IOException {
+        SeriesStore store = new SeriesStore(dir);
+        TimeSeries all = CompressedSeriesTest.daily(CompressedSeries.BLOCK_SIZE * 2 + 20, 2);
+        int n = all.size() - 30;
+        store.replace("IBM", CompressedSeriesTest.slice(all, 0, n));
+        byte[] before = Files.readAllBytes(file("IBM"));
+
+        // bars n-5 .. n+9, the last stored one revised
+        SeriesBuilder w = new SeriesBuilder(15);
+        SeriesBuilder expected = new SeriesBuilder(n + 10);
+        for (int i = 0; i < n + 10; i++) {
+            double close = i == n - 1 ? all.close(i) - 0.75 : all.close(i);
+            expected.add(all.time(i), all.open(i), all.high(i), all.low(i), close, all.volume(i));
+            if (i >= n - 5) w.add(all.time(i), all.open(i), all.high(i), all.low(i), close, all.volume(i));
+        }
+        assertEquals(10, store.merge("IBM", w.build()));
+        CompressedSeriesTest.assertSameBars(expected.build(), store.load("IBM"));
+
+        // the blocks before the last are the bytes that were there
+        byte[] after = Files.readAllBytes(file("IBM"));
+        int untouched = 32 + CompressedSeries.encode(CompressedSeriesTest.slice(all, 0, n)).blockOffset(1);
+        assertArrayEquals(Arrays.copyOfRange(before, 32, untouched), Arrays.copyOfRange(after, 32, untouched));
+
+        // and the merge matches a full rewrite of the same bars
+        SeriesStore other = new SeriesStore(dir.resolve("other"));
+        other.replace("IBM", expected.build());
+        byte[] full = Files.readAllBytes(dir.resolve("other").resolve("IBM.daily.bars"));
+        assertArrayEquals(Arrays.copyOfRange(full, 32, full.length), Arrays.copyOfRange(after, 32, after.length));
+    }
+
+    @Test
+    void unchangedMergeOnlyStampsTheRefreshTime() throws IOException {
+        SeriesStore store = new SeriesStore(dir);
+        TimeSeries s = CompressedSeriesTest.daily(700, 3);
+        store.replace("IBM", s);
+        byte[] before = Files.readAllBytes(file("IBM"));
+        assertEquals(0, store.merge("IBM", CompressedSeriesTest.slice(s, 650, 700)));
+        byte[] after = Files.readAllBytes(file("IBM"));
+        assertEquals(before.length, after.length);
+        for (int i = 0; i < before.length; i++) {
+            if (i < 16 || i >= 24) assertEquals(before[i], after[i], "byte " + i);
+        }
+    }
+
+    @Test
+    void convertsAVersion1FileOnMerge() throws IOException {
+        TimeSeries all = CompressedSeriesTest.daily(900, 4);
+        TimeSeries old = CompressedSeriesTest.slice(all, 0, 880);
+        ByteBuffer v1 = ByteBuffer.allocate(32 + 48 * old.size());
+        v1.putInt(0x53564231).putInt(1).putInt(0).putInt(0).putLong(1234L).putLong(0);
+        for (int i = 0; i < old.size(); i++) {
+            v1.putLong(old.time(i)).putDouble(old.open(i)).putDouble(old.high(i))
+                    .putDouble(old.low(i)).putDouble(old.close(i)).putDouble(old.volume(i));
+        }
+        Files.write(file("IBM"), v1.array());
+
+        SeriesStore store = new SeriesStore(dir);
+        CompressedSeriesTest.assertSameBars(old, store.load("IBM"));
+        assertEquals(1234L, store.lastRefresh("IBM"));
+
+        assertEquals(20, store.merge("IBM", CompressedSeriesTest.slice(all, 870, 900)));
+        CompressedSeriesTest.assertSameBars(all, store.load("IBM"));
+        assertEquals(2, ByteBuffer.wrap(Files.readAllBytes(file("IBM"))).getInt(4));
+        assertTrue(Files.size(file("IBM")) < v1.capacity());
+    }
+
+    @Test
+    void dropsATornTailAndRewritesOnTheNextMerge() throws IOException {
+        SeriesStore store = new SeriesStore(dir);
+        TimeSeries all = CompressedSeriesTest.daily(CompressedSeries.BLOCK_SIZE * 2 + 50, 5);
+        store.replace("IBM", all);
+
+        // a crash after the last block was partly overwritten, before the header was
+        byte[] bytes = Files.readAllBytes(file("IBM"));
+        bytes[bytes.length - 3] ^= 0x5a;
+        Files.write(file("IBM"), bytes);
+
+        TimeSeries loaded = store.load("IBM");
+        CompressedSeriesTest.assertSameBars(CompressedSeriesTest.slice(all, 0, CompressedSeries.BLOCK_SIZE * 2), loaded);
+        assertTrue(!SeriesStore.overlaps(loaded, CompressedSeriesTest.slice(all, all.size() - 10, all.size())));
+
+        // the full refetch the callers then make goes through merge too
+        store.merge("IBM", all);
+        CompressedSeriesTest.assertSameBars(all, store.load("IBM"));
+    }
+}